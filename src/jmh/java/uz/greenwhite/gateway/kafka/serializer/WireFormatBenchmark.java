@@ -0,0 +1,106 @@
+package uz.greenwhite.gateway.kafka.serializer;
+
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import uz.greenwhite.gateway.model.kafka.RequestMessage;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON vs SMILE cost of a typical RequestMessage on the gateway topics.
+ *
+ * Run: mvn -P jmh test-compile exec:exec
+ * The frame size (value + headers) of each format is printed once per trial.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WireFormatBenchmark {
+
+    private static final String TOPIC = "gateway.request.new";
+
+    @Param({"JSON", "SMILE"})
+    private WireFormat format;
+
+    private GatewayKafkaSerializer serializer;
+    private GatewayKafkaDeserializer deserializer;
+    private RequestMessage message;
+    private RecordHeaders headers;
+    private byte[] serialized;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        serializer = new GatewayKafkaSerializer();
+        serializer.configure(Map.of(WireFormat.CONFIG, format.name()), false);
+        deserializer = new GatewayKafkaDeserializer();
+        deserializer.configure(Map.of(JsonDeserializer.TRUSTED_PACKAGES, "uz.greenwhite.gateway.*",
+                JsonDeserializer.REMOVE_TYPE_INFO_HEADERS, false), false);
+
+        message = RequestMessage.builder()
+                .companyId(100L)
+                .requestId(123456789L)
+                .filialId(7L)
+                .endpointId(12L)
+                .baseUrl("https://partner.example")
+                .uri("/api/v1/orders")
+                .params("page=1&size=20")
+                .method("POST")
+                .headers(Map.of("Content-Type", "application/json", "X-Trace-Id", "a1b2c3d4e5f6"))
+                .body("{\"order_id\":12345,\"items\":[{\"sku\":\"A-1\",\"qty\":2},{\"sku\":\"B-7\",\"qty\":1}]}")
+                .callbackProcedure("biruni_orders.save_response")
+                .projectCode("trade")
+                .sourceTable("orders")
+                .sourceId(12345L)
+                .createdAt(LocalDateTime.of(2026, 10, 17, 9, 30, 15))
+                .build();
+
+        headers = new RecordHeaders();
+        serialized = serializer.serialize(TOPIC, headers, message);
+        int headerBytes = Arrays.stream(headers.toArray())
+                .mapToInt(header -> header.key().length() + header.value().length)
+                .sum();
+        System.out.printf("%n%s frame: %d value bytes + %d header bytes%n", format, serialized.length, headerBytes);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        serializer.close();
+        deserializer.close();
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return serializer.serialize(TOPIC, new RecordHeaders(), message);
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return deserializer.deserialize(TOPIC, headers, serialized);
+    }
+
+    @Benchmark
+    public Object roundTrip() {
+        RecordHeaders recordHeaders = new RecordHeaders();
+        byte[] data = serializer.serialize(TOPIC, recordHeaders, message);
+        return deserializer.deserialize(TOPIC, recordHeaders, data);
+    }
+}
@@ -0,0 +1,44 @@
+package uz.greenwhite.gateway.blob;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Storage for message bodies too large to travel through Kafka (claim-check).
+ * Implementations may use Redis, a shared filesystem, S3-compatible storage, etc.
+ * Every gateway instance must be able to read what any other instance wrote.
+ * Content is opaque bytes: text bodies are stored as UTF-8, binary bodies as-is.
+ */
+public interface BlobStore {
+
+    /**
+     * Store the content
+     *
+     * @return reference to put into the message instead of the content
+     */
+    String put(byte[] content);
+
+    /**
+     * Store the content of a file (a streamed response body). The file stays with
+     * the caller; implementations should avoid reading it into memory at once.
+     *
+     * @return reference to put into the message instead of the content
+     */
+    default String put(Path file) {
+        try {
+            return put(Files.readAllBytes(file));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read " + file, e);
+        }
+    }
+
+    /**
+     * @return the content, empty if it expired or was deleted
+     */
+    Optional<byte[]> get(String ref);
+
+    void delete(String ref);
+}
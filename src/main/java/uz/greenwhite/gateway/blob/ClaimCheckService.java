@@ -0,0 +1,203 @@
+package uz.greenwhite.gateway.blob;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import uz.greenwhite.gateway.config.ClaimCheckProperties;
+import uz.greenwhite.gateway.metrics.GatewayMetrics;
+import uz.greenwhite.gateway.model.kafka.RequestMessage;
+import uz.greenwhite.gateway.model.kafka.ResponseMessage;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Claim-check for large bodies.
+ *
+ * Before a message goes to Kafka, a body above threshold-bytes is written to the
+ * BlobStore and replaced by its reference (bodyRef). The side that needs the body
+ * resolves the reference: RequestConsumer before the HTTP call, ResponseConsumer
+ * before the save. Response blobs are deleted once saved; request blobs are kept
+ * for retries and deleted when the request reaches COMPLETED or FAILED. A DLQ entry
+ * never carries a reference: the body is loaded and put into it before the delete.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ClaimCheckService {
+
+    private final ClaimCheckProperties properties;
+    private final BlobStore blobStore;
+    private final GatewayMetrics metrics;
+
+    /**
+     * E2: Offload the request body if it is too large. The message is changed in place.
+     */
+    public void offload(RequestMessage request) {
+        if (isTooLarge(request.getBody())) {
+            request.setBodyRef(put(request.getBody().getBytes(StandardCharsets.UTF_8), request.getCompositeId()));
+            request.setBody(null);
+        }
+    }
+
+    /**
+     * E4: Offload the response body if it is too large, before it goes to request-response
+     */
+    public Mono<ResponseMessage> offload(ResponseMessage response) {
+        if (isTooLarge(response.getBodyBytes())) {
+            return Mono.fromCallable(() -> {
+                response.setBodyRef(put(response.getBodyBytes(), response.getCompositeId()));
+                response.setBodyBytes(null);
+                return response;
+            }).subscribeOn(Schedulers.boundedElastic());
+        }
+        if (isTooLarge(response.getBody())) {
+            return Mono.fromCallable(() -> {
+                response.setBodyRef(put(response.getBody().getBytes(StandardCharsets.UTF_8), response.getCompositeId()));
+                response.setBody(null);
+                return response;
+            }).subscribeOn(Schedulers.boundedElastic());
+        }
+        return Mono.just(response);
+    }
+
+    /**
+     * E4: Store a streamed response body spilled to a temp file (ResponseBodyCollector),
+     * whatever the threshold: only the reference travels onward. The temp file is deleted.
+     */
+    public Mono<ResponseMessage> offload(ResponseMessage response, Path file) {
+        return Mono.fromCallable(() -> {
+                    String ref = blobStore.put(file);
+                    metrics.getClaimCheckOffload().increment();
+                    log.debug("Offloaded streamed body of {} to blob {}", response.getCompositeId(), ref);
+                    response.setBodyRef(ref);
+                    response.setRawBody(true);
+                    return response;
+                })
+                .doFinally(signal -> deleteQuietly(file))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * E4: Copy of the request with its body loaded, the message itself keeps the reference
+     * (so retries are published without the body)
+     */
+    public Mono<RequestMessage> resolve(RequestMessage request) {
+        if (request.getBodyRef() == null) {
+            return Mono.just(request);
+        }
+        return Mono.fromCallable(() -> request.toBuilder()
+                        .body(new String(get(request.getBodyRef(), request.getCompositeId()), StandardCharsets.UTF_8))
+                        .build())
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * E5: Load the response body (blocking, call off the listener thread)
+     */
+    public String resolveBody(ResponseMessage response) {
+        if (response.getBodyRef() == null) {
+            return response.getBody();
+        }
+        return new String(get(response.getBodyRef(), response.getCompositeId()), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * E5: Load the raw response body of opaque body mode (blocking, call off the listener thread)
+     */
+    public byte[] resolveBodyBytes(ResponseMessage response) {
+        if (response.getBodyRef() == null) {
+            return response.getBodyBytes();
+        }
+        return get(response.getBodyRef(), response.getCompositeId());
+    }
+
+    /**
+     * E4: Copy of the request with its body loaded for a DLQ entry. A missing blob
+     * is not an error here: the entry is sent without the body.
+     */
+    public Mono<RequestMessage> inline(RequestMessage request) {
+        return resolve(request).onErrorResume(e -> {
+            log.warn("E4: Body of {} not added to DLQ entry: {}", request.getCompositeId(), e.getMessage());
+            return Mono.just(request);
+        });
+    }
+
+    /**
+     * E4: Drop the request blob once the request is COMPLETED or FAILED (retries are over)
+     */
+    public Mono<Void> release(RequestMessage request) {
+        if (request.getBodyRef() == null) {
+            return Mono.empty();
+        }
+        return Mono.fromRunnable(() -> delete(request.getBodyRef(), request.getCompositeId()))
+                .subscribeOn(Schedulers.boundedElastic())
+                .then();
+    }
+
+    /**
+     * E5: Drop the response blob once the response is saved
+     */
+    public void release(ResponseMessage response) {
+        if (response.getBodyRef() != null) {
+            delete(response.getBodyRef(), response.getCompositeId());
+        }
+    }
+
+    /**
+     * E4: Drop the response blob of a response that never reached the response topic
+     */
+    public Mono<Void> releaseReactive(ResponseMessage response) {
+        if (response.getBodyRef() == null) {
+            return Mono.empty();
+        }
+        return Mono.fromRunnable(() -> release(response))
+                .subscribeOn(Schedulers.boundedElastic())
+                .then();
+    }
+
+    private void delete(String ref, String compositeId) {
+        try {
+            blobStore.delete(ref);
+        } catch (Exception e) {
+            log.warn("Failed to delete blob {} of {}, it expires with the TTL: {}", ref, compositeId, e.getMessage());
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Failed to delete temp body file {}: {}", file, e.getMessage());
+        }
+    }
+
+    private boolean isTooLarge(String body) {
+        // Cheap check first: UTF-8 needs at least one byte per char and at most three
+        if (!properties.isEnabled() || body == null || body.length() * 3L <= properties.getThresholdBytes()) {
+            return false;
+        }
+        return body.length() > properties.getThresholdBytes()
+                || body.getBytes(StandardCharsets.UTF_8).length > properties.getThresholdBytes();
+    }
+
+    private boolean isTooLarge(byte[] body) {
+        return properties.isEnabled() && body != null && body.length > properties.getThresholdBytes();
+    }
+
+    private String put(byte[] body, String compositeId) {
+        String ref = blobStore.put(body);
+        metrics.getClaimCheckOffload().increment();
+        log.debug("Offloaded body of {} ({} bytes) to blob {}", compositeId, body.length, ref);
+        return ref;
+    }
+
+    private byte[] get(String ref, String compositeId) {
+        return blobStore.get(ref).orElseThrow(() ->
+                new IllegalStateException("Blob " + ref + " of " + compositeId + " not found (expired?)"));
+    }
+}
@@ -0,0 +1,121 @@
+package uz.greenwhite.gateway.blob;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import uz.greenwhite.gateway.config.ClaimCheckProperties;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Blobs as files in gateway.claim-check.directory.
+ * With more than one instance the directory must be a shared volume.
+ * Files older than the claim-check TTL are removed hourly.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "gateway.claim-check.store", havingValue = "FILESYSTEM")
+public class FileSystemBlobStore implements BlobStore {
+
+    private final Path directory;
+    private final ClaimCheckProperties properties;
+
+    public FileSystemBlobStore(ClaimCheckProperties properties) throws IOException {
+        this.properties = properties;
+        this.directory = Files.createDirectories(Path.of(properties.getDirectory()));
+    }
+
+    @Override
+    public String put(byte[] content) {
+        String ref = UUID.randomUUID().toString();
+        try {
+            // Write then rename, so a reader never sees a partial blob
+            Path temp = directory.resolve(ref + ".tmp");
+            Files.write(temp, content);
+            Files.move(temp, file(ref), StandardCopyOption.ATOMIC_MOVE);
+            return ref;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write blob " + ref, e);
+        }
+    }
+
+    @Override
+    public String put(Path file) {
+        String ref = UUID.randomUUID().toString();
+        Path temp = directory.resolve(ref + ".tmp");
+        try {
+            Files.copy(file, temp);
+            Files.move(temp, file(ref), StandardCopyOption.ATOMIC_MOVE);
+            return ref;
+        } catch (IOException e) {
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw new UncheckedIOException("Failed to write blob " + ref, e);
+        }
+    }
+
+    @Override
+    public Optional<byte[]> get(String ref) {
+        try {
+            return Optional.of(Files.readAllBytes(file(ref)));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read blob " + ref, e);
+        }
+    }
+
+    @Override
+    public void delete(String ref) {
+        try {
+            Files.deleteIfExists(file(ref));
+        } catch (IOException e) {
+            log.warn("Failed to delete blob {}: {}", ref, e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelay = 3_600_000, initialDelay = 60_000)
+    public void deleteExpired() {
+        FileTime cutoff = FileTime.from(Instant.now().minus(Duration.ofHours(properties.getTtlHours())));
+        try (Stream<Path> files = Files.list(directory)) {
+            long deleted = files.filter(path -> isOlderThan(path, cutoff))
+                    .filter(path -> path.toFile().delete())
+                    .count();
+            if (deleted > 0) {
+                log.info("Deleted {} expired blobs from {}", deleted, directory);
+            }
+        } catch (IOException e) {
+            log.warn("Failed to clean up blobs in {}: {}", directory, e.getMessage());
+        }
+    }
+
+    private static boolean isOlderThan(Path path, FileTime cutoff) {
+        try {
+            return Files.getLastModifiedTime(path).compareTo(cutoff) < 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Refs are generated UUIDs; anything else is rejected to keep reads inside the directory
+     */
+    private Path file(String ref) {
+        return directory.resolve(UUID.fromString(ref).toString());
+    }
+}
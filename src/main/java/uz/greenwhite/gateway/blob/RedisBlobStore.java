@@ -0,0 +1,104 @@
+package uz.greenwhite.gateway.blob;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.stereotype.Component;
+import uz.greenwhite.gateway.config.ClaimCheckProperties;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Blobs as Redis strings with the claim-check TTL.
+ * Values are raw bytes (no string serializer), so binary bodies are stored as-is.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "gateway.claim-check.store", havingValue = "REDIS", matchIfMissing = true)
+public class RedisBlobStore implements BlobStore {
+
+    private static final String BLOB_PREFIX = "gateway:blob:";
+    private static final int CHUNK_BYTES = 1024 * 1024;
+
+    private final StringRedisTemplate redisTemplate;
+    private final ClaimCheckProperties properties;
+
+    @Override
+    public String put(byte[] content) {
+        String ref = UUID.randomUUID().toString();
+        Expiration ttl = Expiration.from(Duration.ofHours(properties.getTtlHours()));
+        redisTemplate.execute((RedisCallback<Boolean>) connection -> connection.stringCommands()
+                .set(key(ref), content, ttl, RedisStringCommands.SetOption.upsert()));
+        return ref;
+    }
+
+    /**
+     * Streamed in CHUNK_BYTES appends, so the file is never loaded whole. The first
+     * chunk is written with the TTL, so a crash mid-upload leaves a key that expires;
+     * any failure deletes the partial key.
+     */
+    @Override
+    public String put(Path file) {
+        String ref = UUID.randomUUID().toString();
+        byte[] key = key(ref);
+        Expiration ttl = Expiration.from(Duration.ofHours(properties.getTtlHours()));
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] chunk = new byte[CHUNK_BYTES];
+            boolean first = true;
+            int read;
+            while ((read = in.readNBytes(chunk, 0, CHUNK_BYTES)) > 0 || first) {
+                byte[] part = read == CHUNK_BYTES ? chunk : Arrays.copyOf(chunk, read);
+                if (first) {
+                    redisTemplate.execute((RedisCallback<Boolean>) connection -> connection.stringCommands()
+                            .set(key, part, ttl, RedisStringCommands.SetOption.upsert()));
+                    first = false;
+                } else {
+                    redisTemplate.execute((RedisCallback<Long>) connection ->
+                            connection.stringCommands().append(key, part));
+                }
+            }
+            return ref;
+        } catch (IOException e) {
+            deleteQuietly(ref, e);
+            throw new UncheckedIOException("Failed to read " + file, e);
+        } catch (RuntimeException e) {
+            deleteQuietly(ref, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public Optional<byte[]> get(String ref) {
+        return Optional.ofNullable(redisTemplate.execute(
+                (RedisCallback<byte[]>) connection -> connection.stringCommands().get(key(ref))));
+    }
+
+    @Override
+    public void delete(String ref) {
+        redisTemplate.delete(BLOB_PREFIX + ref);
+    }
+
+    private void deleteQuietly(String ref, Exception cause) {
+        try {
+            redisTemplate.delete(BLOB_PREFIX + ref);
+        } catch (RuntimeException e) {
+            cause.addSuppressed(e);
+        }
+    }
+
+    private static byte[] key(String ref) {
+        return (BLOB_PREFIX + ref).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -5,13 +5,9 @@ import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Component;
 import uz.greenwhite.gateway.config.KafkaProperties;
 
-import static uz.greenwhite.gateway.concurrency.ConcurrencyMonitorService.REQUEST_LISTENER_ID;
-import static uz.greenwhite.gateway.concurrency.ConcurrencyMonitorService.RESPONSE_LISTENER_ID;
-
 @Slf4j
 @Component
 public class ConcurrencyMetrics {
@@ -19,20 +15,26 @@ public class ConcurrencyMetrics {
     private final MeterRegistry meterRegistry;
     private final DynamicConcurrencyManager concurrencyManager;
     private final ConcurrencyMonitorService monitorService;
-    private final ThreadPoolTaskExecutor httpExecutor;
+    private final MonitoredExecutor httpExecutor;
     private final KafkaProperties kafkaProperties;
+    private final InFlightLimiter inFlightLimiter;
+    private final KeyOrderedExecutor keyOrderedExecutor;
 
     public ConcurrencyMetrics(
             MeterRegistry meterRegistry,
             DynamicConcurrencyManager concurrencyManager,
             ConcurrencyMonitorService monitorService,
-            @Qualifier("httpRequestExecutor") ThreadPoolTaskExecutor httpExecutor,
-            KafkaProperties kafkaProperties) {
+            @Qualifier("httpRequestExecutor") MonitoredExecutor httpExecutor,
+            KafkaProperties kafkaProperties,
+            InFlightLimiter inFlightLimiter,
+            KeyOrderedExecutor keyOrderedExecutor) {
         this.meterRegistry = meterRegistry;
         this.concurrencyManager = concurrencyManager;
         this.monitorService = monitorService;
         this.httpExecutor = httpExecutor;
         this.kafkaProperties = kafkaProperties;
+        this.inFlightLimiter = inFlightLimiter;
+        this.keyOrderedExecutor = keyOrderedExecutor;
     }
 
     @PostConstruct
@@ -41,45 +43,62 @@ public class ConcurrencyMetrics {
         // ==================== REQUEST CONSUMER METRICS ====================
 
         Gauge.builder("gateway.kafka.consumer.concurrency",
-                        () -> concurrencyManager.getCurrentConcurrency(REQUEST_LISTENER_ID))
+                        () -> concurrencyManager.getCurrentConcurrency(monitorService.getRequestListenerId()))
                 .description("Current Kafka consumer concurrency level")
-                .tag("listener", REQUEST_LISTENER_ID)
+                .tag("listener", monitorService.getRequestListenerId())
                 .register(meterRegistry);
 
         Gauge.builder("gateway.kafka.consumer.lag",
                         () -> monitorService.getLastKnownLag(kafkaProperties.getTopics().getRequestNew()))
                 .description("Current Kafka consumer lag")
                 .tag("topic", "request-new")
-                .tag("listener", REQUEST_LISTENER_ID)
+                .tag("listener", monitorService.getRequestListenerId())
                 .register(meterRegistry);
 
         // ==================== RESPONSE CONSUMER METRICS ====================
 
         Gauge.builder("gateway.kafka.consumer.concurrency",
-                        () -> concurrencyManager.getCurrentConcurrency(RESPONSE_LISTENER_ID))
+                        () -> concurrencyManager.getCurrentConcurrency(monitorService.getResponseListenerId()))
                 .description("Current Kafka consumer concurrency level")
-                .tag("listener", RESPONSE_LISTENER_ID)
+                .tag("listener", monitorService.getResponseListenerId())
                 .register(meterRegistry);
 
         Gauge.builder("gateway.kafka.consumer.lag",
                         () -> monitorService.getLastKnownLag(kafkaProperties.getTopics().getRequestResponse()))
                 .description("Current Kafka consumer lag")
                 .tag("topic", "request-response")
-                .tag("listener", RESPONSE_LISTENER_ID)
+                .tag("listener", monitorService.getResponseListenerId())
                 .register(meterRegistry);
 
         // ==================== HTTP THREAD POOL METRICS ====================
 
         Gauge.builder("gateway.http.pool.active", httpExecutor::getActiveCount)
                 .description("Active HTTP request threads")
+                .tag("type", httpExecutor.getType())
                 .register(meterRegistry);
 
         Gauge.builder("gateway.http.pool.size", httpExecutor::getPoolSize)
                 .description("Current HTTP thread pool size")
+                .tag("type", httpExecutor.getType())
                 .register(meterRegistry);
 
-        Gauge.builder("gateway.http.pool.queue", () -> httpExecutor.getThreadPoolExecutor().getQueue().size())
+        Gauge.builder("gateway.http.pool.queue", httpExecutor::getQueueSize)
                 .description("HTTP thread pool queue size")
+                .tag("type", httpExecutor.getType())
+                .register(meterRegistry);
+
+        // ==================== REACTIVE PIPELINE METRICS ====================
+
+        Gauge.builder("gateway.processing.inflight", inFlightLimiter::getInFlight)
+                .description("Requests in flight in REACTIVE processing mode")
+                .register(meterRegistry);
+
+        Gauge.builder("gateway.processing.inflight.max", inFlightLimiter::getMaxInFlight)
+                .description("In-flight permit limit for REACTIVE processing mode")
+                .register(meterRegistry);
+
+        Gauge.builder("gateway.processing.ordered.keys", keyOrderedExecutor::getActiveKeys)
+                .description("Ordering keys with running or waiting records in parallel consumer mode")
                 .register(meterRegistry);
 
         log.info("Concurrency metrics registered");
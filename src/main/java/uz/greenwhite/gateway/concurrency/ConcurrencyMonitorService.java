@@ -34,6 +34,8 @@ public class ConcurrencyMonitorService {
      */
     public static final String REQUEST_LISTENER_ID = "requestConsumer";
     public static final String RESPONSE_LISTENER_ID = "responseConsumer";
+    public static final String REQUEST_BATCH_LISTENER_ID = "requestBatchConsumer";
+    public static final String RESPONSE_BATCH_LISTENER_ID = "responseBatchConsumer";
 
     private final Map<String, Long> lagMap = new ConcurrentHashMap<>();
 
@@ -66,20 +68,35 @@ public class ConcurrencyMonitorService {
             long requestLag = calculateLagForTopic(requestTopic, allCommittedOffsets);
             lagMap.put(requestTopic, requestLag);
             log.debug("Consumer lag [{}]: {} messages", requestTopic, requestLag);
-            concurrencyManager.adjustConcurrency(REQUEST_LISTENER_ID, requestLag);
+            concurrencyManager.adjustConcurrency(getRequestListenerId(), requestLag);
 
             // 3. Response topic lag → scale ResponseConsumer
             String responseTopic = kafkaProperties.getTopics().getRequestResponse();
             long responseLag = calculateLagForTopic(responseTopic, allCommittedOffsets);
             lagMap.put(responseTopic, responseLag);
             log.debug("Consumer lag [{}]: {} messages", responseTopic, responseLag);
-            concurrencyManager.adjustConcurrency(RESPONSE_LISTENER_ID, responseLag);
+            concurrencyManager.adjustConcurrency(getResponseListenerId(), responseLag);
 
         } catch (Exception e) {
             log.error("Error monitoring consumer lag: {}", e.getMessage(), e);
         }
     }
 
+    /**
+     * Active listener for request-new (record or batch, depending on config).
+     * Only the active one is started, so only it may be scaled.
+     */
+    public String getRequestListenerId() {
+        return kafkaProperties.getBatch().isRequestEnabled() ? REQUEST_BATCH_LISTENER_ID : REQUEST_LISTENER_ID;
+    }
+
+    /**
+     * Active listener for request-response (record or batch, depending on config)
+     */
+    public String getResponseListenerId() {
+        return kafkaProperties.getBatch().isResponseEnabled() ? RESPONSE_BATCH_LISTENER_ID : RESPONSE_LISTENER_ID;
+    }
+
     /**
      * Get committed offsets for the consumer group.
      */
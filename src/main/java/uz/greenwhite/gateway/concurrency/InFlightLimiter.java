@@ -0,0 +1,85 @@
+package uz.greenwhite.gateway.concurrency;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import uz.greenwhite.gateway.config.ProcessingProperties;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Permit-based limit for requests processed in REACTIVE mode.
+ *
+ * In reactive mode no thread is held while waiting for the external API,
+ * so thread pool size no longer bounds concurrency — this limiter does.
+ * Consumer threads block in acquire() when all permits are taken,
+ * which slows down Kafka consumption (natural backpressure).
+ * Work that is not on a consumer thread (delayed retries) uses acquireReactive().
+ */
+@Slf4j
+@Component
+public class InFlightLimiter {
+
+    private final Semaphore permits;
+    private final int maxInFlight;
+
+    public InFlightLimiter(ProcessingProperties properties) {
+        this.maxInFlight = properties.getMaxInFlight();
+        this.permits = new Semaphore(maxInFlight);
+    }
+
+    /**
+     * Take one permit, waiting if the limit is reached.
+     */
+    public void acquire() throws InterruptedException {
+        if (!permits.tryAcquire()) {
+            log.warn("⚠ In-flight limit reached ({}), consumer thread waiting (backpressure active)",
+                    maxInFlight);
+            permits.acquire();
+        }
+    }
+
+    /**
+     * Take one permit without blocking the subscriber's thread: completes at once
+     * if a permit is free, otherwise waits for one on boundedElastic.
+     */
+    public Mono<Void> acquireReactive() {
+        if (permits.tryAcquire()) {
+            return Mono.empty();
+        }
+        log.warn("⚠ In-flight limit reached ({}), retry waiting for a permit", maxInFlight);
+        return Mono.<Void>fromRunnable(permits::acquireUninterruptibly)
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    /**
+     * Number of requests currently in flight
+     */
+    public int getInFlight() {
+        return maxInFlight - permits.availablePermits();
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    /**
+     * Wait until all in-flight requests finish (used on shutdown).
+     *
+     * @return true if everything finished within the timeout
+     */
+    public boolean awaitQuiescence(Duration timeout) throws InterruptedException {
+        if (permits.tryAcquire(maxInFlight, timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            permits.release(maxInFlight);
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,71 @@
+package uz.greenwhite.gateway.concurrency;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Runs tasks with the same key one after another, tasks with different keys in parallel.
+ *
+ * Used by the parallel consumer mode: many records from one partition are processed
+ * at the same time, but two records for the same request (or source row) never overlap.
+ * SaveRetryScheduler keeps its own instance to order E5 saves per compositeId.
+ * Each key keeps only the tail of its chain; the entry is removed when the chain drains.
+ */
+@Component
+public class KeyOrderedExecutor {
+
+    private final Map<String, CompletableFuture<?>> tails = new ConcurrentHashMap<>();
+
+    /**
+     * Start the task after all previously submitted tasks with the same key have finished.
+     * A failed predecessor does not block the chain.
+     *
+     * @param key  ordering key, null means "no ordering" — the task starts immediately
+     * @param task supplies the asynchronous work (started only when its turn comes)
+     * @return future completed with the task's result when this task finishes
+     */
+    public <T> CompletableFuture<T> submit(String key, Supplier<CompletableFuture<T>> task) {
+        if (key == null) {
+            return start(task);
+        }
+
+        CompletableFuture<T> next = new CompletableFuture<>();
+
+        CompletableFuture<?> previous = tails.put(key, next);
+        CompletableFuture<Void> ready = previous != null
+                ? previous.handle((r, e) -> null)
+                : CompletableFuture.completedFuture(null);
+
+        ready.thenCompose(v -> start(task))
+                .whenComplete((r, e) -> {
+                    // Drop the key only if nothing was chained after us
+                    tails.remove(key, next);
+                    if (e != null) {
+                        next.completeExceptionally(e);
+                    } else {
+                        next.complete(r);
+                    }
+                });
+
+        return next;
+    }
+
+    /**
+     * Number of keys that currently have running or waiting tasks
+     */
+    public int getActiveKeys() {
+        return tails.size();
+    }
+
+    private <T> CompletableFuture<T> start(Supplier<CompletableFuture<T>> task) {
+        try {
+            return task.get();
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
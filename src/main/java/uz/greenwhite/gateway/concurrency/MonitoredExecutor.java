@@ -0,0 +1,42 @@
+package uz.greenwhite.gateway.concurrency;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executor behind the "httpRequestExecutor" bean.
+ *
+ * Hides whether HTTP work runs on a platform thread pool or on virtual threads,
+ * while still exposing the numbers that metrics, health and shutdown need.
+ */
+public interface MonitoredExecutor extends Executor {
+
+    /**
+     * Tasks currently running
+     */
+    int getActiveCount();
+
+    /**
+     * Threads currently alive (pool threads, or virtual threads running + waiting)
+     */
+    int getPoolSize();
+
+    /**
+     * Tasks accepted but waiting for a thread / permit
+     */
+    int getQueueSize();
+
+    /**
+     * Executor type name for health details: "platform" or "virtual"
+     */
+    String getType();
+
+    /**
+     * Stop accepting new tasks, let in-flight tasks finish
+     */
+    void shutdown();
+
+    boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException;
+
+    void shutdownNow();
+}
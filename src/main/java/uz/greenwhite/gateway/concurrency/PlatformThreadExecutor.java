@@ -0,0 +1,55 @@
+package uz.greenwhite.gateway.concurrency;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded platform thread pool (default mode).
+ */
+@RequiredArgsConstructor
+public class PlatformThreadExecutor implements MonitoredExecutor {
+
+    private final ThreadPoolTaskExecutor delegate;
+
+    @Override
+    public void execute(Runnable task) {
+        delegate.execute(task);
+    }
+
+    @Override
+    public int getActiveCount() {
+        return delegate.getActiveCount();
+    }
+
+    @Override
+    public int getPoolSize() {
+        return delegate.getThreadPoolExecutor().getPoolSize();
+    }
+
+    @Override
+    public int getQueueSize() {
+        return delegate.getThreadPoolExecutor().getQueue().size();
+    }
+
+    @Override
+    public String getType() {
+        return "platform";
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.getThreadPoolExecutor().shutdown();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.getThreadPoolExecutor().awaitTermination(timeout, unit);
+    }
+
+    @Override
+    public void shutdownNow() {
+        delegate.getThreadPoolExecutor().shutdownNow();
+    }
+}
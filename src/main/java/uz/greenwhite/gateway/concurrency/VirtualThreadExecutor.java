@@ -0,0 +1,121 @@
+package uz.greenwhite.gateway.concurrency;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Virtual-thread-per-task executor with semaphore-based limits.
+ *
+ * Every task gets its own virtual thread, so a blocking HTTP/Redis/Oracle call
+ * does not hold an OS thread. Two semaphores keep it bounded:
+ *   - running:   at most maxConcurrency tasks execute at the same time
+ *   - admission: at most maxConcurrency + queueCapacity tasks are accepted;
+ *                when full, the submitting thread waits (backpressure) —
+ *                the task is never run on the caller thread.
+ */
+@Slf4j
+public class VirtualThreadExecutor implements MonitoredExecutor {
+
+    private final ExecutorService delegate;
+    private final Semaphore running;
+    private final Semaphore admission;
+    private final int maxConcurrency;
+    private final int queueCapacity;
+
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    public VirtualThreadExecutor(String threadNamePrefix, int maxConcurrency, int queueCapacity) {
+        this.delegate = Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name(threadNamePrefix, 0).factory());
+        this.running = new Semaphore(maxConcurrency);
+        this.admission = new Semaphore(maxConcurrency + queueCapacity);
+        this.maxConcurrency = maxConcurrency;
+        this.queueCapacity = queueCapacity;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (!admission.tryAcquire()) {
+            log.warn("⚠ Virtual HTTP executor saturated! active={}, waiting={} (limit={}, queue={}). " +
+                    "Caller thread waits (backpressure active)", active.get(), waiting.get(),
+                    maxConcurrency, queueCapacity);
+            try {
+                admission.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException("Interrupted while waiting for executor capacity", e);
+            }
+        }
+
+        try {
+            delegate.execute(() -> runWithPermit(task));
+        } catch (RejectedExecutionException e) {
+            admission.release();
+            throw e;
+        }
+    }
+
+    private void runWithPermit(Runnable task) {
+        waiting.incrementAndGet();
+        try {
+            running.acquire();
+        } catch (InterruptedException e) {
+            waiting.decrementAndGet();
+            admission.release();
+            Thread.currentThread().interrupt();
+            return;
+        }
+        waiting.decrementAndGet();
+        active.incrementAndGet();
+
+        try {
+            task.run();
+        } finally {
+            active.decrementAndGet();
+            running.release();
+            admission.release();
+        }
+    }
+
+    @Override
+    public int getActiveCount() {
+        return active.get();
+    }
+
+    @Override
+    public int getPoolSize() {
+        return active.get() + waiting.get();
+    }
+
+    @Override
+    public int getQueueSize() {
+        return waiting.get();
+    }
+
+    @Override
+    public String getType() {
+        return "virtual";
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+
+    @Override
+    public void shutdownNow() {
+        delegate.shutdownNow();
+    }
+}
@@ -0,0 +1,60 @@
+package uz.greenwhite.gateway.config;
+
+import jakarta.annotation.PostConstruct;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Slf4j
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "gateway.claim-check")
+public class ClaimCheckProperties {
+
+    /**
+     * Put request/response bodies above threshold-bytes into the blob store
+     * and send only a reference through Kafka
+     */
+    private boolean enabled = false;
+
+    /**
+     * Bodies larger than this (UTF-8 bytes) are offloaded
+     */
+    private int thresholdBytes = 256 * 1024;
+
+    private Store store = Store.REDIS;
+
+    /**
+     * Directory of the FILESYSTEM store (shared volume with several instances)
+     */
+    private String directory = "./blobs";
+
+    /**
+     * Blobs are removed after this long even if never deleted explicitly.
+     * Keep it at least as long as a request can stay in the pipeline.
+     */
+    private long ttlHours = 72;
+
+    @PostConstruct
+    public void validate() {
+        if (!enabled) {
+            return;
+        }
+        if (thresholdBytes < 1) {
+            throw new IllegalArgumentException("gateway.claim-check.threshold-bytes must be >= 1");
+        }
+        if (ttlHours < 1) {
+            throw new IllegalArgumentException("gateway.claim-check.ttl-hours must be >= 1");
+        }
+
+        log.info("Claim-check config: store={}, threshold={} bytes, ttl={}h", store, thresholdBytes, ttlHours);
+    }
+
+    public enum Store {
+        REDIS,
+        FILESYSTEM
+    }
+}
@@ -54,6 +54,25 @@ public class ConcurrencyProperties {
      */
     private int topicPartitions = 10;
 
+    /**
+     * Thread type for httpRequestExecutor, Kafka listener threads
+     * and blocking Oracle/OAuth2 calls.
+     * PLATFORM — bounded ThreadPoolTaskExecutor (default)
+     * VIRTUAL  — one virtual thread per task, limited by semaphores
+     */
+    private ExecutorType executorType = ExecutorType.PLATFORM;
+
+    /**
+     * VIRTUAL mode: maximum tasks running at the same time
+     */
+    private int virtualMaxConcurrency = 1000;
+
+    /**
+     * VIRTUAL mode: tasks allowed to wait for a permit before the
+     * submitting (Kafka consumer) thread is blocked
+     */
+    private int virtualQueueCapacity = 1000;
+
     @PostConstruct
     public void validate() {
         if (minConcurrency < 1) {
@@ -71,11 +90,21 @@ public class ConcurrencyProperties {
         if (scaleUpThreshold <= scaleDownThreshold) {
             throw new IllegalArgumentException("scaleUpThreshold must be > scaleDownThreshold");
         }
+        if (virtualMaxConcurrency < 1) {
+            throw new IllegalArgumentException("virtualMaxConcurrency must be >= 1");
+        }
+        if (virtualQueueCapacity < 0) {
+            throw new IllegalArgumentException("virtualQueueCapacity must be >= 0");
+        }
 
         log.info("Concurrency config: min={}, max={}, partitions={}, " +
-                        "scaleUp>{}, scaleDown<{}, step={}, cooldown={}ms",
+                        "scaleUp>{}, scaleDown<{}, step={}, cooldown={}ms, executor={}",
                 minConcurrency, maxConcurrency, topicPartitions,
-                scaleUpThreshold, scaleDownThreshold, scaleStep, scaleCooldownMs);
+                scaleUpThreshold, scaleDownThreshold, scaleStep, scaleCooldownMs, executorType);
+    }
+
+    public boolean isVirtualThreads() {
+        return executorType == ExecutorType.VIRTUAL;
     }
 
     /**
@@ -98,4 +127,9 @@ public class ConcurrencyProperties {
         // Between scaleDown and scaleUp thresholds — keep current
         return -1; // Signal: no change needed
     }
-}
\ No newline at end of file
+
+    public enum ExecutorType {
+        PLATFORM,
+        VIRTUAL
+    }
+}
@@ -11,6 +11,13 @@ import org.springframework.stereotype.Component;
 @ConfigurationProperties(prefix = "gateway.source")
 public class GatewayProperties {
 
+    /**
+     * How the gateway talks to the data source:
+     * HTTP — BiruniClient over the pull/save URIs (default),
+     * JDBC — JdbcSourceClient directly against the database (gateway.source.jdbc.*)
+     */
+    private Type type = Type.HTTP;
+
     /**
      * Data source base URL
      * Example: http://localhost:8081/b6/b
@@ -48,4 +55,92 @@ public class GatewayProperties {
      * URI for fetching OAuth2 provider credentials from data source
      */
     private String oauth2ProviderUri;
-}
\ No newline at end of file
+
+    /**
+     * The pull URI honours shard / shard_count: it returns (and claims) only rows with
+     * company_id % shard_count = shard. Only then are the parameters sent, and only then
+     * may gateway.polling.coordination.mode be SHARDED with type=HTTP.
+     */
+    private boolean shardingSupported = false;
+
+    /**
+     * E5 batching: responses are collected and saved with one request
+     * yml: gateway.source.save-batch.*
+     */
+    private SaveBatch saveBatch = new SaveBatch();
+
+    /**
+     * Direct database access for type=JDBC
+     * yml: gateway.source.jdbc.*
+     */
+    private Jdbc jdbc = new Jdbc();
+
+    public enum Type {
+        HTTP,
+        JDBC
+    }
+
+    @Getter
+    @Setter
+    public static class SaveBatch {
+
+        /**
+         * Collect responses into batches before saving
+         */
+        private boolean enabled = false;
+
+        /**
+         * Batch is saved as soon as it has this many responses
+         */
+        private int maxSize = 50;
+
+        /**
+         * ...or when the oldest response has waited this long
+         */
+        private long maxWaitMs = 50;
+    }
+
+    @Getter
+    @Setter
+    public static class Jdbc {
+
+        /**
+         * Example: jdbc:oracle:thin:@//db-host:1521/ORCL
+         */
+        private String url;
+
+        private String username;
+
+        private String password;
+
+        /**
+         * Table with the requests; status 'N' = new, 'P' = claimed by the gateway,
+         * 'C' = completed, 'E' = completed with error
+         */
+        private String requestTable = "gateway_requests";
+
+        /**
+         * A 'P' row not completed this long after claimed_at is claimed again
+         * (instance stopped before publishing it, or it went to the DLQ).
+         * Keep it above the longest retry horizon of a request.
+         */
+        private long claimLeaseMs = 600000;
+
+        /**
+         * Rows transferred per database round trip on pull
+         */
+        private int fetchSize = 500;
+
+        /**
+         * Connection pool size
+         */
+        private int maxPoolSize = 10;
+
+        private int minIdle = 2;
+
+        /**
+         * Max wait for a pooled connection in milliseconds
+         */
+        private long connectionTimeoutMs = 10000;
+    }
+}
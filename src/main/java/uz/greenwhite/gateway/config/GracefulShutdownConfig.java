@@ -4,9 +4,11 @@ import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
-import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Component;
+import uz.greenwhite.gateway.concurrency.InFlightLimiter;
+import uz.greenwhite.gateway.concurrency.MonitoredExecutor;
 
+import java.time.Duration;
 import java.util.concurrent.TimeUnit;
 
 @Slf4j
@@ -14,13 +16,16 @@ import java.util.concurrent.TimeUnit;
 public class GracefulShutdownConfig {
 
     private final KafkaListenerEndpointRegistry kafkaRegistry;
-    private final ThreadPoolTaskExecutor httpExecutor;
+    private final MonitoredExecutor httpExecutor;
+    private final InFlightLimiter inFlightLimiter;
 
     public GracefulShutdownConfig(
             KafkaListenerEndpointRegistry kafkaRegistry,
-            @Qualifier("httpRequestExecutor") ThreadPoolTaskExecutor httpExecutor) {
+            @Qualifier("httpRequestExecutor") MonitoredExecutor httpExecutor,
+            InFlightLimiter inFlightLimiter) {
         this.kafkaRegistry = kafkaRegistry;
         this.httpExecutor = httpExecutor;
+        this.inFlightLimiter = inFlightLimiter;
     }
 
     @PreDestroy
@@ -33,6 +38,9 @@ public class GracefulShutdownConfig {
         // 2. HTTP thread poolni to'xtatish — in-flight requestlar tugashini kutish
         shutdownHttpExecutor();
 
+        // 3. Reactive pipelinelar tugashini kutish (REACTIVE mode)
+        awaitReactiveInFlight();
+
         log.info("✅ Graceful shutdown completed");
     }
 
@@ -50,24 +58,45 @@ public class GracefulShutdownConfig {
     }
 
     private void shutdownHttpExecutor() {
-        log.info("Shutting down HTTP executor. Active tasks: {}, Queue size: {}",
+        log.info("Shutting down HTTP executor ({}). Active tasks: {}, Queue size: {}",
+                httpExecutor.getType(),
                 httpExecutor.getActiveCount(),
-                httpExecutor.getThreadPoolExecutor().getQueue().size());
+                httpExecutor.getQueueSize());
 
-        httpExecutor.getThreadPoolExecutor().shutdown();
+        httpExecutor.shutdown();
 
         try {
-            if (!httpExecutor.getThreadPoolExecutor().awaitTermination(25, TimeUnit.SECONDS)) {
+            if (!httpExecutor.awaitTermination(25, TimeUnit.SECONDS)) {
                 log.warn("⚠ HTTP executor did not terminate in 25s, forcing shutdown. " +
                         "Remaining active: {}", httpExecutor.getActiveCount());
-                httpExecutor.getThreadPoolExecutor().shutdownNow();
+                httpExecutor.shutdownNow();
             } else {
                 log.info("HTTP executor terminated gracefully");
             }
         } catch (InterruptedException e) {
             log.warn("Shutdown interrupted, forcing...");
-            httpExecutor.getThreadPoolExecutor().shutdownNow();
+            httpExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void awaitReactiveInFlight() {
+        int inFlight = inFlightLimiter.getInFlight();
+        if (inFlight == 0) {
+            return;
+        }
+
+        log.info("Waiting for {} reactive in-flight requests...", inFlight);
+        try {
+            if (inFlightLimiter.awaitQuiescence(Duration.ofSeconds(25))) {
+                log.info("Reactive in-flight requests completed");
+            } else {
+                log.warn("⚠ Reactive requests did not finish in 25s. Remaining: {}",
+                        inFlightLimiter.getInFlight());
+            }
+        } catch (InterruptedException e) {
+            log.warn("Shutdown interrupted while waiting for reactive requests");
             Thread.currentThread().interrupt();
         }
     }
-}
\ No newline at end of file
+}
@@ -4,25 +4,61 @@ import io.netty.channel.ChannelOption;
 import io.netty.handler.timeout.ReadTimeoutHandler;
 import io.netty.handler.timeout.WriteTimeoutHandler;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.ExchangeStrategies;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
 import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
+import java.net.InetSocketAddress;
 import java.time.Duration;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
+@Slf4j
 @Configuration
 @RequiredArgsConstructor
 public class HttpClientConfig {
 
+    private static final String POOL_NAME = "gateway-http";
+
     private final HttpProperties httpProperties;
 
+    /**
+     * Connection pool of the external API client: one pool per remote host:port with
+     * gateway.http.pool limits and per-host overrides. Pool metrics
+     * (reactor.netty.connection.provider.* tagged by remote address, including the
+     * pending acquire time) are recorded, see GatewayMetrics.
+     */
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider httpConnectionProvider() {
+        HttpProperties.Pool pool = httpProperties.getPool();
+
+        ConnectionProvider.Builder builder = applyPool(ConnectionProvider.builder(POOL_NAME), pool);
+
+        for (Map.Entry<String, HttpProperties.HostPool> entry : pool.getHosts().entrySet()) {
+            HttpProperties.HostPool hostPool = entry.getValue();
+            for (InetSocketAddress address : addresses(entry.getKey())) {
+                // A host spec starts from reactor-netty defaults, not from the builder: apply all settings
+                builder.forRemoteHost(address, spec -> applyPool(spec, pool)
+                        .maxConnections(hostPool.getMaxConnections())
+                        .pendingAcquireMaxCount(hostPool.getPendingAcquireMaxCount() != null
+                                ? hostPool.getPendingAcquireMaxCount()
+                                : pool.getPendingAcquireMaxCount()));
+            }
+            log.info("HTTP connection pool for {}: max={}", entry.getKey(), hostPool.getMaxConnections());
+        }
+        return builder.build();
+    }
+
     @Bean
-    public WebClient webClient() {
-        HttpClient httpClient = HttpClient.create()
+    public WebClient webClient(ConnectionProvider httpConnectionProvider) {
+        HttpClient httpClient = HttpClient.create(httpConnectionProvider)
                 .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, httpProperties.getConnectTimeoutMs())
                 .responseTimeout(Duration.ofMillis(httpProperties.getReadTimeoutMs()))
                 .doOnConnected(conn -> conn
@@ -30,6 +66,11 @@ public class HttpClientConfig {
                         .addHandlerLast(new WriteTimeoutHandler(httpProperties.getWriteTimeoutMs(), TimeUnit.MILLISECONDS))
                 );
 
+        if (httpProperties.getPool().isHttp2()) {
+            // H2 is negotiated via ALPN on TLS; plain http:// hosts stay on HTTP/1.1
+            httpClient = httpClient.protocol(HttpProtocol.H2, HttpProtocol.HTTP11);
+        }
+
         ExchangeStrategies strategies = ExchangeStrategies.builder()
                 .codecs(configurer -> configurer
                         .defaultCodecs()
@@ -41,4 +82,27 @@ public class HttpClientConfig {
                 .exchangeStrategies(strategies)
                 .build();
     }
-}
\ No newline at end of file
+
+    private static <S extends ConnectionProvider.ConnectionPoolSpec<S>> S applyPool(S spec, HttpProperties.Pool pool) {
+        return spec.maxConnections(pool.getMaxConnections())
+                .pendingAcquireMaxCount(pool.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(Duration.ofMillis(pool.getPendingAcquireTimeoutMs()))
+                .maxIdleTime(Duration.ofMillis(pool.getMaxIdleTimeMs()))
+                .maxLifeTime(Duration.ofMillis(pool.getMaxLifeTimeMs()))
+                .evictInBackground(Duration.ofMillis(pool.getEvictInBackgroundMs()))
+                .metrics(true);
+    }
+
+    /**
+     * Pool keys are unresolved host:port addresses; "host" alone covers 80 and 443
+     */
+    private static List<InetSocketAddress> addresses(String key) {
+        int colon = key.lastIndexOf(':');
+        if (colon > 0) {
+            return List.of(InetSocketAddress.createUnresolved(
+                    key.substring(0, colon), Integer.parseInt(key.substring(colon + 1))));
+        }
+        return List.of(InetSocketAddress.createUnresolved(key, 443),
+                InetSocketAddress.createUnresolved(key, 80));
+    }
+}
@@ -20,6 +20,23 @@ public class HttpProperties {
     private int readTimeoutMs;
     private int writeTimeoutMs;
 
+    /**
+     * Opaque body mode: response bodies are read as raw bytes and travel through
+     * Kafka as bytes (raw in the SMILE wire format), decoded only once at the sink.
+     * Binary bodies (PDF, images) survive intact and reach the sink as base64.
+     */
+    private boolean opaqueBody = false;
+
+    private Profiles profiles = new Profiles();
+
+    private Limiter limiter = new Limiter();
+
+    private RateLimit rateLimit = new RateLimit();
+
+    private Pool pool = new Pool();
+
+    private Streaming streaming = new Streaming();
+
     @PostConstruct
     public void validate() {
         if (connectTimeoutMs <= 0) {
@@ -32,8 +49,72 @@ public class HttpProperties {
             throw new IllegalArgumentException("gateway.http.write-timeout-ms must be > 0");
         }
 
-        log.info("HTTP client config: connect={}ms, read={}ms, write={}ms",
-                connectTimeoutMs, readTimeoutMs, writeTimeoutMs);
+        if (profiles.getMaxSize() < 1) {
+            throw new IllegalArgumentException("gateway.http.profiles.max-size must be >= 1");
+        }
+        if (profiles.getIdleEvictMs() <= 0) {
+            throw new IllegalArgumentException("gateway.http.profiles.idle-evict-ms must be > 0");
+        }
+
+        if (limiter.getMinLimit() < 1 || limiter.getMaxLimit() < limiter.getMinLimit()) {
+            throw new IllegalArgumentException("gateway.http.limiter requires 1 <= min-limit <= max-limit");
+        }
+        if (limiter.getInitialLimit() < limiter.getMinLimit() || limiter.getInitialLimit() > limiter.getMaxLimit()) {
+            throw new IllegalArgumentException("gateway.http.limiter.initial-limit must be within min-limit..max-limit");
+        }
+        if (limiter.getBackoffRatio() < 0.5 || limiter.getBackoffRatio() >= 1.0) {
+            throw new IllegalArgumentException("gateway.http.limiter.backoff-ratio must be in [0.5, 1.0)");
+        }
+        if (limiter.isEnabled()) {
+            log.info("HTTP per-host concurrency limiter: {} [initial={}, min={}, max={}, backoff={}]",
+                    limiter.getAlgorithm(), limiter.getInitialLimit(), limiter.getMinLimit(),
+                    limiter.getMaxLimit(), limiter.getBackoffRatio());
+        }
+
+        for (Map.Entry<String, Rate> entry : rateLimit.getHosts().entrySet()) {
+            if (entry.getValue().getRate() <= 0 || entry.getValue().getBurst() < 1) {
+                throw new IllegalArgumentException("gateway.http.rate-limit.hosts." + entry.getKey() +
+                        " requires rate > 0 and burst >= 1");
+            }
+        }
+        if (rateLimit.getLocalBatch() < 1) {
+            throw new IllegalArgumentException("gateway.http.rate-limit.local-batch must be >= 1");
+        }
+        if (rateLimit.getMaxWaitMs() < 0) {
+            throw new IllegalArgumentException("gateway.http.rate-limit.max-wait-ms must be >= 0");
+        }
+        if (rateLimit.isEnabled()) {
+            log.info("HTTP rate limit: scope={}, hosts={}, localBatch={}, maxWait={}ms, learn={}",
+                    rateLimit.getScope(), rateLimit.getHosts().keySet(), rateLimit.getLocalBatch(),
+                    rateLimit.getMaxWaitMs(), rateLimit.isLearn());
+        }
+
+        if (pool.getMaxConnections() < 1 || pool.getPendingAcquireMaxCount() < 1) {
+            throw new IllegalArgumentException("gateway.http.pool requires max-connections >= 1 and pending-acquire-max-count >= 1");
+        }
+        for (Map.Entry<String, HostPool> entry : pool.getHosts().entrySet()) {
+            if (entry.getValue().getMaxConnections() < 1) {
+                throw new IllegalArgumentException("gateway.http.pool.hosts." + entry.getKey() +
+                        ".max-connections must be >= 1");
+            }
+        }
+        log.info("HTTP connection pool: max={} per host, pending={}, acquireTimeout={}ms, maxIdle={}ms, " +
+                        "maxLife={}ms, http2={}, hosts={}",
+                pool.getMaxConnections(), pool.getPendingAcquireMaxCount(), pool.getPendingAcquireTimeoutMs(),
+                pool.getMaxIdleTimeMs(), pool.getMaxLifeTimeMs(), pool.isHttp2(), pool.getHosts().keySet());
+
+        if (streaming.getMemoryThresholdBytes() < 0 || streaming.getMaxBytes() <= streaming.getMemoryThresholdBytes()) {
+            throw new IllegalArgumentException("gateway.http.streaming requires 0 <= memory-threshold-bytes < max-bytes");
+        }
+        if (streaming.isEnabled()) {
+            log.info("HTTP response streaming: memory up to {}KB, spill to {}, max {}MB",
+                    streaming.getMemoryThresholdBytes() / 1024, streaming.getDirectory(),
+                    streaming.getMaxBytes() / (1024 * 1024));
+        }
+
+        log.info("HTTP client config: connect={}ms, read={}ms, write={}ms, opaqueBody={}, profiles=[max={}, idle={}ms]",
+                connectTimeoutMs, readTimeoutMs, writeTimeoutMs, opaqueBody,
+                profiles.getMaxSize(), profiles.getIdleEvictMs());
     }
 
     /**
@@ -50,15 +131,179 @@ public class HttpProperties {
     private Map<String, Integer> endpointTimeouts = new HashMap<>();
 
     /**
-     * Get timeout for specific URL. Falls back to global readTimeoutMs.
+     * Get timeout for an already parsed host. Falls back to global readTimeoutMs.
      */
-    public int getTimeoutForUrl(String url) {
-        try {
-            String host = java.net.URI.create(url).getHost();
-            if (host != null && endpointTimeouts.containsKey(host)) {
-                return endpointTimeouts.get(host);
-            }
-        } catch (Exception ignored) {}
+    public int getTimeoutForHost(String host) {
+        if (host != null && endpointTimeouts.containsKey(host)) {
+            return endpointTimeouts.get(host);
+        }
         return readTimeoutMs;
     }
-}
\ No newline at end of file
+
+    /**
+     * Per-host endpoint profile cache (EndpointProfileRegistry)
+     */
+    @Getter
+    @Setter
+    public static class Profiles {
+        /**
+         * Max cached profiles; above it the least recently used one is dropped
+         */
+        private int maxSize = 1000;
+
+        /**
+         * A profile not used for this long is dropped (its host's circuit breaker too)
+         */
+        private long idleEvictMs = 600_000;
+    }
+
+    /**
+     * Adaptive per-host concurrency limit (AdaptiveConcurrencyLimit)
+     */
+    @Getter
+    @Setter
+    public static class Limiter {
+        private boolean enabled = false;
+        private Algorithm algorithm = Algorithm.AIMD;
+        private int initialLimit = 20;
+        private int minLimit = 1;
+        private int maxLimit = 200;
+
+        /**
+         * Limit multiplier on a dropped request (timeout, connection error, 429, 5xx)
+         */
+        private double backoffRatio = 0.9;
+
+        /**
+         * Retry-After given to a request rejected by the limit, so it is retried
+         * after this delay instead of at the next backoff step
+         */
+        private long rejectRetryAfterMs = 1000;
+    }
+
+    public enum Algorithm {
+        /** +1 while the limit is in use, x backoff-ratio on a drop */
+        AIMD,
+        /** follow the ratio of long-term to current latency (Netflix gradient2) */
+        GRADIENT
+    }
+
+    /**
+     * Token-bucket rate limit per host, shared by all instances through Redis (HostRateLimiter)
+     */
+    @Getter
+    @Setter
+    public static class RateLimit {
+        private boolean enabled = false;
+
+        /**
+         * Bucket per host, or per host and company / OAuth2 provider (partner quotas per tenant)
+         */
+        private RateLimitScope scope = RateLimitScope.HOST;
+
+        /**
+         * Configured quotas by host. A host not listed is only limited by what is learned
+         * from its 429 / Retry-After / X-RateLimit-* answers.
+         *
+         * Example:
+         *   gateway.http.rate-limit.hosts:
+         *     api.partner.com:
+         *       rate: 10
+         *       burst: 20
+         */
+        private Map<String, Rate> hosts = new HashMap<>();
+
+        /**
+         * Tokens taken from Redis at once and spent locally within a second (local fast path)
+         */
+        private int localBatch = 5;
+
+        /**
+         * A request waits this long at most for a token; beyond it the request is rejected
+         * with 429 and retried after the wait
+         */
+        private long maxWaitMs = 2000;
+
+        /**
+         * Pause a bucket on 429 + Retry-After and on X-RateLimit-Remaining: 0 + X-RateLimit-Reset
+         */
+        private boolean learn = true;
+    }
+
+    @Getter
+    @Setter
+    public static class Rate {
+        /** Requests per second */
+        private double rate;
+        private int burst = 1;
+    }
+
+    public enum RateLimitScope {
+        HOST,
+        HOST_COMPANY,
+        HOST_PROVIDER
+    }
+
+    /**
+     * reactor-netty connection pool (HttpClientConfig). Every remote host:port gets
+     * its own pool with these limits; hosts can override them.
+     */
+    @Getter
+    @Setter
+    public static class Pool {
+        private int maxConnections = 100;
+
+        /**
+         * Requests waiting for a connection; beyond it acquisition fails at once
+         */
+        private int pendingAcquireMaxCount = 1000;
+        private long pendingAcquireTimeoutMs = 45_000;
+        private long maxIdleTimeMs = 30_000;
+        private long maxLifeTimeMs = 300_000;
+        private long evictInBackgroundMs = 30_000;
+
+        /**
+         * Offer HTTP/2 via ALPN on TLS hosts, HTTP/1.1 stays the fallback (and is used for http://)
+         */
+        private boolean http2 = false;
+
+        /**
+         * Per-host overrides, key: "host" (ports 80 and 443) or "host:port"
+         *
+         * Example:
+         *   gateway.http.pool.hosts:
+         *     api.partner.com:
+         *       max-connections: 20
+         */
+        private Map<String, HostPool> hosts = new HashMap<>();
+    }
+
+    @Getter
+    @Setter
+    public static class HostPool {
+        private int maxConnections;
+        private Integer pendingAcquireMaxCount;
+    }
+
+    /**
+     * Streaming response mode (ResponseBodyCollector): the body is read chunk by chunk,
+     * kept in memory up to memory-threshold-bytes and spilled to a temp file beyond it.
+     * A spilled body goes to the blob store and only its reference travels onward.
+     */
+    @Getter
+    @Setter
+    public static class Streaming {
+        private boolean enabled = false;
+        private int memoryThresholdBytes = 1024 * 1024;
+
+        /**
+         * Hard limit, checked while reading: a larger response fails without being read to the end
+         */
+        private long maxBytes = 64L * 1024 * 1024;
+
+        /**
+         * Temp files of spilled bodies (same filesystem as the FILESYSTEM blob store saves a copy)
+         */
+        private String directory = "./http-bodies";
+    }
+}
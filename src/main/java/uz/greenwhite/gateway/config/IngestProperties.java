@@ -0,0 +1,54 @@
+package uz.greenwhite.gateway.config;
+
+import jakarta.annotation.PostConstruct;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Slf4j
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "gateway.ingest")
+public class IngestProperties {
+
+    /**
+     * Accept request batches pushed by the source (POST /api/ingest/requests)
+     */
+    private boolean enabled = false;
+
+    /**
+     * Shared secret the source sends as "Authorization: Bearer {token}"
+     */
+    private String token;
+
+    /**
+     * Maximum requests per push
+     */
+    private int maxBatchSize = 1000;
+
+    /**
+     * How long a push waits for Kafka acks before answering 504
+     */
+    private long timeoutMs = 30000;
+
+    @PostConstruct
+    public void validate() {
+        if (!enabled) {
+            return;
+        }
+        if (token == null || token.isBlank()) {
+            throw new IllegalArgumentException("gateway.ingest.token must be configured when ingest is enabled");
+        }
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("gateway.ingest.max-batch-size must be >= 1");
+        }
+        if (timeoutMs < 1) {
+            throw new IllegalArgumentException("gateway.ingest.timeout-ms must be >= 1");
+        }
+
+        log.info("Ingest config: enabled={}, maxBatchSize={}, timeout={}ms", enabled, maxBatchSize, timeoutMs);
+    }
+}
@@ -0,0 +1,45 @@
+package uz.greenwhite.gateway.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Pooled DataSource for gateway.source.type=JDBC.
+ *
+ * DataSourceAutoConfiguration stays excluded, so the HTTP mode needs no database
+ * settings; the pool is only created when the JDBC source is selected.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "gateway.source.type", havingValue = "JDBC")
+public class JdbcSourceConfig {
+
+    @Bean(destroyMethod = "close")
+    public DataSource sourceDataSource(GatewayProperties properties) {
+        GatewayProperties.Jdbc jdbc = properties.getJdbc();
+        if (jdbc.getUrl() == null || jdbc.getUrl().isBlank()) {
+            throw new IllegalArgumentException("gateway.source.jdbc.url must be configured for type JDBC");
+        }
+        if (!jdbc.getRequestTable().matches("[A-Za-z0-9_.$#]+")) {
+            throw new IllegalArgumentException("gateway.source.jdbc.request-table is not a valid table name");
+        }
+
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("source-jdbc");
+        dataSource.setJdbcUrl(jdbc.getUrl());
+        dataSource.setUsername(jdbc.getUsername());
+        dataSource.setPassword(jdbc.getPassword());
+        dataSource.setMaximumPoolSize(jdbc.getMaxPoolSize());
+        dataSource.setMinimumIdle(jdbc.getMinIdle());
+        dataSource.setConnectionTimeout(jdbc.getConnectionTimeoutMs());
+
+        log.info("Source JDBC config: url={}, table={}, pool={}..{}, fetchSize={}",
+                jdbc.getUrl(), jdbc.getRequestTable(), jdbc.getMinIdle(), jdbc.getMaxPoolSize(), jdbc.getFetchSize());
+        return dataSource;
+    }
+}
@@ -10,8 +10,10 @@ import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.KafkaAdmin;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
 import org.springframework.kafka.listener.CommonErrorHandler;
@@ -20,9 +22,11 @@ import org.springframework.kafka.listener.DefaultErrorHandler;
 import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
 import org.springframework.util.backoff.FixedBackOff;
+import uz.greenwhite.gateway.kafka.serializer.GatewayKafkaDeserializer;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Properties;
 
 @Slf4j
 @Configuration
@@ -31,6 +35,8 @@ public class KafkaConfig {
 
     private final KafkaProperties kafkaProperties;
     private final ConcurrencyProperties concurrencyProperties;
+    private final ProcessingProperties processingProperties;
+    private final RetryProperties retryProperties;
 
     // ==================== ADMIN CLIENT ====================
 
@@ -67,6 +73,30 @@ public class KafkaConfig {
                 .build();
     }
 
+    /**
+     * One topic per retry tier (gateway.retry.tiers), so E4 retries never
+     * compete with fresh requests on request-new
+     */
+    @Bean
+    public KafkaAdmin.NewTopics requestRetryTopics() {
+        return new KafkaAdmin.NewTopics(retryProperties.getTierDelays().stream()
+                .map(delay -> TopicBuilder.name(kafkaProperties.getTopics().getRequestRetry(delay))
+                        .partitions(concurrencyProperties.getTopicPartitions())
+                        .replicas(1)
+                        .build())
+                .toArray(NewTopic[]::new));
+    }
+
+    /**
+     * Retry tier topic names, for the requestRetryConsumer listener
+     */
+    @Bean
+    public String[] requestRetryTopicNames() {
+        return retryProperties.getTierDelays().stream()
+                .map(kafkaProperties.getTopics()::getRequestRetry)
+                .toArray(String[]::new);
+    }
+
     // ==================== ERROR HANDLER ====================
 
     /**
@@ -115,9 +145,10 @@ public class KafkaConfig {
         props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class);
         props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class);
 
-        // Delegate deserializers (actual ones that do the work)
+        // Delegate deserializers (actual ones that do the work).
+        // Values may be JSON or SMILE frames, detected per record (gateway.kafka.wire-format)
         props.put(ErrorHandlingDeserializer.KEY_DESERIALIZER_CLASS, StringDeserializer.class);
-        props.put(ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS, JsonDeserializer.class);
+        props.put(ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS, GatewayKafkaDeserializer.class);
 
         // JsonDeserializer settings
         props.put(JsonDeserializer.TRUSTED_PACKAGES, "uz.greenwhite.gateway.*");
@@ -140,10 +171,23 @@ public class KafkaConfig {
         factory.setConcurrency(concurrencyProperties.getMinConcurrency());
         factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
         factory.getContainerProperties().setIdleBetweenPolls(100);
+        // Records are acked from worker threads in completion order.
+        // asyncAcks makes the container commit only up to the lowest
+        // contiguous acked offset, so in-flight records are never skipped.
+        factory.getContainerProperties().setAsyncAcks(true);
         factory.setCommonErrorHandler(kafkaErrorHandler());
+        applyListenerExecutor(factory, "kafka-req-");
 
-        log.info("Request consumer factory created with initial concurrency: {}",
-                concurrencyProperties.getMinConcurrency());
+        Integer maxPollRecords = requestMaxPollRecords();
+        if (maxPollRecords != null) {
+            Properties consumerProps = new Properties();
+            consumerProps.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
+            factory.getContainerProperties().setKafkaConsumerProperties(consumerProps);
+        }
+
+        log.info("Request consumer factory created with initial concurrency: {}, parallel: {}, maxPollRecords: {}",
+                concurrencyProperties.getMinConcurrency(), processingProperties.getParallel().isEnabled(),
+                maxPollRecords != null ? maxPollRecords : 50);
 
         return factory;
     }
@@ -156,7 +200,10 @@ public class KafkaConfig {
         factory.setConcurrency(concurrencyProperties.getMinConcurrency());
         factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
         factory.getContainerProperties().setIdleBetweenPolls(100);
+        // With save batching records are acked from batch flush threads, out of order
+        factory.getContainerProperties().setAsyncAcks(true);
         factory.setCommonErrorHandler(kafkaErrorHandler());
+        applyListenerExecutor(factory, "kafka-resp-");
 
         log.info("Response consumer factory created with initial concurrency: {}",
                 concurrencyProperties.getMinConcurrency());
@@ -164,6 +211,59 @@ public class KafkaConfig {
         return factory;
     }
 
+    /**
+     * Batch variant of requestConsumerFactory (gateway.kafka.batch.request-enabled).
+     * The listener receives a whole poll and acknowledges it as one unit.
+     */
+    @Bean("requestBatchConsumerFactory")
+    public ConcurrentKafkaListenerContainerFactory<String, Object> requestBatchListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, Object> factory = batchListenerContainerFactory();
+        applyListenerExecutor(factory, "kafka-req-batch-");
+
+        log.info("Request batch consumer factory created with initial concurrency: {}, maxPollRecords: {}",
+                concurrencyProperties.getMinConcurrency(), kafkaProperties.getBatch().getMaxPollRecords());
+
+        return factory;
+    }
+
+    /**
+     * Batch variant of responseConsumerFactory (gateway.kafka.batch.response-enabled)
+     */
+    @Bean("responseBatchConsumerFactory")
+    public ConcurrentKafkaListenerContainerFactory<String, Object> responseBatchListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, Object> factory = batchListenerContainerFactory();
+        applyListenerExecutor(factory, "kafka-resp-batch-");
+
+        log.info("Response batch consumer factory created with initial concurrency: {}, maxPollRecords: {}",
+                concurrencyProperties.getMinConcurrency(), kafkaProperties.getBatch().getMaxPollRecords());
+
+        return factory;
+    }
+
+    /**
+     * Retry tier topics. Each record is scheduled for its due time and acked from a worker
+     * thread when done; asyncAcks commits up to the lowest contiguous acked offset and
+     * the next poll waits for the previous one, so in-flight retries per consumer thread
+     * are bounded by max.poll.records.
+     */
+    @Bean("retryConsumerFactory")
+    public ConcurrentKafkaListenerContainerFactory<String, Object> retryListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, Object> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory());
+        factory.setConcurrency(concurrencyProperties.getMinConcurrency());
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().setIdleBetweenPolls(100);
+        factory.getContainerProperties().setAsyncAcks(true);
+        factory.setCommonErrorHandler(kafkaErrorHandler());
+        applyListenerExecutor(factory, "kafka-retry-");
+
+        log.info("Retry consumer factory created with concurrency: {}, tiers: {}",
+                concurrencyProperties.getMinConcurrency(), retryProperties.getTierDelays());
+
+        return factory;
+    }
+
     @Bean("dlqConsumerFactory")
     public ConcurrentKafkaListenerContainerFactory<String, Object> dlqListenerContainerFactory() {
         ConcurrentKafkaListenerContainerFactory<String, Object> factory =
@@ -173,9 +273,59 @@ public class KafkaConfig {
         factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
         factory.getContainerProperties().setIdleBetweenPolls(500);
         factory.setCommonErrorHandler(kafkaErrorHandler());
+        applyListenerExecutor(factory, "kafka-dlq-");
 
         log.info("DLQ consumer factory created with concurrency: 1");
 
         return factory;
     }
-}
\ No newline at end of file
+
+    private ConcurrentKafkaListenerContainerFactory<String, Object> batchListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, Object> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory());
+        factory.setConcurrency(concurrencyProperties.getMinConcurrency());
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().setIdleBetweenPolls(100);
+        factory.setCommonErrorHandler(kafkaErrorHandler());
+
+        Properties consumerProps = new Properties();
+        consumerProps.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, kafkaProperties.getBatch().getMaxPollRecords());
+        factory.getContainerProperties().setKafkaConsumerProperties(consumerProps);
+
+        return factory;
+    }
+
+    /**
+     * max.poll.records of the request listener per processing mode, null = consumer default.
+     *
+     * With asyncAcks the next poll waits until every record of the previous one is acked,
+     * so in-flight records per consumer thread never exceed max.poll.records. In REACTIVE
+     * mode the poll is sized so that the initial consumers together can reach max-in-flight;
+     * the InFlightLimiter still bounds the total when the consumer count scales up.
+     */
+    private Integer requestMaxPollRecords() {
+        if (processingProperties.getParallel().isEnabled()) {
+            return processingProperties.getParallel().getMaxPollRecords();
+        }
+        if (processingProperties.isReactive()) {
+            return Math.ceilDiv(processingProperties.getMaxInFlight(), concurrencyProperties.getMinConcurrency());
+        }
+        return null;
+    }
+
+    /**
+     * In VIRTUAL executor mode listener (poll) threads are virtual too, so blocking
+     * work done on them (Redis calls, Oracle save retries) does not pin an OS thread.
+     */
+    private void applyListenerExecutor(ConcurrentKafkaListenerContainerFactory<String, Object> factory,
+                                       String threadPrefix) {
+        if (!concurrencyProperties.isVirtualThreads()) {
+            return;
+        }
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(threadPrefix);
+        executor.setVirtualThreads(true);
+        factory.getContainerProperties().setListenerTaskExecutor(executor);
+    }
+}
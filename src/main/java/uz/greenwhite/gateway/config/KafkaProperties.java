@@ -6,6 +6,7 @@ import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
+import uz.greenwhite.gateway.kafka.serializer.WireFormat;
 
 @Slf4j
 @Getter
@@ -32,6 +33,20 @@ public class KafkaProperties {
      */
     private Topics topics = new Topics();
 
+    /**
+     * Batch listener modes
+     * yml: gateway.kafka.batch.*
+     */
+    private Batch batch = new Batch();
+
+    /**
+     * Value format the producer writes: JSON or SMILE (compact binary).
+     * Consumers read both. Switch to SMILE only after all instances run a version
+     * that understands it. Passed to the serializer via spring.kafka.producer.properties.
+     * yml: gateway.kafka.wire-format
+     */
+    private WireFormat wireFormat = WireFormat.JSON;
+
     @PostConstruct
     public void validate() {
         if (bootstrapServers == null || bootstrapServers.isBlank()) {
@@ -49,10 +64,19 @@ public class KafkaProperties {
         if (topics.requestDlq == null || topics.requestDlq.isBlank()) {
             throw new IllegalArgumentException("gateway.kafka.topics.request-dlq must be configured");
         }
+        if (topics.requestRetry == null || topics.requestRetry.isBlank()) {
+            throw new IllegalArgumentException("gateway.kafka.topics.request-retry must be configured");
+        }
 
-        log.info("Kafka config: servers={}, groupId={}, topics=[{}, {}, {}]",
+        if (batch.maxPollRecords < 1) {
+            throw new IllegalArgumentException("gateway.kafka.batch.max-poll-records must be >= 1");
+        }
+
+        log.info("Kafka config: servers={}, groupId={}, topics=[{}, {}, {}, {}.*], batch=[request={}, response={}, maxPoll={}], " +
+                        "wireFormat={}",
                 bootstrapServers, groupId,
-                topics.requestNew, topics.requestResponse, topics.requestDlq);
+                topics.requestNew, topics.requestResponse, topics.requestDlq, topics.requestRetry,
+                batch.requestEnabled, batch.responseEnabled, batch.maxPollRecords, wireFormat);
     }
 
     @Getter
@@ -61,5 +85,39 @@ public class KafkaProperties {
         private String requestNew;
         private String requestResponse;
         private String requestDlq;
+
+        /**
+         * Prefix of the E4 retry tier topics (one topic per gateway.retry.tiers delay)
+         */
+        private String requestRetry;
+
+        /**
+         * Retry tier topic name, e.g. gateway.request.retry-5000
+         */
+        public String getRequestRetry(long tierDelayMs) {
+            return requestRetry + "-" + tierDelayMs;
+        }
+    }
+
+    @Getter
+    @Setter
+    public static class Batch {
+
+        /**
+         * Consume request-new with the batch listener (requestBatchConsumer)
+         * instead of the record listener (requestConsumer)
+         */
+        private boolean requestEnabled = false;
+
+        /**
+         * Consume request-response with the batch listener (responseBatchConsumer)
+         * instead of the record listener (responseConsumer)
+         */
+        private boolean responseEnabled = false;
+
+        /**
+         * max.poll.records for batch listeners
+         */
+        private int maxPollRecords = 500;
     }
-}
\ No newline at end of file
+}
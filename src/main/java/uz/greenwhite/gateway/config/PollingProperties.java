@@ -0,0 +1,192 @@
+package uz.greenwhite.gateway.config;
+
+import jakarta.annotation.PostConstruct;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Slf4j
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "gateway.polling")
+public class PollingProperties {
+
+    /**
+     * Run RequestPuller (E1)
+     */
+    private boolean enabled = true;
+
+    /**
+     * Delay between pull cycles in milliseconds
+     */
+    private long intervalMs = 5000;
+
+    /**
+     * Requests asked for per pull (sent as batch_size).
+     * With adaptive sizing this is the starting size.
+     */
+    private int batchSize = 100;
+
+    /**
+     * Send the last pulled compositeId as cursor, so the source continues after it.
+     * The cursor is reset at the start of every pull cycle.
+     */
+    private boolean cursorEnabled = false;
+
+    /**
+     * Adaptive pull size
+     */
+    private Adaptive adaptive = new Adaptive();
+
+    /**
+     * Adaptive poll interval
+     */
+    private IdleBackoff idleBackoff = new IdleBackoff();
+
+    /**
+     * Long poll: ask the source to hold the pull up to this long until work arrives
+     * (sent as wait_ms). 0 = off. Must stay below the source read timeout.
+     */
+    private long longPollMs = 0;
+
+    /**
+     * Coordination of pulls between gateway instances
+     */
+    private Coordination coordination = new Coordination();
+
+    @PostConstruct
+    public void validate() {
+        if (intervalMs < 1) {
+            throw new IllegalArgumentException("gateway.polling.interval-ms must be >= 1");
+        }
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("gateway.polling.batch-size must be >= 1");
+        }
+        if (adaptive.minBatchSize < 1 || adaptive.maxBatchSize < adaptive.minBatchSize) {
+            throw new IllegalArgumentException(
+                    "gateway.polling.adaptive requires 1 <= min-batch-size <= max-batch-size");
+        }
+
+        if (idleBackoff.maxIntervalMs < intervalMs || idleBackoff.multiplier < 1) {
+            throw new IllegalArgumentException(
+                    "gateway.polling.idle-backoff requires max-interval-ms >= interval-ms and multiplier >= 1");
+        }
+        if (longPollMs < 0) {
+            throw new IllegalArgumentException("gateway.polling.long-poll-ms must be >= 0");
+        }
+        if (coordination.mode == null) {
+            throw new IllegalArgumentException("gateway.polling.coordination.mode must be configured");
+        }
+        if (coordination.shards < 1) {
+            throw new IllegalArgumentException("gateway.polling.coordination.shards must be >= 1");
+        }
+        if (coordination.heartbeatMs < 1 || coordination.leaseMs < coordination.heartbeatMs * 2) {
+            throw new IllegalArgumentException(
+                    "gateway.polling.coordination requires lease-ms >= 2 × heartbeat-ms");
+        }
+
+        log.info("Polling config: enabled={}, interval={}ms, batchSize={}, cursor={}, adaptive={} [{}..{}], " +
+                        "idleBackoff={} [max={}ms], longPoll={}ms, coordination={} [shards={}, lease={}ms]",
+                enabled, intervalMs, batchSize, cursorEnabled,
+                adaptive.enabled, adaptive.minBatchSize, adaptive.maxBatchSize,
+                idleBackoff.enabled, idleBackoff.maxIntervalMs, longPollMs,
+                coordination.mode, coordination.shards, coordination.leaseMs);
+    }
+
+    /**
+     * Delay before the next pull cycle after the given number of consecutive
+     * empty cycles: intervalMs × multiplier^emptyCycles, capped at maxIntervalMs
+     */
+    public long nextIntervalMs(int emptyCycles) {
+        if (!idleBackoff.enabled || emptyCycles == 0) {
+            return intervalMs;
+        }
+        double delay = intervalMs * Math.pow(idleBackoff.multiplier, emptyCycles);
+        return (long) Math.min(delay, idleBackoff.maxIntervalMs);
+    }
+
+    @Getter
+    @Setter
+    public static class Adaptive {
+
+        /**
+         * Size each pull from downstream capacity instead of a fixed batch-size:
+         * shrink when the pipeline is saturated, grow while pulls come back full
+         */
+        private boolean enabled = false;
+
+        private int minBatchSize = 10;
+
+        private int maxBatchSize = 1000;
+
+        /**
+         * request-new consumer lag above which the pipeline counts as saturated
+         */
+        private long maxLag = 1000;
+
+        /**
+         * Average Kafka produce latency (ms) above which the pipeline counts as saturated
+         */
+        private long maxProduceMs = 100;
+    }
+
+    @Getter
+    @Setter
+    public static class IdleBackoff {
+
+        /**
+         * Back off on consecutive empty pull cycles and re-poll at once while pulls
+         * come back full (instead of a fixed interval-ms after every cycle)
+         */
+        private boolean enabled = false;
+
+        /**
+         * Upper bound of the poll interval while idle
+         */
+        private long maxIntervalMs = 60000;
+
+        private double multiplier = 2.0;
+    }
+
+    @Getter
+    @Setter
+    public static class Coordination {
+
+        private Mode mode = Mode.NONE;
+
+        /**
+         * Number of shards in SHARDED mode. Must be the same on every instance.
+         */
+        private int shards = 8;
+
+        /**
+         * Lease lifetime in Redis: an instance that stops renewing loses its
+         * leadership/shards after this long
+         */
+        private long leaseMs = 10000;
+
+        /**
+         * Lease renewal and rebalancing interval
+         */
+        private long heartbeatMs = 3000;
+    }
+
+    public enum Mode {
+        /**
+         * Every instance pulls everything (single-instance deployments)
+         */
+        NONE,
+        /**
+         * Only the instance holding the leader lease pulls
+         */
+        LEADER,
+        /**
+         * Pulls are split into shards (company_id % shards), leased out evenly
+         * across live instances
+         */
+        SHARDED
+    }
+}
@@ -0,0 +1,94 @@
+package uz.greenwhite.gateway.config;
+
+import jakarta.annotation.PostConstruct;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Slf4j
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "gateway.processing")
+public class ProcessingProperties {
+
+    /**
+     * How RequestConsumer runs the E4 pipeline.
+     * BLOCKING — each request occupies an httpRequestExecutor thread until done
+     * REACTIVE — the whole chain is one non-blocking Mono, limited by maxInFlight
+     */
+    private Mode mode = Mode.BLOCKING;
+
+    /**
+     * Maximum number of requests in flight in REACTIVE mode.
+     * When all permits are taken the Kafka consumer thread waits (backpressure).
+     */
+    private int maxInFlight = 1000;
+
+    /**
+     * Parallel consumer mode for the requestConsumer listener
+     */
+    private Parallel parallel = new Parallel();
+
+    @PostConstruct
+    public void validate() {
+        if (mode == null) {
+            throw new IllegalArgumentException("gateway.processing.mode must be configured");
+        }
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("gateway.processing.max-in-flight must be >= 1");
+        }
+        if (parallel.getOrderingKey() == null) {
+            throw new IllegalArgumentException("gateway.processing.parallel.ordering-key must be configured");
+        }
+        if (parallel.getMaxPollRecords() < 1) {
+            throw new IllegalArgumentException("gateway.processing.parallel.max-poll-records must be >= 1");
+        }
+
+        log.info("Processing config: mode={}, maxInFlight={}, parallel={}, orderingKey={}, maxPollRecords={}",
+                mode, maxInFlight, parallel.isEnabled(), parallel.getOrderingKey(), parallel.getMaxPollRecords());
+    }
+
+    public boolean isReactive() {
+        return mode == Mode.REACTIVE;
+    }
+
+    public enum Mode {
+        BLOCKING,
+        REACTIVE
+    }
+
+    @Getter
+    @Setter
+    public static class Parallel {
+
+        /**
+         * Process many records of one partition concurrently.
+         * Throughput is no longer bounded by partition count × per-message latency.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Records with the same key are processed one after another:
+         * NONE         — no ordering, every record starts immediately
+         * COMPOSITE_ID — Kafka key (companyId:requestId)
+         * SOURCE_ID    — sourceTable:sourceId (falls back to Kafka key)
+         */
+        private OrderingKey orderingKey = OrderingKey.COMPOSITE_ID;
+
+        /**
+         * max.poll.records for the request listener in parallel mode.
+         * Bounds in-flight records per consumer: the next poll waits
+         * until all records of the previous one are acknowledged.
+         */
+        private int maxPollRecords = 500;
+    }
+
+    public enum OrderingKey {
+        NONE,
+        COMPOSITE_ID,
+        SOURCE_ID
+    }
+}
@@ -8,7 +8,9 @@ import org.springframework.stereotype.Component;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.Collectors;
 
 @Getter
@@ -29,6 +31,31 @@ public class RetryProperties {
      */
     private long intervalMs = 3000;
 
+    /**
+     * Backoff multiplier applied to intervalMs for each further attempt
+     * Default: 2.0
+     */
+    private double multiplier = 2.0;
+
+    /**
+     * Upper bound of the backoff delay in milliseconds
+     * Default: 60000 (1 minute)
+     */
+    private long maxIntervalMs = 60000;
+
+    /**
+     * Random spread applied to E4 retry delays: ±jitter × delay
+     * Default: 0.2
+     */
+    private double jitter = 0.2;
+
+    /**
+     * Comma-separated delays (ms) of the E4 retry topic tiers, one topic per tier.
+     * A retry can run late by up to the gap to the next tier (see RequestConsumer.consumeRetry)
+     * Default: 5000,30000,60000,300000 (5s, 30s, 1m, 5m)
+     */
+    private String tiers = "5000,30000,60000,300000";
+
     /**
      * Comma-separated HTTP status codes that are retryable
      * Default: 408,429,500,502,503,504
@@ -40,6 +67,11 @@ public class RetryProperties {
      */
     private Set<Integer> retryableStatusSet;
 
+    /**
+     * Cached tier delays in ascending order, parsed once at startup
+     */
+    private List<Long> tierDelays;
+
     @PostConstruct
     public void init() {
         this.retryableStatusSet = Collections.unmodifiableSet(
@@ -49,6 +81,20 @@ public class RetryProperties {
                         .map(Integer::parseInt)
                         .collect(Collectors.toSet())
         );
+        this.tierDelays = Arrays.stream(tiers.split(","))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .map(Long::parseLong)
+                .sorted()
+                .distinct()
+                .toList();
+
+        if (tierDelays.isEmpty() || tierDelays.get(0) <= 0) {
+            throw new IllegalArgumentException("gateway.retry.tiers must contain positive delays");
+        }
+        if (jitter < 0 || jitter >= 1) {
+            throw new IllegalArgumentException("gateway.retry.jitter must be in [0, 1)");
+        }
     }
 
     /**
@@ -57,4 +103,45 @@ public class RetryProperties {
     public boolean isRetryable(int httpStatus) {
         return retryableStatusSet.contains(httpStatus);
     }
+
+    /**
+     * Delay before the next attempt after the given failed attempt (1-based):
+     * intervalMs × multiplier^(attempt-1), capped at maxIntervalMs
+     */
+    public long backoffMs(int attempt) {
+        double delay = intervalMs * Math.pow(Math.max(1.0, multiplier), Math.max(0, attempt - 1));
+        return (long) Math.min(delay, Math.max(intervalMs, maxIntervalMs));
+    }
+
+    /**
+     * E4 retry delay: jittered backoffMs(attempt), but never shorter than the
+     * upstream Retry-After. Capped at the longest tier (or maxIntervalMs if longer).
+     *
+     * @param retryAfterMs Retry-After of the failed response, null if absent
+     */
+    public long retryDelayMs(int attempt, Long retryAfterMs) {
+        long backoff = backoffMs(attempt);
+        long delay = jitter > 0
+                ? (long) (backoff * ThreadLocalRandom.current().nextDouble(1 - jitter, 1 + jitter))
+                : backoff;
+        if (retryAfterMs != null) {
+            delay = Math.max(delay, retryAfterMs);
+        }
+        long cap = Math.max(maxIntervalMs, tierDelays.get(tierDelays.size() - 1));
+        return Math.max(0, Math.min(delay, cap));
+    }
+
+    /**
+     * Delay of the tier a retry with the given delay goes to:
+     * the longest tier not longer than the delay, or the shortest tier
+     */
+    public long tierFor(long delayMs) {
+        long tier = tierDelays.get(0);
+        for (long candidate : tierDelays) {
+            if (candidate <= delayMs) {
+                tier = candidate;
+            }
+        }
+        return tier;
+    }
 }
\ No newline at end of file
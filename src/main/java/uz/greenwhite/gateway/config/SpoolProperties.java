@@ -0,0 +1,73 @@
+package uz.greenwhite.gateway.config;
+
+import jakarta.annotation.PostConstruct;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Slf4j
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "gateway.spool")
+public class SpoolProperties {
+
+    /**
+     * Spool requests to local disk when Kafka produce fails, replay them when it recovers
+     */
+    private boolean enabled = false;
+
+    /**
+     * Directory of the spool segment files (must survive restarts, one per instance)
+     */
+    private String directory = "./spool";
+
+    /**
+     * Size of one memory-mapped segment file
+     */
+    private int segmentBytes = 64 * 1024 * 1024;
+
+    /**
+     * Upper bound of unreplayed data; when reached, requests go the old way (retry, DLQ)
+     */
+    private long maxBytes = 1024L * 1024 * 1024;
+
+    /**
+     * Delay between replay attempts
+     */
+    private long replayIntervalMs = 1000;
+
+    /**
+     * Requests sent per replay round
+     */
+    private int replayBatchSize = 500;
+
+    /**
+     * Flush every append to disk (survives an OS crash, slower).
+     * Without it the page cache covers process crashes only.
+     */
+    private boolean forceOnAppend = false;
+
+    @PostConstruct
+    public void validate() {
+        if (!enabled) {
+            return;
+        }
+        if (segmentBytes < 1024 * 1024) {
+            throw new IllegalArgumentException("gateway.spool.segment-bytes must be >= 1MB");
+        }
+        if (maxBytes < segmentBytes) {
+            throw new IllegalArgumentException("gateway.spool.max-bytes must be >= segment-bytes");
+        }
+        if (replayIntervalMs < 1 || replayBatchSize < 1) {
+            throw new IllegalArgumentException(
+                    "gateway.spool requires replay-interval-ms >= 1 and replay-batch-size >= 1");
+        }
+
+        log.info("Spool config: directory={}, segment={}MB, max={}MB, replay={}ms x {}, force={}",
+                directory, segmentBytes / (1024 * 1024), maxBytes / (1024 * 1024),
+                replayIntervalMs, replayBatchSize, forceOnAppend);
+    }
+}
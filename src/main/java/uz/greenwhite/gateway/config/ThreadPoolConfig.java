@@ -5,7 +5,13 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import uz.greenwhite.gateway.concurrency.MonitoredExecutor;
+import uz.greenwhite.gateway.concurrency.PlatformThreadExecutor;
+import uz.greenwhite.gateway.concurrency.VirtualThreadExecutor;
 
+import java.util.concurrent.Executors;
 import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ThreadPoolExecutor;
 
@@ -22,9 +28,22 @@ public class ThreadPoolConfig {
      * Kafka consumer threads only receive messages and
      * delegate HTTP work to this pool.
      * Result: consumer threads stay free to accept new messages.
+     *
+     * executor-type=VIRTUAL replaces the pool with virtual threads,
+     * so a slow blocking call no longer costs an OS thread.
      */
     @Bean("httpRequestExecutor")
-    public ThreadPoolTaskExecutor httpRequestExecutor() {
+    public MonitoredExecutor httpRequestExecutor() {
+        if (concurrencyProperties.isVirtualThreads()) {
+            log.info("HTTP Request executor: virtual threads, maxConcurrency={}, queue={}",
+                    concurrencyProperties.getVirtualMaxConcurrency(),
+                    concurrencyProperties.getVirtualQueueCapacity());
+
+            return new VirtualThreadExecutor("http-vt-",
+                    concurrencyProperties.getVirtualMaxConcurrency(),
+                    concurrencyProperties.getVirtualQueueCapacity());
+        }
+
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
 
         // Core — always alive
@@ -53,9 +72,24 @@ public class ThreadPoolConfig {
         log.info("HTTP Request ThreadPool created: core={}, max={}, queue={}",
                 executor.getCorePoolSize(),
                 executor.getMaxPoolSize(),
-                200);
+                executor.getQueueCapacity());
+
+        return new PlatformThreadExecutor(executor);
+    }
 
-        return executor;
+    /**
+     * Reactor scheduler for blocking calls inside reactive chains
+     * (OAuth2 token lookup: Redis + token endpoint).
+     * PLATFORM → boundedElastic, VIRTUAL → one virtual thread per task.
+     */
+    @Bean(name = "blockingScheduler", destroyMethod = "dispose")
+    public Scheduler blockingScheduler() {
+        if (concurrencyProperties.isVirtualThreads()) {
+            return Schedulers.fromExecutorService(
+                    Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("blocking-vt-", 0).factory()),
+                    "blocking-vt");
+        }
+        return Schedulers.boundedElastic();
     }
 
     /**
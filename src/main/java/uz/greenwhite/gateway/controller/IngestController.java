@@ -0,0 +1,139 @@
+package uz.greenwhite.gateway.controller;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import uz.greenwhite.gateway.config.IngestProperties;
+import uz.greenwhite.gateway.kafka.producer.RequestBatchPublisher;
+import uz.greenwhite.gateway.metrics.GatewayMetrics;
+import uz.greenwhite.gateway.model.kafka.RequestMessage;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Push ingestion: the source delivers request batches as soon as rows are inserted,
+ * instead of waiting for the next RequestPuller cycle.
+ *
+ * Requests go through the same validation and Kafka produce path as pulled ones
+ * (RequestBatchPublisher). The call is answered only after Kafka has acknowledged
+ * every request of the batch (or it went to the DLQ):
+ *   200 accepted — every request was published
+ *   207 partial  — some requests were published, the invalid / failed ones went to the DLQ
+ *   422 rejected — no request was published, all of them failed validation
+ *   503 failed   — no request was published, Kafka did not take them
+ * Pushed requests are never handed to the local spool: a request that Kafka does
+ * not acknowledge is reported as failed, so the source keeps it and can push again.
+ *
+ * Example: POST http://localhost:8090/api/ingest/requests
+ *          Authorization: Bearer {gateway.ingest.token}
+ *          [ { "company_id": 100, "request_id": 1, ... }, ... ]
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/ingest")
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "gateway.ingest.enabled", havingValue = "true")
+public class IngestController {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final RequestBatchPublisher batchPublisher;
+    private final IngestProperties properties;
+    private final GatewayMetrics metrics;
+
+    @PostMapping("/requests")
+    public ResponseEntity<Map<String, Object>> ingest(
+            @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+            @RequestBody List<RequestMessage> requests) {
+
+        if (!isAuthorized(authorization)) {
+            log.warn("E1: Rejected push with invalid credentials");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("status", "unauthorized"));
+        }
+        if (requests.size() > properties.getMaxBatchSize()) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(Map.of(
+                    "status", "too_large",
+                    "maxBatchSize", properties.getMaxBatchSize()
+            ));
+        }
+
+        log.info("E1: Received push of {} requests", requests.size());
+        metrics.getIngestPushReceived().increment(requests.size());
+
+        RequestBatchPublisher.Batch batch = batchPublisher.newBatch(false);
+        requests.forEach(batch::accept);
+
+        try {
+            RequestBatchPublisher.Result result = batch.complete()
+                    .get(properties.getTimeoutMs(), TimeUnit.MILLISECONDS);
+
+            HttpStatus status = responseStatus(result);
+            Map<String, Object> response = new HashMap<>();
+            response.put("status", statusName(status));
+            response.put("total", result.total());
+            response.put("published", result.published());
+            response.put("invalid", result.invalid());
+            response.put("failed", result.failed());
+            return ResponseEntity.status(status).body(response);
+
+        } catch (TimeoutException e) {
+            // Sends keep running; the source may push again, duplicates are filtered by the Redis state
+            log.error("E2: Push of {} requests not acknowledged within {}ms",
+                    requests.size(), properties.getTimeoutMs());
+            return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(Map.of("status", "timeout"));
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("status", "interrupted"));
+
+        } catch (Exception e) {
+            log.error("E2: Push of {} requests failed: {}", requests.size(), e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("status", "error"));
+        }
+    }
+
+    private HttpStatus responseStatus(RequestBatchPublisher.Result result) {
+        if (result.invalid().isEmpty() && result.failed().isEmpty()) {
+            return HttpStatus.OK;
+        }
+        if (result.accepted() > 0) {
+            return HttpStatus.MULTI_STATUS;
+        }
+        return result.failed().isEmpty() ? HttpStatus.UNPROCESSABLE_ENTITY : HttpStatus.SERVICE_UNAVAILABLE;
+    }
+
+    private String statusName(HttpStatus status) {
+        return switch (status) {
+            case OK -> "accepted";
+            case MULTI_STATUS -> "partial";
+            case UNPROCESSABLE_ENTITY -> "rejected";
+            default -> "failed";
+        };
+    }
+
+    /**
+     * Constant-time comparison of the bearer token
+     */
+    private boolean isAuthorized(String authorization) {
+        if (authorization == null || !authorization.startsWith(BEARER_PREFIX)) {
+            return false;
+        }
+        byte[] given = authorization.substring(BEARER_PREFIX.length()).getBytes(StandardCharsets.UTF_8);
+        byte[] expected = properties.getToken().getBytes(StandardCharsets.UTF_8);
+        return MessageDigest.isEqual(given, expected);
+    }
+}
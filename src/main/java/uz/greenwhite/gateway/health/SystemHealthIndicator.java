@@ -6,13 +6,10 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.actuate.health.Health;
 import org.springframework.boot.actuate.health.HealthIndicator;
-import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Component;
 import uz.greenwhite.gateway.concurrency.ConcurrencyMonitorService;
 import uz.greenwhite.gateway.concurrency.DynamicConcurrencyManager;
-
-import static uz.greenwhite.gateway.concurrency.ConcurrencyMonitorService.REQUEST_LISTENER_ID;
-import static uz.greenwhite.gateway.concurrency.ConcurrencyMonitorService.RESPONSE_LISTENER_ID;
+import uz.greenwhite.gateway.concurrency.MonitoredExecutor;
 
 @Slf4j
 @Component("gateway")
@@ -20,13 +17,13 @@ public class SystemHealthIndicator implements HealthIndicator {
 
     private final ConcurrencyMonitorService monitorService;
     private final DynamicConcurrencyManager concurrencyManager;
-    private final ThreadPoolTaskExecutor httpExecutor;
+    private final MonitoredExecutor httpExecutor;
     private final CircuitBreakerRegistry circuitBreakerRegistry;
 
     public SystemHealthIndicator(
             ConcurrencyMonitorService monitorService,
             DynamicConcurrencyManager concurrencyManager,
-            @Qualifier("httpRequestExecutor") ThreadPoolTaskExecutor httpExecutor,
+            @Qualifier("httpRequestExecutor") MonitoredExecutor httpExecutor,
             CircuitBreakerRegistry circuitBreakerRegistry) {
         this.monitorService = monitorService;
         this.concurrencyManager = concurrencyManager;
@@ -46,17 +43,18 @@ public class SystemHealthIndicator implements HealthIndicator {
         return builder
                 // Kafka Consumer
                 .withDetail("kafka.requestConsumer.concurrency",
-                        concurrencyManager.getCurrentConcurrency(REQUEST_LISTENER_ID))
+                        concurrencyManager.getCurrentConcurrency(monitorService.getRequestListenerId()))
                 .withDetail("kafka.requestConsumer.lag",
                         monitorService.getLastKnownLag("bmb.request.new"))
                 .withDetail("kafka.responseConsumer.concurrency",
-                        concurrencyManager.getCurrentConcurrency(RESPONSE_LISTENER_ID))
+                        concurrencyManager.getCurrentConcurrency(monitorService.getResponseListenerId()))
                 .withDetail("kafka.responseConsumer.lag",
                         monitorService.getLastKnownLag("bmb.request.response"))
                 // HTTP Thread Pool
+                .withDetail("http.pool.type", httpExecutor.getType())
                 .withDetail("http.pool.active", httpExecutor.getActiveCount())
-                .withDetail("http.pool.size", httpExecutor.getThreadPoolExecutor().getPoolSize())
-                .withDetail("http.pool.queue", httpExecutor.getThreadPoolExecutor().getQueue().size())
+                .withDetail("http.pool.size", httpExecutor.getPoolSize())
+                .withDetail("http.pool.queue", httpExecutor.getQueueSize())
                 // Circuit Breaker
                 .withDetail("circuitBreaker.state", cb.getState().name())
                 .withDetail("circuitBreaker.failureRate", cbMetrics.getFailureRate() + "%")
@@ -0,0 +1,149 @@
+package uz.greenwhite.gateway.http;
+
+import lombok.extern.slf4j.Slf4j;
+import uz.greenwhite.gateway.config.HttpProperties;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Adaptive concurrency limit of one external host (part of its EndpointProfile).
+ *
+ * A request takes a permit before the HTTP call and reports its latency and outcome
+ * when done; above the limit it is rejected at once. The limit moves with the samples:
+ *
+ * AIMD:     +1 while at least half of the limit is in use, x backoff-ratio on a drop.
+ * GRADIENT: limit x (long-term latency / current latency), clamped to [0.5, 1],
+ *           plus sqrt(limit) headroom, smoothed (Netflix gradient2).
+ *           A drop backs off as in AIMD.
+ *
+ * A drop is a timeout, connection error, 429 or 5xx. 4xx answers are normal samples.
+ * So a slow or failing host shrinks to a few concurrent calls and stops holding the
+ * shared httpRequestExecutor, while healthy hosts keep theirs.
+ * With the limiter disabled every request gets a permit (in-flight is still counted).
+ */
+@Slf4j
+public class AdaptiveConcurrencyLimit {
+
+    /** Current latency may exceed the long-term one by this much before the limit shrinks */
+    private static final double TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.2;
+    /** EWMA factor of the long-term latency, about 600 samples */
+    private static final double LONG_RTT_ALPHA = 2.0 / 601;
+
+    private final String host;
+    private final HttpProperties.Limiter config;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile double limit;
+    private double longRttNanos;
+
+    AdaptiveConcurrencyLimit(String host, HttpProperties.Limiter config) {
+        this.host = host;
+        this.config = config;
+        this.limit = config.getInitialLimit();
+    }
+
+    /**
+     * @return a permit, or null if the host is at its limit
+     */
+    public Permit tryAcquire() {
+        if (!config.isEnabled()) {
+            inFlight.incrementAndGet();
+            return new Permit();
+        }
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                return null;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return new Permit();
+            }
+        }
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private synchronized void onSample(long rttNanos, int inFlightAtStart, boolean dropped) {
+        if (!config.isEnabled()) {
+            return;
+        }
+        double previous = limit;
+        double next;
+
+        if (dropped) {
+            next = previous * config.getBackoffRatio();
+        } else if (config.getAlgorithm() == HttpProperties.Algorithm.GRADIENT) {
+            next = gradient(previous, rttNanos, inFlightAtStart);
+        } else {
+            next = inFlightAtStart * 2 >= previous ? previous + 1 : previous;
+        }
+
+        limit = Math.clamp(next, config.getMinLimit(), config.getMaxLimit());
+        if ((int) limit != (int) previous) {
+            log.debug("E4: Concurrency limit [{}] {} -> {} (rtt={}ms, inFlight={}, dropped={})",
+                    host, (int) previous, (int) limit, rttNanos / 1_000_000, inFlightAtStart, dropped);
+        }
+    }
+
+    private double gradient(double previous, long rttNanos, int inFlightAtStart) {
+        if (longRttNanos == 0) {
+            longRttNanos = rttNanos;
+        } else {
+            longRttNanos += (rttNanos - longRttNanos) * LONG_RTT_ALPHA;
+        }
+        // Far below the limit latency says nothing about capacity (app-limited)
+        if (inFlightAtStart * 2 < previous) {
+            return previous;
+        }
+        // Recovery after a long slow period: let the long-term latency follow down faster
+        if (longRttNanos > rttNanos * 2) {
+            longRttNanos *= 0.95;
+        }
+
+        double gradient = Math.clamp(TOLERANCE * longRttNanos / rttNanos, 0.5, 1.0);
+        double target = previous * gradient + Math.sqrt(previous);
+        return previous * (1 - SMOOTHING) + target * SMOOTHING;
+    }
+
+    /**
+     * One admitted request. Exactly one of onSuccess / onDropped / release takes effect.
+     */
+    public class Permit {
+
+        private final long startNanos = System.nanoTime();
+        private final int inFlightAtStart = inFlight.get();
+        private final AtomicBoolean done = new AtomicBoolean();
+
+        public void onSuccess() {
+            complete(false);
+        }
+
+        public void onDropped() {
+            complete(true);
+        }
+
+        /**
+         * Give the permit back without a sample (call not made or cancelled)
+         */
+        public void release() {
+            if (done.compareAndSet(false, true)) {
+                inFlight.decrementAndGet();
+            }
+        }
+
+        private void complete(boolean dropped) {
+            if (done.compareAndSet(false, true)) {
+                inFlight.decrementAndGet();
+                onSample(System.nanoTime() - startNanos, inFlightAtStart, dropped);
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package uz.greenwhite.gateway.http;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import lombok.Getter;
+import uz.greenwhite.gateway.config.HttpProperties;
+
+import java.time.Duration;
+
+/**
+ * Everything HttpRequestService needs per external endpoint, resolved once per base URL:
+ * the parsed host, the host's circuit breaker, the read timeout, the adaptive
+ * concurrency limit (shared by all base URLs of the host) and the configured rate limit.
+ * Built and cached by EndpointProfileRegistry.
+ */
+@Getter
+public class EndpointProfile {
+
+    private final String baseUrl;
+    private final String host;
+    private final CircuitBreaker circuitBreaker;
+    private final Duration timeout;
+    private final AdaptiveConcurrencyLimit concurrencyLimit;
+
+    /**
+     * Configured quota of the host (gateway.http.rate-limit.hosts), null if none
+     */
+    private final HttpProperties.Rate rate;
+
+    /**
+     * Last use, for idle eviction
+     */
+    private volatile long lastUsedAt;
+
+    EndpointProfile(String baseUrl, String host, CircuitBreaker circuitBreaker, Duration timeout,
+                    AdaptiveConcurrencyLimit concurrencyLimit, HttpProperties.Rate rate) {
+        this.baseUrl = baseUrl;
+        this.host = host;
+        this.circuitBreaker = circuitBreaker;
+        this.timeout = timeout;
+        this.concurrencyLimit = concurrencyLimit;
+        this.rate = rate;
+        this.lastUsedAt = System.currentTimeMillis();
+    }
+
+    public String getCircuitBreakerName() {
+        return circuitBreaker.getName();
+    }
+
+    void touch() {
+        lastUsedAt = System.currentTimeMillis();
+    }
+}
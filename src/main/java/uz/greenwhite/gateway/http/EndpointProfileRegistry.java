@@ -0,0 +1,173 @@
+package uz.greenwhite.gateway.http;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.Meter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import uz.greenwhite.gateway.config.HttpProperties;
+import uz.greenwhite.gateway.metrics.GatewayMetrics;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache of EndpointProfile by base URL.
+ *
+ * A profile is built on the first request to a base URL: the URL is parsed once,
+ * the host's circuit breaker is looked up once. Circuit breaker event listeners are
+ * registered once per breaker, when the registry creates it, not per request.
+ * The adaptive concurrency limit is kept per host, with its gauges tagged by host.
+ *
+ * The cache is bounded (profiles.max-size, least recently used dropped first) and
+ * profiles idle for profiles.idle-evict-ms are dropped. When the last profile of a
+ * host goes, its circuit breaker, concurrency limit and gauges are removed as well.
+ * Host resources are counted per profile and created / removed inside compute on
+ * the hosts map, so a profile built for another base URL of the host while the last
+ * one is evicted either keeps the host's resources or gets new ones, never removed ones.
+ */
+@Slf4j
+@Component
+public class EndpointProfileRegistry {
+
+    private static final String CB_PREFIX = "cb-";
+
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+    private final HttpProperties httpProperties;
+    private final GatewayMetrics metrics;
+
+    private final Map<String, EndpointProfile> profiles = new ConcurrentHashMap<>();
+    private final Map<String, HostResources> hosts = new ConcurrentHashMap<>();
+
+    public EndpointProfileRegistry(CircuitBreakerRegistry circuitBreakerRegistry,
+                                   HttpProperties httpProperties,
+                                   GatewayMetrics metrics) {
+        this.circuitBreakerRegistry = circuitBreakerRegistry;
+        this.httpProperties = httpProperties;
+        this.metrics = metrics;
+
+        circuitBreakerRegistry.getEventPublisher()
+                .onEntryAdded(event -> registerListeners(event.getAddedEntry()));
+
+        metrics.registerEndpointProfilesGauge(profiles::size);
+    }
+
+    /**
+     * Profile of the request's base URL, built on first use
+     */
+    public EndpointProfile get(String baseUrl) {
+        EndpointProfile profile = profiles.get(baseUrl);
+        if (profile == null) {
+            profile = profiles.computeIfAbsent(baseUrl, this::build);
+            if (profiles.size() > httpProperties.getProfiles().getMaxSize()) {
+                evictLeastRecentlyUsed();
+            }
+        }
+        profile.touch();
+        return profile;
+    }
+
+    @Scheduled(fixedDelay = 60_000, initialDelay = 60_000)
+    public void evictIdle() {
+        long cutoff = System.currentTimeMillis() - httpProperties.getProfiles().getIdleEvictMs();
+        profiles.values().stream()
+                .filter(profile -> profile.getLastUsedAt() < cutoff)
+                .toList()
+                .forEach(this::evict);
+    }
+
+    private EndpointProfile build(String baseUrl) {
+        String host = extractHost(baseUrl);
+        HostResources resources = hosts.compute(host, (h, existing) -> {
+            HostResources current = existing != null ? existing : createHost(h);
+            current.profiles++;
+            return current;
+        });
+        Duration timeout = Duration.ofMillis(httpProperties.getTimeoutForHost(host));
+
+        log.debug("Endpoint profile created: {} [CB: {}, timeout={}ms]",
+                baseUrl, resources.circuitBreaker.getName(), timeout.toMillis());
+        return new EndpointProfile(baseUrl, host, resources.circuitBreaker, timeout, resources.limit,
+                httpProperties.getRateLimit().getHosts().get(host));
+    }
+
+    private HostResources createHost(String host) {
+        CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker(CB_PREFIX + host);
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(host, httpProperties.getLimiter());
+        List<Meter> meters = metrics.registerHostLimitGauges(host, limit::getLimit, limit::getInFlight);
+        return new HostResources(circuitBreaker, limit, meters);
+    }
+
+    /**
+     * Host from base URL, used for circuit breaker naming.
+     * Examples:
+     *   http://api.example.com:8080 -> api.example.com
+     *   https://example.com/api/v1  -> example.com
+     * A malformed URL falls back to its hashcode.
+     */
+    private String extractHost(String baseUrl) {
+        try {
+            String host = URI.create(baseUrl).getHost();
+            if (host != null) {
+                return host;
+            }
+        } catch (Exception e) {
+            log.warn("Failed to extract domain from URL {}, using hashcode", baseUrl);
+        }
+        return String.valueOf(Math.abs(baseUrl.hashCode()));
+    }
+
+    private void registerListeners(CircuitBreaker cb) {
+        String cbName = cb.getName();
+        cb.getEventPublisher()
+                .onStateTransition(event ->
+                        log.warn("Circuit Breaker [{}] state change: {}", cbName, event.getStateTransition()))
+                .onFailureRateExceeded(event ->
+                        log.warn("Circuit Breaker [{}] failure rate exceeded: {}%", cbName, event.getFailureRate()))
+                .onSlowCallRateExceeded(event ->
+                        log.warn("Circuit Breaker [{}] slow call rate exceeded: {}%", cbName, event.getSlowCallRate()));
+    }
+
+    private void evictLeastRecentlyUsed() {
+        profiles.values().stream()
+                .min(Comparator.comparingLong(EndpointProfile::getLastUsedAt))
+                .ifPresent(this::evict);
+    }
+
+    private void evict(EndpointProfile profile) {
+        if (!profiles.remove(profile.getBaseUrl(), profile)) {
+            return;
+        }
+        hosts.computeIfPresent(profile.getHost(), (host, resources) -> {
+            if (--resources.profiles > 0) {
+                return resources;
+            }
+            circuitBreakerRegistry.remove(resources.circuitBreaker.getName());
+            metrics.removeMeters(resources.meters);
+            return null;
+        });
+        log.debug("Endpoint profile evicted: {}", profile.getBaseUrl());
+    }
+
+    /**
+     * Shared by all profiles of one host; profiles is only changed inside compute on hosts
+     */
+    private static class HostResources {
+
+        private final CircuitBreaker circuitBreaker;
+        private final AdaptiveConcurrencyLimit limit;
+        private final List<Meter> meters;
+        private int profiles;
+
+        HostResources(CircuitBreaker circuitBreaker, AdaptiveConcurrencyLimit limit, List<Meter> meters) {
+            this.circuitBreaker = circuitBreaker;
+            this.limit = limit;
+            this.meters = meters;
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package uz.greenwhite.gateway.http;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.http.HttpHeaders;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import uz.greenwhite.gateway.config.HttpProperties;
+import uz.greenwhite.gateway.metrics.GatewayMetrics;
+import uz.greenwhite.gateway.model.kafka.RequestMessage;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Token-bucket rate limit per external host (optionally per host and company / OAuth2 provider),
+ * shared by all gateway instances.
+ *
+ * The bucket lives in Redis and is refilled by a Lua script using the Redis clock, so
+ * instances agree on it. Each instance takes up to local-batch tokens at once and spends
+ * them locally within a second: most requests never touch Redis. Hosts without a
+ * configured rate go to Redis once a second per bucket, only to see a learned pause.
+ *
+ * Learning: a 429 pauses the bucket for its Retry-After (1s if absent); an answer with
+ * X-RateLimit-Remaining: 0 pauses it until X-RateLimit-Reset. The pause is a Redis key,
+ * so every instance stops calling the host, not only the one that got the 429.
+ *
+ * A request without a token waits up to max-wait-ms; beyond that it is answered
+ * with a local 429 (errorSource RATE_LIMIT) whose Retry-After is the expected wait,
+ * and RequestConsumer re-publishes it for that wait without using an attempt.
+ */
+@Slf4j
+@Component
+public class HostRateLimiter {
+
+    private static final String BUCKET_PREFIX = "gateway:ratelimit:";
+    private static final String PAUSE_SUFFIX = ":pause";
+    private static final long LEASE_MS = 1000;
+    private static final long MAX_PAUSE_MS = 3_600_000;
+    private static final Mono<Long> GRANTED = Mono.just(0L);
+
+    /**
+     * Take up to the requested tokens.
+     *
+     * KEYS[1] = bucket hash (tokens, ts), KEYS[2] = pause key
+     * ARGV    = rate per second (0 = unlimited), burst, requested
+     * Returns {granted, waitMs}
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static final RedisScript<List> TAKE = new DefaultRedisScript<>("""
+            local paused = redis.call('PTTL', KEYS[2])
+            if paused > 0 then
+                return {0, paused}
+            end
+            local requested = tonumber(ARGV[3])
+            local rate = tonumber(ARGV[1])
+            if rate <= 0 then
+                return {requested, 0}
+            end
+            local burst = tonumber(ARGV[2])
+            local time = redis.call('TIME')
+            local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+            local bucket = redis.call('HMGET', KEYS[1], 'tokens', 'ts')
+            local tokens = tonumber(bucket[1]) or burst
+            local ts = tonumber(bucket[2]) or now
+            tokens = math.min(burst, tokens + math.max(0, now - ts) * rate / 1000)
+            local granted = math.min(requested, math.floor(tokens))
+            tokens = tokens - granted
+            redis.call('HSET', KEYS[1], 'tokens', tostring(tokens), 'ts', now)
+            redis.call('PEXPIRE', KEYS[1], math.ceil(burst * 1000 / rate) + 1000)
+            local wait = 0
+            if granted == 0 then
+                wait = math.ceil((1 - tokens) * 1000 / rate)
+            end
+            return {granted, wait}
+            """, List.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final HttpProperties.RateLimit properties;
+    private final Scheduler blockingScheduler;
+    private final GatewayMetrics metrics;
+
+    private final Map<String, LocalBucket> buckets = new ConcurrentHashMap<>();
+
+    public HostRateLimiter(StringRedisTemplate redisTemplate, HttpProperties httpProperties,
+                           Scheduler blockingScheduler, GatewayMetrics metrics) {
+        this.redisTemplate = redisTemplate;
+        this.properties = httpProperties.getRateLimit();
+        this.blockingScheduler = blockingScheduler;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Wait for a token of the request's bucket.
+     *
+     * @return 0 when the request may go, otherwise ms until a token is expected
+     *         (the request should be answered with 429 and retried after it)
+     */
+    public Mono<Long> acquire(EndpointProfile profile, RequestMessage request) {
+        if (!isLimited(profile)) {
+            return GRANTED;
+        }
+        LocalBucket bucket = bucket(profile, request);
+        return acquire(bucket, properties.getMaxWaitMs(), false);
+    }
+
+    /**
+     * Give back the token of a request refused locally after acquire (concurrency limit,
+     * open circuit breaker), so refusals do not spend the host's quota
+     */
+    public void release(EndpointProfile profile, RequestMessage request) {
+        if (isLimited(profile)) {
+            bucket(profile, request).giveBack();
+        }
+    }
+
+    /**
+     * Learn from an answer of the host: pause the bucket on 429 / exhausted quota
+     *
+     * @param retryAfterMs parsed Retry-After, null if absent
+     */
+    public void onResponse(EndpointProfile profile, RequestMessage request, int status,
+                           HttpHeaders headers, Long retryAfterMs) {
+        if (!properties.isEnabled() || !properties.isLearn()) {
+            return;
+        }
+
+        long pauseMs = 0;
+        if (status == 429) {
+            pauseMs = retryAfterMs != null ? retryAfterMs : 1000;
+        } else if (headers != null && "0".equals(headers.getFirst("X-RateLimit-Remaining"))) {
+            pauseMs = parseReset(headers.getFirst("X-RateLimit-Reset"));
+        }
+        if (pauseMs <= 0) {
+            return;
+        }
+
+        LocalBucket bucket = bucket(profile, request);
+        long pause = Math.min(pauseMs, MAX_PAUSE_MS);
+        bucket.pause(pause);
+        log.warn("E4: Rate limit [{}] paused for {}ms (status={})", bucket.key, pause, status);
+
+        Mono.fromRunnable(() -> redisTemplate.opsForValue()
+                        .set(bucket.key + PAUSE_SUFFIX, "1", Duration.ofMillis(pause)))
+                .subscribeOn(blockingScheduler)
+                .subscribe(null, e -> log.warn("E4: Failed to share rate limit pause of {}: {}",
+                        bucket.key, e.getMessage()));
+    }
+
+    private boolean isLimited(EndpointProfile profile) {
+        return properties.isEnabled() && (profile.getRate() != null || properties.isLearn());
+    }
+
+    /**
+     * Drop local buckets not used for a while (keys per company can be many)
+     */
+    @Scheduled(fixedDelay = 60_000, initialDelay = 60_000)
+    public void evictIdle() {
+        long cutoff = System.currentTimeMillis() - 600_000;
+        buckets.values().removeIf(bucket -> bucket.lastUsedAt < cutoff);
+    }
+
+    private Mono<Long> acquire(LocalBucket bucket, long budgetMs, boolean waited) {
+        long waitMs = bucket.tryTake();
+        if (waitMs == 0) {
+            if (waited) {
+                metrics.recordRateLimited(bucket.host, "delayed");
+            }
+            return GRANTED;
+        }
+        if (waitMs > 0) {
+            return waitOrReject(bucket, waitMs, budgetMs);
+        }
+
+        // Local tokens spent: refill from Redis off the calling thread
+        return Mono.fromCallable(() -> refill(bucket))
+                .subscribeOn(blockingScheduler)
+                .flatMap(wait -> wait == 0
+                        ? acquire(bucket, budgetMs, waited)
+                        : waitOrReject(bucket, wait, budgetMs));
+    }
+
+    private Mono<Long> waitOrReject(LocalBucket bucket, long waitMs, long budgetMs) {
+        if (waitMs > budgetMs) {
+            metrics.recordRateLimited(bucket.host, "rejected");
+            return Mono.just(waitMs);
+        }
+        return Mono.delay(Duration.ofMillis(waitMs))
+                .flatMap(tick -> acquire(bucket, budgetMs - waitMs, true));
+    }
+
+    /**
+     * @return 0 if tokens were added locally, otherwise ms to wait
+     */
+    private long refill(LocalBucket bucket) {
+        HttpProperties.Rate rate = bucket.rate;
+        int requested = rate != null
+                ? (int) Math.clamp(properties.getLocalBatch(), 1, Math.max(1, (long) rate.getRate()))
+                : Integer.MAX_VALUE;
+
+        List<?> result = redisTemplate.execute(TAKE,
+                List.of(bucket.key, bucket.key + PAUSE_SUFFIX),
+                String.valueOf(rate != null ? rate.getRate() : 0),
+                String.valueOf(rate != null ? rate.getBurst() : 0),
+                String.valueOf(requested));
+
+        long granted = result != null ? ((Number) result.get(0)).longValue() : requested;
+        long waitMs = result != null ? ((Number) result.get(1)).longValue() : 0;
+        if (granted > 0) {
+            bucket.add((int) granted);
+            return 0;
+        }
+        bucket.pause(waitMs);
+        return Math.max(1, waitMs);
+    }
+
+    private LocalBucket bucket(EndpointProfile profile, RequestMessage request) {
+        String key = switch (properties.getScope()) {
+            case HOST -> profile.getHost();
+            case HOST_COMPANY -> profile.getHost() + ":" + request.getCompanyId();
+            case HOST_PROVIDER -> profile.getHost() + ":" +
+                    (request.getOauth2Provider() != null ? request.getOauth2Provider() : "-");
+        };
+        return buckets.computeIfAbsent(key, k -> new LocalBucket(profile.getHost(), BUCKET_PREFIX + k,
+                profile.getRate()));
+    }
+
+    /**
+     * X-RateLimit-Reset: seconds until reset, or the reset time in epoch seconds
+     */
+    private static long parseReset(String value) {
+        if (value == null || value.isBlank()) {
+            return 1000;
+        }
+        try {
+            long reset = Long.parseLong(value.trim());
+            return reset > 1_000_000_000L
+                    ? reset * 1000 - System.currentTimeMillis()
+                    : reset * 1000;
+        } catch (NumberFormatException e) {
+            return 1000;
+        }
+    }
+
+    /**
+     * Tokens leased from the Redis bucket and the pause known locally
+     */
+    private static class LocalBucket {
+
+        private final String host;
+        private final String key;
+        private final HttpProperties.Rate rate;
+
+        private int tokens;
+        private long leaseUntil;
+        private long pausedUntil;
+        private volatile long lastUsedAt = System.currentTimeMillis();
+
+        LocalBucket(String host, String key, HttpProperties.Rate rate) {
+            this.host = host;
+            this.key = key;
+            this.rate = rate;
+        }
+
+        /**
+         * @return 0 = token taken, > 0 = paused for that many ms, -1 = refill needed
+         */
+        synchronized long tryTake() {
+            long now = System.currentTimeMillis();
+            lastUsedAt = now;
+            if (pausedUntil > now) {
+                return pausedUntil - now;
+            }
+            if (tokens > 0 && now < leaseUntil) {
+                tokens--;
+                return 0;
+            }
+            return -1;
+        }
+
+        synchronized void add(int granted) {
+            long now = System.currentTimeMillis();
+            // Leased tokens not spent within the lease are dropped, not hoarded.
+            // Unrated hosts are granted Integer.MAX_VALUE: saturate instead of overflowing.
+            tokens = now < leaseUntil ? (int) Math.min(Integer.MAX_VALUE, (long) tokens + granted) : granted;
+            leaseUntil = now + LEASE_MS;
+        }
+
+        /**
+         * Return a token taken by tryTake(); dropped if the lease is over
+         */
+        synchronized void giveBack() {
+            if (System.currentTimeMillis() < leaseUntil && tokens < Integer.MAX_VALUE) {
+                tokens++;
+            }
+        }
+
+        synchronized void pause(long ms) {
+            pausedUntil = Math.max(pausedUntil, System.currentTimeMillis() + ms);
+            tokens = 0;
+        }
+    }
+}
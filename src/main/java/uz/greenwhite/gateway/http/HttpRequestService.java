@@ -2,9 +2,10 @@ package uz.greenwhite.gateway.http;
 
 import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
 import io.github.resilience4j.circuitbreaker.CircuitBreaker;
-import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
@@ -12,13 +13,19 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import uz.greenwhite.gateway.blob.ClaimCheckService;
+import uz.greenwhite.gateway.metrics.GatewayMetrics;
 import uz.greenwhite.gateway.model.kafka.RequestMessage;
 import uz.greenwhite.gateway.model.kafka.ResponseMessage;
 import uz.greenwhite.gateway.oauth2.OAuth2ProviderService;
 import uz.greenwhite.gateway.oauth2.model.Token;
 import uz.greenwhite.gateway.config.HttpProperties;
-import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -28,57 +35,18 @@ import java.util.Map;
 public class HttpRequestService {
 
     private final WebClient webClient;
-    private final CircuitBreakerRegistry circuitBreakerRegistry;
+    private final EndpointProfileRegistry endpointProfileRegistry;
+    private final HostRateLimiter hostRateLimiter;
+    private final ResponseBodyCollector responseBodyCollector;
+    private final ClaimCheckService claimCheckService;
     private final OAuth2ProviderService oAuth2ProviderService;
     private final HttpProperties httpProperties;
+    private final Scheduler blockingScheduler;
+    private final GatewayMetrics metrics;
 
-    /**
-     * Get or create circuit breaker for specific base URL.
-     * Each external service gets its own circuit breaker.
-     */
-    private CircuitBreaker getCircuitBreaker(String baseUrl) {
-        // Extract domain from base URL for CB name
-        String cbName = extractDomainForCB(baseUrl);
-
-        CircuitBreaker cb = circuitBreakerRegistry.circuitBreaker(cbName);
-
-        // Log state transition only once per CB creation
-        cb.getEventPublisher()
-                .onStateTransition(event ->
-                        log.warn("Circuit Breaker [{}] state change: {}", cbName, event.getStateTransition()))
-                .onFailureRateExceeded(event ->
-                        log.warn("Circuit Breaker [{}] failure rate exceeded: {}%", cbName, event.getFailureRate()))
-                .onSlowCallRateExceeded(event ->
-                        log.warn("Circuit Breaker [{}] slow call rate exceeded: {}%", cbName, event.getSlowCallRate()));
-
-        return cb;
-    }
-
-    /**
-     * Extract domain from base URL for circuit breaker naming.
-     * Examples:
-     *   http://api.example.com:8080 -> cb-api.example.com
-     *   https://example.com/api/v1  -> cb-example.com
-     */
-    private String extractDomainForCB(String baseUrl) {
-        try {
-            URI uri = URI.create(baseUrl);
-            String host = uri.getHost();
-            if (host == null) {
-                // Fallback: use hashcode if URL is malformed
-                return "cb-" + Math.abs(baseUrl.hashCode());
-            }
-            return "cb-" + host;
-        } catch (Exception e) {
-            log.warn("Failed to extract domain from URL {}, using hashcode", baseUrl);
-            return "cb-" + Math.abs(baseUrl.hashCode());
-        }
-    }
-
-    
     /**
      * Send HTTP request with per-endpoint Circuit Breaker protection and OAuth2 support.
-     * Each base URL gets its own circuit breaker instance.
+     * Each host gets its own circuit breaker instance.
      *
      * Order of operations:
      *   1. Resolve OAuth2 token (before CB — token failure is NOT an external API issue)
@@ -89,65 +57,138 @@ public class HttpRequestService {
     public Mono<ResponseMessage> sendRequest(RequestMessage request) {
         String compositeId = request.getCompositeId();
 
-        // 1. Resolve OAuth2 token BEFORE Circuit Breaker
-        //    Token failure is an internal issue, not external API failure — CB should not track it
-        Map<String, String> headers;
-        try {
-            headers = addAuthorizationHeader(request);
-        } catch (OAuth2TokenException e) {
-            log.error("OAuth2 token failed, skipping HTTP call: {}", compositeId);
-            return Mono.just(buildOAuth2ErrorResponse(request, e.getMessage()));
+        if (request.getOauth2Provider() == null) {
+            return execute(request, addAuthorizationHeader(request));
         }
 
-        // 2. Get circuit breaker for THIS specific base URL
-        CircuitBreaker circuitBreaker = getCircuitBreaker(request.getBaseUrl());
-        String cbName = circuitBreaker.getName();
+        // 1. Resolve OAuth2 token BEFORE Circuit Breaker
+        //    Token failure is an internal issue, not external API failure — CB should not track it.
+        //    Token lookup is blocking (Redis + token endpoint), so it runs on blockingScheduler
+        //    (boundedElastic or virtual threads) and never on a reactor-netty event loop thread.
+        return Mono.fromCallable(() -> addAuthorizationHeader(request))
+                .subscribeOn(blockingScheduler)
+                .flatMap(headers -> execute(request, headers))
+                .onErrorResume(OAuth2TokenException.class, e -> {
+                    log.error("OAuth2 token failed, skipping HTTP call: {}", compositeId);
+                    return Mono.just(buildOAuth2ErrorResponse(request, e.getMessage()));
+                });
+    }
+
+    private Mono<ResponseMessage> execute(RequestMessage request, Map<String, String> headers) {
+        // 2. Cached endpoint profile of THIS specific base URL
+        EndpointProfile profile = endpointProfileRegistry.get(request.getBaseUrl());
+
+        // 3. Stay under the host's quota: wait for a token, or answer 429 if the wait is too long
+        return hostRateLimiter.acquire(profile, request)
+                .flatMap(waitMs -> waitMs == 0
+                        ? send(request, headers, profile)
+                        : Mono.just(buildRateLimitResponse(request, profile, waitMs)));
+    }
 
-        // 3. Check if Circuit Breaker is OPEN
+    private Mono<ResponseMessage> send(RequestMessage request, Map<String, String> headers,
+                                       EndpointProfile profile) {
+        String compositeId = request.getCompositeId();
+        CircuitBreaker circuitBreaker = profile.getCircuitBreaker();
+        String cbName = profile.getCircuitBreakerName();
+
+        // 4. Take a slot of the host's adaptive concurrency limit, reject fast if it is full
+        //    (a refused request gives its rate-limit token back: no call, no quota spent)
+        AdaptiveConcurrencyLimit.Permit permit = profile.getConcurrencyLimit().tryAcquire();
+        if (permit == null) {
+            hostRateLimiter.release(profile, request);
+            log.warn("Concurrency limit [{}] reached ({}) — request rejected: {}",
+                    profile.getHost(), profile.getConcurrencyLimit().getLimit(), compositeId);
+            metrics.recordHostLimitRejected(profile.getHost());
+            return Mono.just(buildConcurrencyLimitResponse(request, profile));
+        }
+
+        // 5. Check if Circuit Breaker is OPEN
         try {
             circuitBreaker.acquirePermission();
         } catch (CallNotPermittedException ex) {
+            permit.release();
+            hostRateLimiter.release(profile, request);
             log.warn("Circuit breaker [{}] OPEN — request blocked: {}", cbName, compositeId);
             return Mono.just(buildCircuitBreakerResponse(request, cbName));
         }
 
-        // 4. Send HTTP request — CB tracks only real HTTP outcomes
+        // 6. Send HTTP request — CB and the concurrency limit track only real HTTP outcomes
         long startTime = System.nanoTime();
         String fullUrl = buildFullUrl(request);
         HttpMethod method = HttpMethod.valueOf(request.getMethod().toUpperCase());
 
         log.info("Sending HTTP request [CB: {}]: {} {} -> {}", cbName, method, fullUrl, compositeId);
 
-        int timeoutMs = httpProperties.getTimeoutForUrl(request.getBaseUrl());
-
-        return webClient
+        WebClient.ResponseSpec spec = webClient
                 .method(method)
                 .uri(fullUrl)
                 .headers(h -> applyHeaders(h, headers))
                 .bodyValue(request.getBody() != null ? request.getBody() : "")
-                .retrieve()
-                .toEntity(String.class)
-                .timeout(java.time.Duration.ofMillis(timeoutMs))
-                .map(entity -> {
+                .retrieve();
+
+        return exchange(spec)
+                .timeout(profile.getTimeout())
+                .flatMap(result -> {
                     long duration = System.nanoTime() - startTime;
-                    int status = entity.getStatusCode().value();
                     circuitBreaker.onSuccess(duration, java.util.concurrent.TimeUnit.NANOSECONDS);
+                    permit.onSuccess();
+                    hostRateLimiter.onResponse(profile, request, result.status(), result.headers(), null);
 
                     log.info("HTTP response [CB: {}]: {} -> status={}, time={}ms",
-                            cbName, compositeId, status, duration / 1_000_000);
+                            cbName, compositeId, result.status(), duration / 1_000_000);
 
-                    String contentType = entity.getHeaders().getContentType() != null
-                            ? entity.getHeaders().getContentType().toString()
-                            : MediaType.APPLICATION_JSON_VALUE;
-
-                    return buildSuccessResponse(request, status, contentType, entity.getBody());
+                    return buildSuccessResponse(request, result);
                 })
                 .onErrorResume(ex -> {
                     long duration = System.nanoTime() - startTime;
                     circuitBreaker.onError(duration, java.util.concurrent.TimeUnit.NANOSECONDS, ex);
+                    if (isDropped(ex)) {
+                        permit.onDropped();
+                    } else {
+                        permit.onSuccess();
+                    }
+                    if (ex instanceof WebClientResponseException webEx) {
+                        hostRateLimiter.onResponse(profile, request, webEx.getStatusCode().value(),
+                                webEx.getHeaders(), parseRetryAfter(webEx.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)));
+                    }
                     log.error("HTTP request failed [CB: {}]: {} -> {}", cbName, compositeId, ex.getMessage());
                     return Mono.just(buildErrorResponse(request, ex));
-                });
+                })
+                .doFinally(signal -> permit.release());
+    }
+
+    /**
+     * Read the response: aggregated in memory (String, or byte[] in opaque body mode),
+     * or with gateway.http.streaming chunk by chunk through ResponseBodyCollector
+     */
+    private Mono<HttpResult> exchange(WebClient.ResponseSpec spec) {
+        if (httpProperties.getStreaming().isEnabled()) {
+            return spec.toEntityFlux(DataBuffer.class)
+                    .flatMap(entity -> responseBodyCollector.collect(entity.getBody())
+                            .map(body -> new HttpResult(entity.getStatusCode().value(), entity.getHeaders(), body)));
+        }
+        // Opaque body mode: keep the response as bytes, no String decoding here
+        Class<?> bodyType = httpProperties.isOpaqueBody() ? byte[].class : String.class;
+        return spec.toEntity(bodyType)
+                .map(entity -> new HttpResult(entity.getStatusCode().value(), entity.getHeaders(), entity.getBody()));
+    }
+
+    /**
+     * Status, headers and body of a successful call; body is a String, byte[] or CollectedBody
+     */
+    private record HttpResult(int status, HttpHeaders headers, Object body) {
+    }
+
+    /**
+     * Whether a failure means the host is overloaded (shrinks its concurrency limit):
+     * timeouts, connection errors, 429 and 5xx. Other 4xx are the request's fault.
+     */
+    private boolean isDropped(Throwable ex) {
+        if (ex instanceof WebClientResponseException webEx) {
+            int status = webEx.getStatusCode().value();
+            return status == 429 || status >= 500;
+        }
+        return !(ex instanceof DataBufferLimitException);
     }
 
     // ==================== OAUTH2 ====================
@@ -228,6 +269,39 @@ public class HttpRequestService {
                 .build();
     }
 
+    /**
+     * Build response for a request over its host's concurrency limit (503, retried after
+     * reject-retry-after-ms).
+     */
+    private ResponseMessage buildConcurrencyLimitResponse(RequestMessage request, EndpointProfile profile) {
+        return ResponseMessage.builder()
+                .companyId(request.getCompanyId())
+                .requestId(request.getRequestId())
+                .httpStatus(503)
+                .errorMessage("Concurrency limit [" + profile.getHost() + "] reached: " +
+                        profile.getConcurrencyLimit().getLimit() + " requests in flight")
+                .errorSource("CONCURRENCY_LIMIT")
+                .retryAfterMs(httpProperties.getLimiter().getRejectRetryAfterMs())
+                .processedAt(LocalDateTime.now())
+                .build();
+    }
+
+    /**
+     * Build response for a request held back by the host's rate limit (429, retried
+     * once a token is expected).
+     */
+    private ResponseMessage buildRateLimitResponse(RequestMessage request, EndpointProfile profile, long waitMs) {
+        return ResponseMessage.builder()
+                .companyId(request.getCompanyId())
+                .requestId(request.getRequestId())
+                .httpStatus(429)
+                .errorMessage("Rate limit [" + profile.getHost() + "] reached: next call in " + waitMs + "ms")
+                .errorSource("RATE_LIMIT")
+                .retryAfterMs(waitMs)
+                .processedAt(LocalDateTime.now())
+                .build();
+    }
+
     /**
      * Build response for OAuth2 token acquisition failure (401).
      */
@@ -243,18 +317,42 @@ public class HttpRequestService {
     }
 
     /**
-     * Build success response from HTTP entity
+     * Build success response from HTTP entity.
+     * A streamed body spilled to disk is stored in the blob store and referenced (rawBody);
+     * a streamed body kept in memory is handled like the aggregated one.
      */
-    private ResponseMessage buildSuccessResponse(RequestMessage request, int status,
-                                                 String contentType, String body) {
-        return ResponseMessage.builder()
+    private Mono<ResponseMessage> buildSuccessResponse(RequestMessage request, HttpResult result) {
+        MediaType mediaType = result.headers().getContentType();
+        var builder = ResponseMessage.builder()
                 .companyId(request.getCompanyId())
                 .requestId(request.getRequestId())
-                .httpStatus(status)
-                .contentType(contentType)
-                .body(body)
-                .processedAt(LocalDateTime.now())
-                .build();
+                .httpStatus(result.status())
+                .contentType(mediaType != null ? mediaType.toString() : MediaType.APPLICATION_JSON_VALUE)
+                .processedAt(LocalDateTime.now());
+
+        Object body = result.body();
+        if (body instanceof ResponseBodyCollector.CollectedBody collected) {
+            if (collected.isSpilled()) {
+                return claimCheckService.offload(builder.build(), collected.file())
+                        .onErrorResume(e -> {
+                            log.error("Failed to store streamed response of {}: {}",
+                                    request.getCompositeId(), e.getMessage());
+                            return Mono.just(buildErrorResponse(request, e));
+                        });
+            }
+            body = collected.bytes() == null || httpProperties.isOpaqueBody()
+                    ? collected.bytes()
+                    : new String(collected.bytes(), mediaType != null && mediaType.getCharset() != null
+                            ? mediaType.getCharset()
+                            : StandardCharsets.UTF_8);
+        }
+
+        if (httpProperties.isOpaqueBody()) {
+            builder.rawBody(true).bodyBytes((byte[]) body);
+        } else {
+            builder.body((String) body);
+        }
+        return Mono.just(builder.build());
     }
 
     /**
@@ -263,10 +361,12 @@ public class HttpRequestService {
     private ResponseMessage buildErrorResponse(RequestMessage request, Throwable ex) {
         int status = 500;
         String errorMessage = ex.getMessage();
+        Long retryAfterMs = null;
 
         if (ex instanceof WebClientResponseException webEx) {
             status = webEx.getStatusCode().value();
             errorMessage = "HTTP " + status + ": " + webEx.getStatusText();
+            retryAfterMs = parseRetryAfter(webEx.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
         }
 
         return ResponseMessage.builder()
@@ -275,10 +375,33 @@ public class HttpRequestService {
                 .httpStatus(status)
                 .errorMessage(errorMessage)
                 .errorSource("HTTP")
+                .retryAfterMs(retryAfterMs)
                 .processedAt(LocalDateTime.now())
                 .build();
     }
 
+    /**
+     * Parse Retry-After (delta-seconds or HTTP-date) into milliseconds from now.
+     * Returns null if the header is absent or malformed.
+     */
+    private Long parseRetryAfter(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Math.max(0, Long.parseLong(value.trim()) * 1000);
+        } catch (NumberFormatException ignored) {
+            // not delta-seconds, try HTTP-date
+        }
+        try {
+            ZonedDateTime at = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+            return Math.max(0, Duration.between(ZonedDateTime.now(at.getZone()), at).toMillis());
+        } catch (Exception e) {
+            log.debug("Ignoring malformed Retry-After header: {}", value);
+            return null;
+        }
+    }
+
     /**
      * Custom exception for OAuth2 token failures
      */
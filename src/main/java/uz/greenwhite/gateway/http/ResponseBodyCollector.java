@@ -0,0 +1,180 @@
+package uz.greenwhite.gateway.http;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import uz.greenwhite.gateway.config.ClaimCheckProperties;
+import uz.greenwhite.gateway.config.HttpProperties;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a streamed response body (gateway.http.streaming) without aggregating it on the heap.
+ *
+ * Chunks are copied into memory up to memory-threshold-bytes; past it the body is spilled
+ * to a temp file and every further chunk is written straight through. Each DataBuffer is
+ * released as soon as it is copied and at most a few are buffered ahead, so the heap
+ * held per request is bounded by the threshold. max-bytes is checked per chunk: an
+ * oversized response fails with DataBufferLimitException as soon as it crosses the limit.
+ *
+ * Reading runs on blockingScheduler (file writes are blocking).
+ *
+ * Spilled bodies go to the blob store, which must be FILESYSTEM: in Redis each one
+ * would only move from the heap into Redis memory. The heap bound holds while reading;
+ * the save (ResponseConsumer) still loads one body at a time, at most max-bytes.
+ */
+@Slf4j
+@Component
+public class ResponseBodyCollector {
+
+    private static final int PREFETCH = 4;
+
+    private final HttpProperties.Streaming properties;
+    private final Scheduler blockingScheduler;
+    private final Path directory;
+
+    public ResponseBodyCollector(HttpProperties httpProperties, ClaimCheckProperties claimCheckProperties,
+                                 Scheduler blockingScheduler) throws IOException {
+        this.properties = httpProperties.getStreaming();
+        this.blockingScheduler = blockingScheduler;
+        if (properties.isEnabled() && claimCheckProperties.getStore() != ClaimCheckProperties.Store.FILESYSTEM) {
+            throw new IllegalArgumentException(
+                    "gateway.http.streaming.enabled requires gateway.claim-check.store=FILESYSTEM");
+        }
+        this.directory = properties.isEnabled()
+                ? Files.createDirectories(Path.of(properties.getDirectory()))
+                : Path.of(properties.getDirectory());
+    }
+
+    /**
+     * @return the body: in memory, spilled to a file, or empty (no body)
+     */
+    public Mono<CollectedBody> collect(Flux<DataBuffer> body) {
+        return Mono.using(Sink::new,
+                sink -> body.publishOn(blockingScheduler, PREFETCH)
+                        .doOnNext(sink::append)
+                        .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+                        .then(Mono.fromCallable(sink::finish)),
+                Sink::close);
+    }
+
+    /**
+     * Collected body: bytes (at most memory-threshold-bytes) or a temp file owned by the caller
+     */
+    public record CollectedBody(byte[] bytes, Path file, long size) {
+
+        static final CollectedBody EMPTY = new CollectedBody(null, null, 0);
+
+        public boolean isSpilled() {
+            return file != null;
+        }
+    }
+
+    /**
+     * Accumulates one body; the temp file is deleted on close unless handed over by finish().
+     *
+     * append / finish run on blockingScheduler, close may run on the cancelling thread:
+     * all of them hold the lock. After close, append only releases the buffer, so no file
+     * is created or written once close has deleted it.
+     */
+    private class Sink {
+
+        private final Object lock = new Object();
+        private ByteArrayOutputStream memory = new ByteArrayOutputStream();
+        private Path file;
+        private FileChannel channel;
+        private long size;
+        private boolean handedOver;
+        private boolean closed;
+
+        void append(DataBuffer buffer) {
+            synchronized (lock) {
+                try {
+                    if (closed) {
+                        return;
+                    }
+                    int length = buffer.readableByteCount();
+                    size += length;
+                    if (size > properties.getMaxBytes()) {
+                        throw new DataBufferLimitException("Response exceeds gateway.http.streaming.max-bytes ("
+                                + properties.getMaxBytes() + " bytes)");
+                    }
+
+                    if (channel == null && size > properties.getMemoryThresholdBytes()) {
+                        spill();
+                    }
+                    if (channel != null) {
+                        try (DataBuffer.ByteBufferIterator chunks = buffer.readableByteBuffers()) {
+                            while (chunks.hasNext()) {
+                                ByteBuffer chunk = chunks.next();
+                                while (chunk.hasRemaining()) {
+                                    channel.write(chunk);
+                                }
+                            }
+                        }
+                    } else {
+                        byte[] bytes = new byte[length];
+                        buffer.read(bytes);
+                        memory.write(bytes, 0, length);
+                    }
+                } catch (IOException e) {
+                    throw new IllegalStateException("Failed to spill response body to " + file, e);
+                } finally {
+                    DataBufferUtils.release(buffer);
+                }
+            }
+        }
+
+        /**
+         * Must be called while holding the lock
+         */
+        private void spill() throws IOException {
+            file = Files.createTempFile(directory, "body-", ".tmp");
+            channel = FileChannel.open(file, StandardOpenOption.WRITE);
+            channel.write(ByteBuffer.wrap(memory.toByteArray()));
+            memory = null;
+            log.debug("Response body above {} bytes, spilling to {}", properties.getMemoryThresholdBytes(), file);
+        }
+
+        CollectedBody finish() throws IOException {
+            synchronized (lock) {
+                if (closed) {
+                    throw new IllegalStateException("Response body collection was cancelled");
+                }
+                if (channel != null) {
+                    channel.close();
+                    handedOver = true;
+                    return new CollectedBody(null, file, size);
+                }
+                return size == 0 ? CollectedBody.EMPTY : new CollectedBody(memory.toByteArray(), null, size);
+            }
+        }
+
+        void close() {
+            synchronized (lock) {
+                closed = true;
+                memory = null;
+                if (file == null || handedOver) {
+                    return;
+                }
+                try {
+                    channel.close();
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    log.warn("Failed to delete partial response body {}: {}", file, e.getMessage());
+                }
+            }
+        }
+    }
+}
@@ -3,25 +3,38 @@ package uz.greenwhite.gateway.kafka.consumer;
 import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.support.Acknowledgment;
-import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import uz.greenwhite.gateway.blob.ClaimCheckService;
+import uz.greenwhite.gateway.concurrency.InFlightLimiter;
+import uz.greenwhite.gateway.concurrency.KeyOrderedExecutor;
+import uz.greenwhite.gateway.concurrency.MonitoredExecutor;
 import uz.greenwhite.gateway.config.KafkaProperties;
+import uz.greenwhite.gateway.config.ProcessingProperties;
 import uz.greenwhite.gateway.config.RetryProperties;
 import uz.greenwhite.gateway.http.HttpRequestService;
 import uz.greenwhite.gateway.kafka.producer.RequestProducer;
 import uz.greenwhite.gateway.metrics.GatewayMetrics;
+import uz.greenwhite.gateway.model.RequestState;
 import uz.greenwhite.gateway.model.enums.ErrorSource;
 import uz.greenwhite.gateway.model.enums.RequestStatus;
 import uz.greenwhite.gateway.model.kafka.DlqMessage;
 import uz.greenwhite.gateway.model.kafka.RequestMessage;
 import uz.greenwhite.gateway.model.kafka.ResponseMessage;
+import uz.greenwhite.gateway.state.AdmissionResult;
 import uz.greenwhite.gateway.state.RequestStateService;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Service
@@ -31,17 +44,31 @@ public class RequestConsumer {
     private final RequestStateService requestStateService;
     private final RequestProducer requestProducer;
     private final RetryProperties retryProperties;
-    private final ThreadPoolTaskExecutor httpExecutor;
+    private final MonitoredExecutor httpExecutor;
     private final GatewayMetrics metrics;
     private final KafkaProperties kafkaProperties;
+    private final ProcessingProperties processingProperties;
+    private final InFlightLimiter inFlightLimiter;
+    private final KeyOrderedExecutor keyOrderedExecutor;
+    private final ClaimCheckService claimCheckService;
+
+    /**
+     * Completion of the last dispatched batch, per listener thread (batch mode)
+     */
+    private final ThreadLocal<CompletableFuture<Void>> pendingBatch =
+            ThreadLocal.withInitial(() -> CompletableFuture.completedFuture(null));
 
     public RequestConsumer(
             HttpRequestService httpRequestService,
             RequestStateService requestStateService,
             RequestProducer requestProducer,
             RetryProperties retryProperties,
-            @Qualifier("httpRequestExecutor") ThreadPoolTaskExecutor httpExecutor,
-            GatewayMetrics metrics, KafkaProperties kafkaProperties) {
+            @Qualifier("httpRequestExecutor") MonitoredExecutor httpExecutor,
+            GatewayMetrics metrics, KafkaProperties kafkaProperties,
+            ProcessingProperties processingProperties,
+            InFlightLimiter inFlightLimiter,
+            KeyOrderedExecutor keyOrderedExecutor,
+            ClaimCheckService claimCheckService) {
         this.httpRequestService = httpRequestService;
         this.requestStateService = requestStateService;
         this.requestProducer = requestProducer;
@@ -49,13 +76,18 @@ public class RequestConsumer {
         this.httpExecutor = httpExecutor;
         this.metrics = metrics;
         this.kafkaProperties = kafkaProperties;
+        this.processingProperties = processingProperties;
+        this.inFlightLimiter = inFlightLimiter;
+        this.keyOrderedExecutor = keyOrderedExecutor;
+        this.claimCheckService = claimCheckService;
     }
 
     @KafkaListener(
             id = "requestConsumer",
             topics = "${gateway.kafka.topics.request-new}",
             groupId = "${spring.kafka.consumer.group-id}",
-            containerFactory = "requestConsumerFactory"
+            containerFactory = "requestConsumerFactory",
+            autoStartup = "#{!${gateway.kafka.batch.request-enabled:false}}"
     )
     public void consumeRequest(ConsumerRecord<String, RequestMessage> record, Acknowledgment ack) {
         String key = record.key();
@@ -67,40 +99,32 @@ public class RequestConsumer {
         // ===== E3: Consumer received =====
         metrics.getConsumerReceived().increment();
 
-        try {
-            // 1. Idempotency check
-            if (requestStateService.isCompleted(key)) {
-                log.warn("Request already completed, skipping: {}", key);
-                metrics.getConsumerSkippedDuplicate().increment();
-                ack.acknowledge();
-                return;
-            }
+        if (processingProperties.getParallel().isEnabled()) {
+            consumeParallel(key, message, ack);
+            return;
+        }
 
-            // 2. Concurrency lock
-            if (!requestStateService.tryLock(key)) {
-                log.warn("Request is being processed by another instance: {}", key);
-                metrics.getConsumerLockFailed().increment();
+        if (processingProperties.isReactive()) {
+            consumeReactive(key, message, ack);
+            return;
+        }
+
+        try {
+            // 1-2. Idempotency check + concurrency lock (one round trip)
+            if (!admit(key)) {
                 ack.acknowledge();
                 return;
             }
 
             // 3. Delegate HTTP work to a separate thread pool
-            CompletableFuture.runAsync(() -> {
-                try {
-                    processRequest(key, message);
-                } catch (Exception e) {
-                    log.error("Async processing failed for {}: {}", key, e.getMessage(), e);
-                    handleFailedProcessing(key, message, e);
-                } finally {
-                    requestStateService.releaseLock(key);
-                }
-            }, httpExecutor).whenComplete((result, throwable) -> {
-                if (throwable != null) {
-                    log.error("Unexpected error in async processing for {}: {}",
-                            key, throwable.getMessage(), throwable);
-                }
-                ack.acknowledge();
-            });
+            CompletableFuture.runAsync(() -> processLockedBlocking(key, message), httpExecutor)
+                    .whenComplete((result, throwable) -> {
+                        if (throwable != null) {
+                            log.error("Unexpected error in async processing for {}: {}",
+                                    key, throwable.getMessage(), throwable);
+                        }
+                        ack.acknowledge();
+                    });
 
         } catch (Exception e) {
             log.error("Error submitting request {}: {}", key, e.getMessage(), e);
@@ -110,113 +134,485 @@ public class RequestConsumer {
     }
 
     /**
-     * Process single request (runs on httpExecutor thread)
+     * Batch listener (gateway.kafka.batch.request-enabled): a whole poll is admitted
+     * in one pipelined Redis round trip and its records are dispatched concurrently.
+     *
+     * The poll is acknowledged as one unit once all its records are done. Batches of
+     * the same consumer thread are acked in poll order, so a fast batch never commits
+     * past a slower earlier one.
      */
-    private void processRequest(String key, RequestMessage message) {
-        // 1. Create initial state
-        requestStateService.createInitialState(key);
-
-        // 2. Update status to SENT
-        requestStateService.updateStatus(key, RequestStatus.SENT);
+    @KafkaListener(
+            id = "requestBatchConsumer",
+            topics = "${gateway.kafka.topics.request-new}",
+            groupId = "${spring.kafka.consumer.group-id}",
+            containerFactory = "requestBatchConsumerFactory",
+            autoStartup = "${gateway.kafka.batch.request-enabled:false}"
+    )
+    public void consumeRequestBatch(List<ConsumerRecord<String, RequestMessage>> records, Acknowledgment ack) {
+        log.info("Received request batch: {} records [partition={}, offset={}]",
+                records.size(), records.get(0).partition(), records.get(0).offset());
 
-        // ===== E4: HTTP Request with Timer =====
-        Timer.Sample httpSample = Timer.start(metrics.getRegistry());
+        // ===== E3: Consumer received =====
+        metrics.getConsumerReceived().increment(records.size());
+
+        List<ConsumerRecord<String, RequestMessage>> valid = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, RequestMessage> record : records) {
+            if (record.value() == null) {
+                log.error("Skipping undeserializable record [partition={}, offset={}]",
+                        record.partition(), record.offset());
+                continue;
+            }
+            valid.add(record);
+        }
 
-        ResponseMessage response;
+        // 1-2. Idempotency check + concurrency lock for the whole poll
+        List<String> keys = valid.stream().map(ConsumerRecord::key).toList();
+        List<AdmissionResult> admissions;
         try {
-            response = httpRequestService.sendRequest(message)
-                    .block(java.time.Duration.ofMillis(
-                            retryProperties.getIntervalMs() * retryProperties.getMaxAttempts() + 60_000));
+            admissions = requestStateService.admitAll(keys);
         } catch (Exception e) {
-            httpSample.stop(metrics.getHttpRequestTimer());
-
-            // Timeout or connection error?
-            if (isTimeoutException(e)) {
-                metrics.recordHttpTimeout();
-                log.error("E4: HTTP timeout for {}: {}", key, e.getMessage());
-            } else {
-                metrics.getHttpError5xx().increment();
-                log.error("E4: HTTP exception for {}: {}", key, e.getMessage());
+            // Nothing was dispatched yet, but part of the pipeline may have run and taken
+            // locks. Without releasing them the redelivered records would be skipped as LOCKED.
+            log.error("Batch admission failed ({} records), redelivering: {}", valid.size(), e.getMessage(), e);
+            try {
+                requestStateService.releaseLocks(keys);
+            } catch (Exception releaseError) {
+                log.error("Failed to release locks of the batch, they expire by TTL: {}",
+                        releaseError.getMessage());
             }
-
-            handleFailedProcessing(key, message, e);
+            ack.nack(0, Duration.ofMillis(retryProperties.getIntervalMs()));
             return;
         }
 
-        httpSample.stop(metrics.getHttpRequestTimer());
+        // 3. Dispatch admitted records concurrently
+        List<CompletableFuture<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < valid.size(); i++) {
+            String key = valid.get(i).key();
+            if (isAdmitted(key, admissions.get(i))) {
+                tasks.add(dispatchAdmitted(key, valid.get(i).value()));
+            }
+        }
 
-        // 4. Handle response
-        if (response != null && response.isSuccess()) {
-            metrics.getHttpSuccess().increment();
-            handleSuccess(key, message, response);
+        CompletableFuture<Void> batchDone = CompletableFuture.allOf(tasks.toArray(CompletableFuture[]::new))
+                .exceptionally(e -> {
+                    log.error("Unexpected error in batch processing: {}", e.getMessage(), e);
+                    return null;
+                });
+
+        CompletableFuture<Void> previous = pendingBatch.get();
+        CompletableFuture<Void> current = previous.thenCombine(batchDone, (a, b) -> null);
+        pendingBatch.set(current);
+        current.whenComplete((result, throwable) -> ack.acknowledge());
+    }
+
+    /**
+     * E4 retries (gateway.retry.tiers topics). Every record is scheduled for its own due
+     * time and processed off the listener thread, like request-new; acks arrive in
+     * completion order (asyncAcks).
+     *
+     * A tier topic holds delays from its tier up to the next tier (plus jitter and
+     * Retry-After), so records are not due in publish order. Within a poll each record
+     * waits only for itself; the next poll waits until the whole previous poll is acked,
+     * so a record can run late by at most the gap to the next tier. Finer tiers bound it.
+     *
+     * Once due, a record takes the same path as request-new: in REACTIVE mode it takes an
+     * InFlightLimiter permit (without blocking a Reactor thread), and in parallel mode it
+     * runs under its ordering key, so it never overlaps a newer record of the same key.
+     * The wait itself holds neither.
+     */
+    @KafkaListener(
+            id = "requestRetryConsumer",
+            topics = "#{@requestRetryTopicNames}",
+            groupId = "${spring.kafka.consumer.group-id}",
+            containerFactory = "retryConsumerFactory"
+    )
+    public void consumeRetry(ConsumerRecord<String, RequestMessage> record, Acknowledgment ack) {
+        String key = record.key();
+        RequestMessage message = record.value();
+
+        long waitMs = Math.max(0, retryDueAt(record) - System.currentTimeMillis());
+
+        log.info("Received retry: {} [topic={}, partition={}, offset={}, due in {}ms]",
+                key, record.topic(), record.partition(), record.offset(), waitMs);
+
+        String orderingKey = processingProperties.getParallel().isEnabled()
+                ? resolveOrderingKey(key, message)
+                : null;
+
+        CompletableFuture<Void> task;
+        if (processingProperties.isReactive()) {
+            task = Mono.delay(Duration.ofMillis(waitMs))
+                    .then(Mono.defer(inFlightLimiter::acquireReactive))
+                    .then(Mono.defer(() -> Mono.fromFuture(keyOrderedExecutor.submit(orderingKey,
+                                    () -> admitAndProcess(key, message).toFuture()))
+                            .doFinally(signal -> inFlightLimiter.release())))
+                    .toFuture();
         } else {
-            // ===== E4: Record HTTP error by status code =====
-            int httpStatus = response != null ? response.getHttpStatus() : 0;
-            metrics.recordHttpResult(httpStatus);
-            handleFailedResponse(key, message, response);
+            task = CompletableFuture.runAsync(() -> { },
+                            CompletableFuture.delayedExecutor(waitMs, TimeUnit.MILLISECONDS))
+                    .thenCompose(v -> keyOrderedExecutor.submit(orderingKey, () -> CompletableFuture.runAsync(() -> {
+                        if (admit(key)) {
+                            processLockedBlocking(key, message);
+                        }
+                    }, httpExecutor)));
         }
+
+        task.whenComplete((result, throwable) -> {
+            if (throwable != null) {
+                log.error("Error processing retry {}: {}", key, throwable.getMessage(), throwable);
+            }
+            ack.acknowledge();
+        });
     }
 
-    private void handleSuccess(String key, RequestMessage request, ResponseMessage response) {
+    private long retryDueAt(ConsumerRecord<String, RequestMessage> record) {
+        Header header = record.headers().lastHeader(RequestProducer.RETRY_DUE_AT_HEADER);
+        if (header == null) {
+            return 0;
+        }
         try {
-            requestProducer.sendResponse(response).get(10, java.util.concurrent.TimeUnit.SECONDS);
-            requestStateService.updateStatus(key, RequestStatus.COMPLETED);
-            log.info("Request processed successfully: {}", key);
+            return Long.parseLong(new String(header.value(), StandardCharsets.UTF_8));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Run an already admitted request (lock held) asynchronously
+     */
+    private CompletableFuture<Void> dispatchAdmitted(String key, RequestMessage message) {
+        if (!processingProperties.isReactive()) {
+            return CompletableFuture.runAsync(() -> processLockedBlocking(key, message), httpExecutor);
+        }
+
+        try {
+            inFlightLimiter.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            requestStateService.releaseLock(key);
+            return CompletableFuture.failedFuture(e);
+        }
+        return processLocked(key, message)
+                .doFinally(signal -> inFlightLimiter.release())
+                .toFuture();
+    }
+
+    /**
+     * REACTIVE mode: the whole chain (idempotency check, lock, state updates,
+     * HTTP call, response produce, ack) is a single non-blocking Mono.
+     * No thread is held while the external API is slow — concurrency is
+     * bounded by InFlightLimiter permits instead of the thread pool size.
+     */
+    private void consumeReactive(String key, RequestMessage message, Acknowledgment ack) {
+        try {
+            inFlightLimiter.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while waiting for in-flight permit, message not acknowledged: {}", key);
+            return;
+        }
+
+        try {
+            admitAndProcess(key, message)
+                    .doFinally(signal -> {
+                        inFlightLimiter.release();
+                        ack.acknowledge();
+                    })
+                    .subscribe(null, e -> log.error("Error in reactive processing for {}: {}",
+                            key, e.getMessage(), e));
+
         } catch (Exception e) {
-            log.error("E4: Failed to send response to Kafka for {}: {}", key, e.getMessage());
-
-            // RecordTooLargeException yoki boshqa Kafka xatolari uchun DLQ ga yuborish
-            DlqMessage dlqMessage = DlqMessage.builder()
-                    .companyId(response.getCompanyId())
-                    .requestId(response.getRequestId())
-                    .originalTopic(kafkaProperties.getTopics().getRequestResponse())
-                    .failureReason("Response too large for Kafka: " + e.getMessage())
-                    .errorSource("KAFKA")
-                    .httpStatus(response.getHttpStatus())
-                    .attemptCount(1)
-                    .url(request.getMethod() + " " + request.getBaseUrl() + (request.getUri() != null ? request.getUri() : ""))
-                    .failedAt(java.time.LocalDateTime.now())
-                    .build();
-
-            requestProducer.sendToDlq(dlqMessage);
-            requestStateService.updateStatus(key, RequestStatus.FAILED);
+            log.error("Error submitting request {}: {}", key, e.getMessage(), e);
+            inFlightLimiter.release();
+            ack.acknowledge();
         }
     }
 
-    private void handleFailedResponse(String key, RequestMessage message, ResponseMessage response) {
-        int attemptCount = requestStateService.incrementAttempt(key);
-        int httpStatus = response != null ? response.getHttpStatus() : 0;
-        String errorMessage = response != null ? response.getErrorMessage() : "Unknown error";
+    /**
+     * Parallel consumer mode: records of one partition run concurrently,
+     * records with the same ordering key run one after another.
+     * The idempotency check and lock run inside the ordered task, so a record
+     * sees the final state left by the previous record with the same key.
+     * Acks arrive in completion order; the container (asyncAcks) commits only
+     * up to the lowest contiguous completed offset.
+     * In REACTIVE mode the in-flight permit is taken here, on the consumer thread,
+     * so max-in-flight bounds parallel records as well (backpressure on the poll).
+     */
+    private void consumeParallel(String key, RequestMessage message, Acknowledgment ack) {
+        String orderingKey = resolveOrderingKey(key, message);
+        boolean reactive = processingProperties.isReactive();
+
+        if (reactive) {
+            try {
+                inFlightLimiter.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.warn("Interrupted while waiting for in-flight permit, message not acknowledged: {}", key);
+                return;
+            }
+        }
 
-        boolean isRetryable = retryProperties.isRetryable(httpStatus);
-        boolean hasAttemptsLeft = attemptCount < retryProperties.getMaxAttempts();
+        keyOrderedExecutor.submit(orderingKey, () -> reactive
+                        ? admitAndProcess(key, message).toFuture()
+                        : CompletableFuture.runAsync(() -> {
+                            if (admit(key)) {
+                                processLockedBlocking(key, message);
+                            }
+                        }, httpExecutor))
+                .whenComplete((result, throwable) -> {
+                    if (reactive) {
+                        inFlightLimiter.release();
+                    }
+                    if (throwable != null) {
+                        log.error("Unexpected error in parallel processing for {}: {}",
+                                key, throwable.getMessage(), throwable);
+                    }
+                    ack.acknowledge();
+                });
+    }
 
-        if (isRetryable && hasAttemptsLeft) {
-            // ===== E4: Retry metric =====
-            metrics.getHttpRetry().increment();
-            log.warn("E4: Retryable error for {}: status={}, attempt {}/{}",
-                    key, httpStatus, attemptCount, retryProperties.getMaxAttempts());
-            requestProducer.sendRequest(message);
-        } else {
-            handlePermanentFailure(key, message, httpStatus, errorMessage, ErrorSource.HTTP);
+    private String resolveOrderingKey(String key, RequestMessage message) {
+        return switch (processingProperties.getParallel().getOrderingKey()) {
+            case NONE -> null;
+            case COMPOSITE_ID -> key;
+            case SOURCE_ID -> message.getSourceId() != null
+                    ? message.getSourceTable() + ":" + message.getSourceId()
+                    : key;
+        };
+    }
+
+    /**
+     * Idempotency check + concurrency lock + initial state — one Redis round trip (blocking).
+     *
+     * @return true if the lock was taken and the request must be processed
+     */
+    private boolean admit(String key) {
+        return isAdmitted(key, requestStateService.admit(key));
+    }
+
+    /**
+     * Reactive admit, then the pipeline while holding the lock
+     */
+    private Mono<Void> admitAndProcess(String key, RequestMessage message) {
+        return requestStateService.admitReactive(key)
+                .flatMap(result -> isAdmitted(key, result)
+                        ? processLocked(key, message)
+                        : Mono.<Void>empty());
+    }
+
+    private boolean isAdmitted(String key, AdmissionResult result) {
+        switch (result) {
+            case ALREADY_COMPLETED -> {
+                log.warn("Request already completed, skipping: {}", key);
+                metrics.getConsumerSkippedDuplicate().increment();
+                return false;
+            }
+            case LOCKED -> {
+                log.warn("Request is being processed by another instance: {}", key);
+                metrics.getConsumerLockFailed().increment();
+                return false;
+            }
+            default -> {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Run the pipeline on the current thread while holding the lock (BLOCKING mode)
+     */
+    private void processLockedBlocking(String key, RequestMessage message) {
+        try {
+            processRequest(key, message).block();
+        } catch (Exception e) {
+            log.error("Async processing failed for {}: {}", key, e.getMessage(), e);
+            handleFailedProcessing(key, message, e).block();
+        } finally {
+            requestStateService.releaseLock(key);
         }
     }
 
-    private void handleFailedProcessing(String key, RequestMessage message, Exception e) {
-        int attemptCount = requestStateService.incrementAttempt(key);
+    /**
+     * Run the pipeline while holding the lock, always releasing it at the end
+     */
+    private Mono<Void> processLocked(String key, RequestMessage message) {
+        return processRequest(key, message)
+                .onErrorResume(e -> {
+                    log.error("Async processing failed for {}: {}", key, e.getMessage(), e);
+                    return handleFailedProcessing(key, message, e);
+                })
+                .onErrorResume(e -> {
+                    log.error("Unexpected error in async processing for {}: {}", key, e.getMessage(), e);
+                    return Mono.empty();
+                })
+                .then(Mono.defer(() -> requestStateService.releaseLockReactive(key)));
+    }
 
-        if (attemptCount < retryProperties.getMaxAttempts()) {
-            metrics.getHttpRetry().increment();
-            log.warn("E4: Processing error for {}, attempt {}/{}, re-sending",
-                    key, attemptCount, retryProperties.getMaxAttempts());
-            requestProducer.sendRequest(message);
-        } else {
-            handlePermanentFailure(key, message, 0, e.getMessage(), ErrorSource.SYSTEM);
+    /**
+     * Process single request.
+     * BLOCKING mode subscribes to it on an httpExecutor thread and blocks;
+     * REACTIVE mode composes it directly, without blocking any thread.
+     */
+    private Mono<Void> processRequest(String key, RequestMessage message) {
+        // 1. Initial PROCESSING state was created together with the lock
+        // 2. Update status to SENT
+        return requestStateService.transitionReactive(key, RequestStatus.SENT, RequestStatus.PROCESSING)
+                // 3. Send HTTP request and handle response
+                .then(Mono.defer(() -> sendHttpRequest(key, message)));
+    }
+
+    private Mono<Void> sendHttpRequest(String key, RequestMessage message) {
+        // ===== E4: HTTP Request with Timer =====
+        Timer.Sample httpSample = Timer.start(metrics.getRegistry());
+
+        // An offloaded body is loaded for the call only; the message keeps the reference
+        return Mono.defer(() -> claimCheckService.resolve(message))
+                .flatMap(httpRequestService::sendRequest)
+                .timeout(Duration.ofMillis(
+                        retryProperties.getIntervalMs() * retryProperties.getMaxAttempts() + 60_000))
+                .doOnSuccess(response -> httpSample.stop(metrics.getHttpRequestTimer()))
+                .doOnError(e -> httpSample.stop(metrics.getHttpRequestTimer()))
+                .onErrorResume(e -> {
+                    // Timeout or connection error?
+                    if (isTimeoutException(e)) {
+                        metrics.recordHttpTimeout();
+                        log.error("E4: HTTP timeout for {}: {}", key, e.getMessage());
+                    } else {
+                        metrics.getHttpError5xx().increment();
+                        log.error("E4: HTTP exception for {}: {}", key, e.getMessage());
+                    }
+
+                    return handleFailedProcessing(key, message, e).then(Mono.empty());
+                })
+                .flatMap(response -> handleResponse(key, message, response));
+    }
+
+    private Mono<Void> handleResponse(String key, RequestMessage message, ResponseMessage response) {
+        if (response.isSuccess()) {
+            metrics.getHttpSuccess().increment();
+            return handleSuccess(key, message, response);
+        }
+        if (isLocalRefusal(response)) {
+            return deferLocalRefusal(key, message, response);
         }
+
+        // ===== E4: Record HTTP error by status code =====
+        metrics.recordHttpResult(response.getHttpStatus());
+        return handleFailedResponse(key, message, response);
+    }
+
+    private Mono<Void> handleSuccess(String key, RequestMessage request, ResponseMessage response) {
+        return Mono.defer(() -> claimCheckService.offload(response))
+                .flatMap(offloaded -> Mono.fromFuture(() -> requestProducer.sendResponse(offloaded)))
+                .timeout(Duration.ofSeconds(10))
+                .then(requestStateService.transitionReactive(key, RequestStatus.COMPLETED, RequestStatus.SENT))
+                .then(claimCheckService.release(request))
+                .doOnSuccess(v -> log.info("Request processed successfully: {}", key))
+                .onErrorResume(e -> {
+                    log.error("E4: Failed to send response to Kafka for {}: {}", key, e.getMessage());
+
+                    // RecordTooLargeException yoki boshqa Kafka xatolari uchun DLQ ga yuborish
+                    DlqMessage dlqMessage = DlqMessage.builder()
+                            .companyId(response.getCompanyId())
+                            .requestId(response.getRequestId())
+                            .originalTopic(kafkaProperties.getTopics().getRequestResponse())
+                            .failureReason("Response too large for Kafka: " + e.getMessage())
+                            .errorSource("KAFKA")
+                            .httpStatus(response.getHttpStatus())
+                            .attemptCount(1)
+                            .url(request.getMethod() + " " + request.getBaseUrl() + (request.getUri() != null ? request.getUri() : ""))
+                            .failedAt(LocalDateTime.now())
+                            .build();
+
+                    requestProducer.sendToDlq(dlqMessage);
+                    // offload() set the reference on the response itself
+                    return requestStateService.markFailedReactive(key, e.getMessage(), ErrorSource.SYSTEM)
+                            .then(claimCheckService.release(request))
+                            .then(claimCheckService.releaseReactive(response));
+                });
+    }
+
+    private Mono<Void> handleFailedResponse(String key, RequestMessage message, ResponseMessage response) {
+        int httpStatus = response.getHttpStatus();
+        String errorMessage = response.getErrorMessage() != null ? response.getErrorMessage() : "Unknown error";
+
+        return requestStateService.incrementAttemptReactive(key).flatMap(attemptCount -> {
+            boolean isRetryable = retryProperties.isRetryable(httpStatus);
+            boolean hasAttemptsLeft = attemptCount < retryProperties.getMaxAttempts();
+
+            if (isRetryable && hasAttemptsLeft) {
+                // ===== E4: Retry metric =====
+                metrics.getHttpRetry().increment();
+                log.warn("E4: Retryable error for {}: status={}, attempt {}/{}",
+                        key, httpStatus, attemptCount, retryProperties.getMaxAttempts());
+                return scheduleRetry(key, message, attemptCount, response.getRetryAfterMs(),
+                        httpStatus, errorMessage, ErrorSource.HTTP);
+            }
+
+            return handlePermanentFailure(key, message, httpStatus, errorMessage, ErrorSource.HTTP);
+        });
+    }
+
+    private Mono<Void> handleFailedProcessing(String key, RequestMessage message, Throwable e) {
+        return requestStateService.incrementAttemptReactive(key).flatMap(attemptCount -> {
+            if (attemptCount < retryProperties.getMaxAttempts()) {
+                metrics.getHttpRetry().increment();
+                log.warn("E4: Processing error for {}, attempt {}/{}, re-sending",
+                        key, attemptCount, retryProperties.getMaxAttempts());
+                return scheduleRetry(key, message, attemptCount, null,
+                        0, e.getMessage(), ErrorSource.SYSTEM);
+            }
+
+            return handlePermanentFailure(key, message, 0, e.getMessage(), ErrorSource.SYSTEM);
+        });
+    }
+
+    /**
+     * Refused by the gateway itself (host concurrency limit, or no rate limit token
+     * within max-wait-ms): the host was never called
+     */
+    private boolean isLocalRefusal(ResponseMessage response) {
+        return "CONCURRENCY_LIMIT".equals(response.getErrorSource())
+                || "RATE_LIMIT".equals(response.getErrorSource());
     }
 
-    private void handlePermanentFailure(String key, RequestMessage message,
-                                        int httpStatus, String errorMessage, ErrorSource source) {
+    /**
+     * Re-publish a locally refused request for the suggested wait (reject-retry-after-ms,
+     * or the time until a rate limit token is expected). No attempt is used and no HTTP
+     * error is recorded, so a shrunken limit or a spent quota delays the backlog but
+     * never sends it to the DLQ. The state stays SENT, as for any retry.
+     */
+    private Mono<Void> deferLocalRefusal(String key, RequestMessage message, ResponseMessage response) {
+        long delayMs = response.getRetryAfterMs() != null ? response.getRetryAfterMs() : retryProperties.getIntervalMs();
+        log.debug("E4: {} deferred by {} for {}ms", key, response.getErrorSource(), delayMs);
+
+        return Mono.fromFuture(() -> requestProducer.sendRetry(message, delayMs))
+                .then()
+                .onErrorResume(e -> {
+                    log.error("E4: Failed to defer {}: {}", key, e.getMessage());
+                    return handlePermanentFailure(key, message, response.getHttpStatus(),
+                            response.getErrorMessage(), ErrorSource.SYSTEM);
+                });
+    }
+
+    /**
+     * Publish the request to the retry tier for its jittered backoff delay.
+     * If the retry cannot be published, the request fails permanently instead of being lost.
+     */
+    private Mono<Void> scheduleRetry(String key, RequestMessage message, int attemptCount, Long retryAfterMs,
+                                     int httpStatus, String errorMessage, ErrorSource source) {
+        long delayMs = retryProperties.retryDelayMs(attemptCount, retryAfterMs);
+
+        return Mono.fromFuture(() -> requestProducer.sendRetry(message, delayMs))
+                .then()
+                .onErrorResume(e -> {
+                    log.error("E4: Failed to schedule retry for {}: {}", key, e.getMessage());
+                    return handlePermanentFailure(key, message, httpStatus, errorMessage, source);
+                });
+    }
+
+    private Mono<Void> handlePermanentFailure(String key, RequestMessage message,
+                                              int httpStatus, String errorMessage, ErrorSource source) {
         log.error("E4: Request failed permanently: {} - status={}, error={}, source={}",
                 key, httpStatus, errorMessage, source);
 
@@ -229,21 +625,27 @@ public class RequestConsumer {
                 .build();
         requestProducer.sendResponse(errorResponse);
 
-        int attemptCount = requestStateService.getAttemptCount(key);
-        DlqMessage dlqMessage = DlqMessage.from(
-                message, errorMessage, source.name(), httpStatus, attemptCount,
-                kafkaProperties.getTopics().getRequestNew()  // ← dynamic topic
-        );
-        requestProducer.sendToDlq(dlqMessage);
-
-        metrics.getDlqSent().increment();
-        requestStateService.updateStatus(key, RequestStatus.FAILED);
+        // FAILED transition returns the state, so attemptCount comes with it
+        return requestStateService.markFailedReactive(key, errorMessage, source)
+                .map(RequestState::getAttemptCount)
+                .defaultIfEmpty(Integer.MAX_VALUE)
+                // Offloaded body goes into the DLQ entry, then its blob is deleted
+                .flatMap(attemptCount -> claimCheckService.inline(message).doOnNext(withBody -> {
+                    DlqMessage dlqMessage = DlqMessage.from(
+                            withBody, errorMessage, source.name(), httpStatus, attemptCount,
+                            kafkaProperties.getTopics().getRequestNew()  // ← dynamic topic
+                    );
+                    requestProducer.sendToDlq(dlqMessage);
+
+                    metrics.getDlqSent().increment();
+                }))
+                .then(claimCheckService.release(message));
     }
 
     /**
      * Check if exception is timeout-related
      */
-    private boolean isTimeoutException(Exception e) {
+    private boolean isTimeoutException(Throwable e) {
         if (e == null) return false;
 
         String msg = e.getMessage() != null ? e.getMessage().toLowerCase() : "";
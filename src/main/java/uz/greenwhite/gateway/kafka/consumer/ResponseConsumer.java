@@ -3,17 +3,34 @@ package uz.greenwhite.gateway.kafka.consumer;
 import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Service;
+import uz.greenwhite.gateway.blob.ClaimCheckService;
+import uz.greenwhite.gateway.concurrency.MonitoredExecutor;
+import uz.greenwhite.gateway.config.GatewayProperties;
 import uz.greenwhite.gateway.config.RetryProperties;
 import uz.greenwhite.gateway.metrics.GatewayMetrics;
 import uz.greenwhite.gateway.model.enums.RequestStatus;
 import uz.greenwhite.gateway.model.kafka.ResponseMessage;
+import uz.greenwhite.gateway.source.ResponseSaveBatcher;
+import uz.greenwhite.gateway.source.SaveRetryScheduler;
 import uz.greenwhite.gateway.source.ResponseSinkClient;
 import uz.greenwhite.gateway.state.RequestStateService;
 import uz.greenwhite.gateway.model.ResponseSaveRequest;
 
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
 @Slf4j
 @Service
 public class ResponseConsumer {
@@ -22,23 +39,45 @@ public class ResponseConsumer {
     private final RequestStateService requestStateService;
     private final RetryProperties retryProperties;
     private final GatewayMetrics metrics;
+    private final MonitoredExecutor saveExecutor;
+    private final ResponseSaveBatcher saveBatcher;
+    private final SaveRetryScheduler saveRetryScheduler;
+    private final GatewayProperties gatewayProperties;
+    private final ClaimCheckService claimCheckService;
+
+    /**
+     * Completion of the last dispatched batch, per listener thread (batch mode)
+     */
+    private final ThreadLocal<CompletableFuture<Void>> pendingBatch =
+            ThreadLocal.withInitial(() -> CompletableFuture.completedFuture(null));
 
     public ResponseConsumer(
             ResponseSinkClient responseSinkClient,
             RequestStateService requestStateService,
             RetryProperties retryProperties,
-            GatewayMetrics metrics) {
+            GatewayMetrics metrics,
+            @Qualifier("httpRequestExecutor") MonitoredExecutor saveExecutor,
+            ResponseSaveBatcher saveBatcher,
+            SaveRetryScheduler saveRetryScheduler,
+            GatewayProperties gatewayProperties,
+            ClaimCheckService claimCheckService) {
         this.responseSinkClient = responseSinkClient;
         this.requestStateService = requestStateService;
         this.retryProperties = retryProperties;
         this.metrics = metrics;
+        this.saveExecutor = saveExecutor;
+        this.saveBatcher = saveBatcher;
+        this.saveRetryScheduler = saveRetryScheduler;
+        this.gatewayProperties = gatewayProperties;
+        this.claimCheckService = claimCheckService;
     }
 
     @KafkaListener(
             id = "responseConsumer",
             topics = "${gateway.kafka.topics.request-response}",
             groupId = "${spring.kafka.consumer.group-id}",
-            containerFactory = "responseConsumerFactory"
+            containerFactory = "responseConsumerFactory",
+            autoStartup = "#{!${gateway.kafka.batch.response-enabled:false}}"
     )
     public void consumeResponse(ConsumerRecord<String, ResponseMessage> record, Acknowledgment ack) {
         String key = record.key();
@@ -47,73 +86,131 @@ public class ResponseConsumer {
         log.info("Received response to save: {} [partition={}, offset={}]",
                 key, record.partition(), record.offset());
 
-        try {
-            // E5: Save to data source with timer
-            Timer.Sample saveSample = Timer.start(metrics.getRegistry());
-
-            boolean saved = saveWithRetry(message);
+        // Save and its retries run off the listener thread; the container (asyncAcks)
+        // commits only up to the lowest contiguous acked offset
+        saveResponseAsync(key, message)
+                .exceptionally(e -> {
+                    log.error("E5: Unexpected error saving {}: {}", key, e.getMessage(), e);
+                    return RequestStatus.FAILED;
+                })
+                .thenAccept(status -> {
+                    updateStatus(key, status);
+                    ack.acknowledge();
+                });
+    }
 
-            saveSample.stop(metrics.getOracleSaveTimer());
+    /**
+     * Batch listener (gateway.kafka.batch.response-enabled): saves of one poll run
+     * concurrently, statuses are written with one pipelined Redis call.
+     *
+     * The listener returns right after dispatching; the poll is acknowledged once all
+     * of its saves (including delayed retries) are done, after the previous poll of
+     * this listener thread. A save that fails unexpectedly is marked FAILED.
+     */
+    @KafkaListener(
+            id = "responseBatchConsumer",
+            topics = "${gateway.kafka.topics.request-response}",
+            groupId = "${spring.kafka.consumer.group-id}",
+            containerFactory = "responseBatchConsumerFactory",
+            autoStartup = "${gateway.kafka.batch.response-enabled:false}"
+    )
+    public void consumeResponseBatch(List<ConsumerRecord<String, ResponseMessage>> records, Acknowledgment ack) {
+        log.info("Received response batch to save: {} records [partition={}, offset={}]",
+                records.size(), records.get(0).partition(), records.get(0).offset());
 
-            if (saved) {
-                metrics.getOracleSaveSuccess().increment();
-                requestStateService.updateStatus(key, RequestStatus.COMPLETED);
-                log.info("Response saved successfully: {}", key);
-            } else {
-                metrics.getOracleSaveError().increment();
-                saveErrorResponse(message, "Failed to save response after " +
-                        retryProperties.getMaxAttempts() + " attempts");
-                requestStateService.updateStatus(key, RequestStatus.FAILED);
-                log.error("E5: Failed to save response after retries: {}", key);
+        Map<String, RequestStatus> statuses = new ConcurrentHashMap<>();
+        List<CompletableFuture<Void>> saves = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, ResponseMessage> record : records) {
+            if (record.value() == null) {
+                log.error("Skipping undeserializable record [partition={}, offset={}]",
+                        record.partition(), record.offset());
+                continue;
             }
+            String key = record.key();
+            saves.add(saveResponseAsync(key, record.value())
+                    .exceptionally(e -> {
+                        log.error("E5: Unexpected error saving {}: {}", key, e.getMessage(), e);
+                        return RequestStatus.FAILED;
+                    })
+                    .thenAccept(status -> statuses.put(key, status)));
+        }
 
-            ack.acknowledge();
-
-        } catch (Exception e) {
-            metrics.getOracleSaveError().increment();
-            log.error("E5: Error processing response {}: {}", key, e.getMessage(), e);
-
-            saveErrorResponse(message, e.getMessage());
-            requestStateService.updateStatus(key, RequestStatus.FAILED);
+        CompletableFuture<Void> batchDone = CompletableFuture.allOf(saves.toArray(CompletableFuture[]::new))
+                .thenRun(() -> {
+                    try {
+                        requestStateService.updateStatusAll(statuses);
+                    } catch (Exception e) {
+                        log.error("E5: Failed to update statuses for {} responses: {}",
+                                statuses.size(), e.getMessage());
+                    }
+                });
 
-            ack.acknowledge();
-        }
+        CompletableFuture<Void> previous = pendingBatch.get();
+        CompletableFuture<Void> current = previous.thenCombine(batchDone, (a, b) -> null);
+        pendingBatch.set(current);
+        current.whenComplete((result, throwable) -> ack.acknowledge());
     }
 
     /**
-     * Save response to data source with retry logic
+     * E5 save off the listener thread.
+     * Failed attempts are retried by SaveRetryScheduler after a backoff delay, in order
+     * per compositeId. With save batching every attempt goes through ResponseSaveBatcher.
+     * When all attempts fail, the error response is saved, the response blob dropped and FAILED returned.
+     * An offloaded (claim-check) body is loaded from the blob store first, on the save executor.
      */
-    private boolean saveWithRetry(ResponseMessage message) {
-        String key = message.getCompositeId();
+    private CompletableFuture<RequestStatus> saveResponseAsync(String key, ResponseMessage message) {
+        CompletableFuture<ResponseSaveRequest> saveRequest = message.getBodyRef() == null
+                ? CompletableFuture.completedFuture(buildSaveRequest(message))
+                : CompletableFuture.supplyAsync(() -> buildSaveRequest(message), saveExecutor);
 
-        for (int attempt = 1; attempt <= retryProperties.getMaxAttempts(); attempt++) {
-            try {
-                log.debug("Saving response: {} (attempt {}/{})",
-                        key, attempt, retryProperties.getMaxAttempts());
+        return saveRequest
+                .thenCompose(request -> saveRetryScheduler.submit(key, () -> saveAttempt(key, request)))
+                .thenCompose(saved -> {
+                    if (saved) {
+                        metrics.getOracleSaveSuccess().increment();
+                        log.info("Response saved successfully: {}", key);
+                        claimCheckService.release(message);
+                        return CompletableFuture.completedFuture(RequestStatus.COMPLETED);
+                    }
 
-                var saveRequest = buildSaveRequest(message);
-                boolean saved = responseSinkClient.saveResponse(saveRequest);
+                    metrics.getOracleSaveError().increment();
+                    log.error("E5: Failed to save response after retries: {}", key);
+                    return CompletableFuture.supplyAsync(() -> {
+                        saveErrorResponse(message, "Failed to save response after " +
+                                retryProperties.getMaxAttempts() + " attempts");
+                        claimCheckService.release(message);
+                        return RequestStatus.FAILED;
+                    }, saveExecutor);
+                });
+    }
 
-                if (saved) {
-                    return true;
-                }
+    /**
+     * One E5 save attempt
+     */
+    private CompletableFuture<Boolean> saveAttempt(String key, ResponseSaveRequest saveRequest) {
+        if (gatewayProperties.getSaveBatch().isEnabled()) {
+            return saveBatcher.submit(saveRequest);
+        }
 
-                log.warn("E5: Save returned false for {}: attempt {}/{}",
-                        key, attempt, retryProperties.getMaxAttempts());
+        return CompletableFuture.supplyAsync(() -> {
+            log.debug("Saving response: {}", key);
 
-            } catch (Exception e) {
-                log.warn("E5: Save failed for {}: attempt {}/{} - {}",
-                        key, attempt, retryProperties.getMaxAttempts(), e.getMessage());
+            // E5: Save to data source with timer
+            Timer.Sample saveSample = Timer.start(metrics.getRegistry());
+            try {
+                return responseSinkClient.saveResponse(saveRequest);
+            } finally {
+                saveSample.stop(metrics.getOracleSaveTimer());
             }
+        }, saveExecutor);
+    }
 
-            // E5: Retry metric for each retry attempt
-            if (attempt < retryProperties.getMaxAttempts()) {
-                metrics.getOracleSaveRetry().increment();
-                sleepBeforeRetry();
-            }
+    private void updateStatus(String key, RequestStatus status) {
+        try {
+            requestStateService.updateStatus(key, status);
+        } catch (Exception e) {
+            log.error("E5: Failed to update status for {} -> {}: {}", key, status, e.getMessage());
         }
-
-        return false;
     }
 
     /**
@@ -146,10 +243,12 @@ public class ResponseConsumer {
     private ResponseSaveRequest buildSaveRequest(ResponseMessage message) {
         ResponseSaveRequest.ResponseData responseData;
 
-        if (message.isSuccess()) {
+        if (message.isSuccess() && message.isRawBody()) {
+            responseData = rawResponseData(message);
+        } else if (message.isSuccess()) {
             responseData = ResponseSaveRequest.ResponseData.builder()
                     .status(message.getHttpStatus())
-                    .body(message.getBody())
+                    .body(claimCheckService.resolveBody(message))
                     .build();
         } else {
             responseData = ResponseSaveRequest.ResponseData.builder()
@@ -166,12 +265,47 @@ public class ResponseConsumer {
                 .build();
     }
 
-    private void sleepBeforeRetry() {
+    /**
+     * Opaque body mode: the raw bytes are decoded here, once. Text content types become
+     * a string in the declared charset (UTF-8 if none), anything else is sent as base64.
+     */
+    private ResponseSaveRequest.ResponseData rawResponseData(ResponseMessage message) {
+        byte[] bytes = claimCheckService.resolveBodyBytes(message);
+        MediaType mediaType = parseMediaType(message.getContentType());
+
+        var builder = ResponseSaveRequest.ResponseData.builder()
+                .status(message.getHttpStatus())
+                .contentType(message.getContentType());
+        if (bytes == null) {
+            return builder.build();
+        }
+        if (mediaType == null || isText(mediaType)) {
+            Charset charset = mediaType != null && mediaType.getCharset() != null
+                    ? mediaType.getCharset()
+                    : StandardCharsets.UTF_8;
+            return builder.body(new String(bytes, charset)).build();
+        }
+        return builder.body(Base64.getEncoder().encodeToString(bytes))
+                .bodyEncoding("base64")
+                .build();
+    }
+
+    private static MediaType parseMediaType(String contentType) {
+        if (contentType == null || contentType.isBlank()) {
+            return null;
+        }
         try {
-            Thread.sleep(retryProperties.getIntervalMs());
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            log.warn("Interrupted during retry wait");
+            return MediaType.parseMediaType(contentType);
+        } catch (InvalidMediaTypeException e) {
+            return null;
         }
     }
-}
\ No newline at end of file
+
+    private static boolean isText(MediaType mediaType) {
+        String subtype = mediaType.getSubtype();
+        return "text".equals(mediaType.getType())
+                || subtype.equals("json") || subtype.endsWith("+json")
+                || subtype.equals("xml") || subtype.endsWith("+xml")
+                || subtype.equals("javascript") || subtype.equals("x-www-form-urlencoded");
+    }
+}
@@ -0,0 +1,401 @@
+package uz.greenwhite.gateway.kafka.producer;
+
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import uz.greenwhite.gateway.blob.ClaimCheckService;
+import uz.greenwhite.gateway.config.KafkaProperties;
+import uz.greenwhite.gateway.config.RetryProperties;
+import uz.greenwhite.gateway.metrics.GatewayMetrics;
+import uz.greenwhite.gateway.model.kafka.DlqMessage;
+import uz.greenwhite.gateway.model.kafka.RequestMessage;
+import uz.greenwhite.gateway.validation.RequestValidator;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * E1 → E2 handoff shared by every ingestion path (RequestPuller, push endpoint).
+ *
+ * Requests are validated and sent to request-new as they arrive, without waiting
+ * per message. When the batch is complete all sends are awaited together, only the
+ * failed subset is re-sent after the backoff delay, and what still fails goes to
+ * the DLQ. Invalid requests go to the DLQ right away.
+ *
+ * With gateway.spool.enabled a failed send of a spooling batch goes to the local
+ * RequestSpool as soon as it fails, instead of being retried, and switches the
+ * publisher into spooling mode: from then on, and while the spool is not empty, new
+ * requests are appended behind it. The spool replays them in order once Kafka is back.
+ * Batches whose caller needs the Kafka acknowledgement (push endpoint) never spool.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RequestBatchPublisher {
+
+    /**
+     * Weight of the newest sample in the produce latency average
+     */
+    private static final double LATENCY_ALPHA = 0.2;
+
+    private final RequestProducer requestProducer;
+    private final RetryProperties retryProperties;
+    private final GatewayMetrics metrics;
+    private final KafkaProperties kafkaProperties;
+    private final RequestValidator requestValidator;
+    private final RequestSpool requestSpool;
+    private final ClaimCheckService claimCheckService;
+
+    private volatile double produceLatencyMs;
+
+    /**
+     * Orders appends of failed sends against appends of new requests
+     */
+    private final Object spoolLock = new Object();
+
+    /**
+     * A send failed and went to the spool: new requests go behind it until the spool drains
+     */
+    private volatile boolean spoolMode;
+
+    /**
+     * Start a new batch that may hand requests over to the local spool
+     */
+    public Batch newBatch() {
+        return new Batch(true);
+    }
+
+    /**
+     * Start a new batch
+     *
+     * @param spooling false: requests are only retried and sent to the DLQ, never spooled,
+     *                 so every accepted request is acknowledged by Kafka
+     */
+    public Batch newBatch(boolean spooling) {
+        return new Batch(spooling);
+    }
+
+    /**
+     * Average Kafka produce round trip (ms) of recent successful sends
+     */
+    public double getProduceLatencyMs() {
+        return produceLatencyMs;
+    }
+
+    /**
+     * Outcome of one batch.
+     *
+     * @param total   requests accepted into the batch
+     * @param invalid compositeIds rejected by validation (sent to DLQ)
+     * @param failed  compositeIds that could not be sent after all attempts (sent to DLQ)
+     * @param spooled requests written to the local spool, produced later by its replay
+     *                (durable on this instance's disk only, not yet in Kafka)
+     */
+    public record Result(int total, List<String> invalid, List<String> failed, int spooled) {
+
+        /**
+         * Requests acknowledged by Kafka
+         */
+        public int published() {
+            return accepted() - spooled;
+        }
+
+        /**
+         * Requests the gateway took over: published to Kafka or spooled for replay
+         */
+        public int accepted() {
+            return total - invalid.size() - failed.size();
+        }
+    }
+
+    /**
+     * Requests of one pull or push, sent as they are added.
+     * A successfully sent request is not retained; only failed ones are kept for retry.
+     */
+    public class Batch {
+
+        private final List<CompletableFuture<RequestMessage>> sends = new ArrayList<>();
+        private final List<String> invalid = new ArrayList<>();
+        private final boolean spooling;
+        private final AtomicInteger spooled = new AtomicInteger();
+        private int total;
+        private String lastCompositeId;
+
+        private Batch(boolean spooling) {
+            this.spooling = spooling;
+        }
+
+        public void accept(RequestMessage request) {
+            total++;
+            String compositeId = request != null ? request.getCompositeId() : null;
+            lastCompositeId = compositeId;
+
+            try {
+                // Validate before sending to Kafka
+                List<String> validationErrors = requestValidator.validate(request);
+                if (!validationErrors.isEmpty()) {
+                    String errorMsg = "Validation failed: " + String.join("; ", validationErrors);
+                    log.error("Request validation failed: {} - {}", compositeId, errorMsg);
+                    if (request != null) {
+                        sendToDlq(request, errorMsg);
+                    }
+                    invalid.add(compositeId);
+                    return;
+                }
+
+                // Large body → blob store, only the reference goes through Kafka
+                claimCheckService.offload(request);
+
+                // Keep order behind requests already waiting in the spool
+                if (spooling && spoolBehindBacklog(request)) {
+                    spooled.incrementAndGet();
+                    return;
+                }
+
+                sends.add(send(request, 1).thenApply(sent -> sent || spooling && spoolFailed(request)
+                        ? null
+                        : request));
+            } catch (Exception e) {
+                invalid.add(compositeId);
+                log.error("Failed to process request: {} - {}", compositeId, e.getMessage());
+                if (request != null) {
+                    sendToDlq(request, e.getMessage());
+                }
+            }
+        }
+
+        public int getTotal() {
+            return total;
+        }
+
+        public String getLastCompositeId() {
+            return lastCompositeId;
+        }
+
+        /**
+         * No more requests: await all sends, retry the failed subset, DLQ what still fails.
+         * Completes when every request is acknowledged by Kafka or in the DLQ.
+         */
+        public CompletableFuture<Result> complete() {
+            return CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new))
+                    .thenApply(v -> sends.stream()
+                            .map(CompletableFuture::join)
+                            .filter(Objects::nonNull)
+                            .toList())
+                    .thenCompose(failed -> {
+                        if (failed.isEmpty() || retryProperties.getMaxAttempts() <= 1) {
+                            return CompletableFuture.completedFuture(failed);
+                        }
+                        return retryLater(failed, 1);
+                    })
+                    .thenApply(failed -> {
+                        List<String> failedIds = new ArrayList<>(failed.size());
+                        for (RequestMessage request : failed) {
+                            metrics.getKafkaProduceError().increment();
+                            failedIds.add(request.getCompositeId());
+                            sendToDlq(request, "Failed to send to Kafka after " +
+                                    retryProperties.getMaxAttempts() + " attempts");
+                        }
+
+                        Result result = new Result(total, List.copyOf(invalid), failedIds, spooled.get());
+                        logProcessingSummary(result);
+                        return result;
+                    });
+        }
+
+        /**
+         * Move a failed send to the spool right away (send completion) and switch into spooling mode
+         *
+         * @return false if the spool did not take it (retried, then DLQ)
+         */
+        private boolean spoolFailed(RequestMessage request) {
+            if (!requestSpool.isEnabled()) {
+                return false;
+            }
+            synchronized (spoolLock) {
+                if (!requestSpool.append(request)) {
+                    return false;
+                }
+                if (!spoolMode) {
+                    log.warn("E2: Kafka send failed for {}, spooling new requests until Kafka is back",
+                            request.getCompositeId());
+                }
+                spoolMode = true;
+            }
+            spooled.incrementAndGet();
+            return true;
+        }
+    }
+
+    /**
+     * Append the request behind the spool while in spooling mode or while the spool is not empty.
+     * Spooling mode ends once the replay has drained the spool.
+     *
+     * @return false if it should be sent to Kafka directly
+     */
+    private boolean spoolBehindBacklog(RequestMessage request) {
+        if (!spoolMode && !requestSpool.hasPending()) {
+            return false;
+        }
+        synchronized (spoolLock) {
+            if (!requestSpool.hasPending()) {
+                spoolMode = false;
+                return false;
+            }
+            return requestSpool.append(request);
+        }
+    }
+
+    /**
+     * E2: Send the requests without waiting per message, await all sends together
+     * and retry only the failed subset after the backoff delay.
+     *
+     * @return requests that could not be sent after all attempts
+     */
+    private CompletableFuture<List<RequestMessage>> publishAll(List<RequestMessage> requests, int attempt) {
+        if (requests.isEmpty()) {
+            return CompletableFuture.completedFuture(List.of());
+        }
+
+        List<CompletableFuture<Boolean>> sends = new ArrayList<>(requests.size());
+        for (RequestMessage request : requests) {
+            sends.add(send(request, attempt));
+        }
+
+        return CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new))
+                .thenCompose(v -> {
+                    List<RequestMessage> failed = new ArrayList<>();
+                    for (int i = 0; i < requests.size(); i++) {
+                        if (!sends.get(i).join()) {
+                            failed.add(requests.get(i));
+                        }
+                    }
+
+                    if (failed.isEmpty() || attempt >= retryProperties.getMaxAttempts()) {
+                        return CompletableFuture.completedFuture(failed);
+                    }
+
+                    return retryLater(failed, attempt);
+                });
+    }
+
+    /**
+     * Re-send the failed subset after the backoff delay of the given failed attempt
+     */
+    private CompletableFuture<List<RequestMessage>> retryLater(List<RequestMessage> failed, int attempt) {
+        // ===== Retry metric =====
+        metrics.getKafkaProduceRetry().increment(failed.size());
+        long delayMs = retryProperties.backoffMs(attempt);
+        log.warn("E2: Kafka send failed for {} requests: attempt {}/{}, retrying in {}ms",
+                failed.size(), attempt, retryProperties.getMaxAttempts(), delayMs);
+
+        return CompletableFuture.supplyAsync(() -> failed,
+                        CompletableFuture.delayedExecutor(delayMs, TimeUnit.MILLISECONDS))
+                .thenCompose(retry -> publishAll(retry, attempt + 1));
+    }
+
+    /**
+     * E2: Send one request, completing with false instead of failing
+     */
+    private CompletableFuture<Boolean> send(RequestMessage request, int attempt) {
+        String compositeId = request.getCompositeId();
+        log.debug("Sending request to Kafka: {} (attempt {}/{})",
+                compositeId, attempt, retryProperties.getMaxAttempts());
+
+        // ===== E2: Kafka Produce with Timer =====
+        Timer.Sample kafkaSample = Timer.start(metrics.getRegistry());
+
+        try {
+            return requestProducer.sendRequest(request)
+                    .orTimeout(10, TimeUnit.SECONDS)
+                    .handle((result, e) -> {
+                        long latencyNanos = kafkaSample.stop(metrics.getKafkaProduceTimer());
+                        if (e != null) {
+                            log.debug("E2: Kafka send failed for {}: {}", compositeId, e.getMessage());
+                            return false;
+                        }
+                        recordProduceLatency(TimeUnit.NANOSECONDS.toMillis(latencyNanos));
+                        metrics.getKafkaProduceSuccess().increment();
+                        recordIngestLatency(request);
+                        return true;
+                    });
+        } catch (Exception e) {
+            kafkaSample.stop(metrics.getKafkaProduceTimer());
+            log.debug("E2: Kafka send failed for {}: {}", compositeId, e.getMessage());
+            return CompletableFuture.completedFuture(false);
+        }
+    }
+
+    private synchronized void recordProduceLatency(long latencyMs) {
+        produceLatencyMs = produceLatencyMs == 0
+                ? latencyMs
+                : produceLatencyMs + LATENCY_ALPHA * (latencyMs - produceLatencyMs);
+    }
+
+    /**
+     * Source creation time → in Kafka. Skipped if the source did not send createdAt.
+     */
+    private void recordIngestLatency(RequestMessage request) {
+        LocalDateTime createdAt = request.getCreatedAt();
+        if (createdAt == null) {
+            return;
+        }
+        Duration latency = Duration.between(createdAt, LocalDateTime.now());
+        if (!latency.isNegative()) {
+            metrics.getOracleIngestLatency().record(latency);
+        }
+    }
+
+    /**
+     * Send failed request to DLQ for analysis.
+     * An offloaded body is loaded into the entry and its blob deleted (off the calling thread).
+     */
+    private void sendToDlq(RequestMessage request, String errorMessage) {
+        if (request.getBodyRef() != null) {
+            claimCheckService.inline(request)
+                    .doOnNext(withBody -> sendToDlqNow(withBody, errorMessage))
+                    .then(claimCheckService.release(request))
+                    .subscribe();
+            return;
+        }
+        sendToDlqNow(request, errorMessage);
+    }
+
+    private void sendToDlqNow(RequestMessage request, String errorMessage) {
+        try {
+            DlqMessage dlqMessage = DlqMessage.from(
+                    request, errorMessage, "KAFKA", 0,
+                    retryProperties.getMaxAttempts(),
+                    kafkaProperties.getTopics().getRequestNew()  // ← dynamic topic
+            );
+            requestProducer.sendToDlq(dlqMessage);
+            metrics.getDlqSent().increment();
+            log.info("Request sent to DLQ: {}", request.getCompositeId());
+        } catch (Exception e) {
+            log.error("Failed to send to DLQ: {} - {}", request.getCompositeId(), e.getMessage());
+        }
+    }
+
+    private void logProcessingSummary(Result result) {
+        if (result.invalid().isEmpty() && result.failed().isEmpty()) {
+            if (result.spooled() > 0) {
+                log.info("Processed all {} requests: {} published, {} spooled to local disk for replay",
+                        result.total(), result.published(), result.spooled());
+                return;
+            }
+            log.info("Processed all {} requests successfully", result.total());
+        } else {
+            List<String> failed = new ArrayList<>(result.invalid());
+            failed.addAll(result.failed());
+            log.warn("Processed {}/{} requests ({} spooled to local disk). Failed: {}",
+                    result.accepted(), result.total(), result.spooled(), failed);
+        }
+    }
+}
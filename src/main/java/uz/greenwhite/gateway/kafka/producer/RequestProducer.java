@@ -2,14 +2,17 @@ package uz.greenwhite.gateway.kafka.producer;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
 import uz.greenwhite.gateway.config.KafkaProperties;
+import uz.greenwhite.gateway.config.RetryProperties;
 import uz.greenwhite.gateway.model.kafka.DlqMessage;
 import uz.greenwhite.gateway.model.kafka.RequestMessage;
 import uz.greenwhite.gateway.model.kafka.ResponseMessage;
 
+import java.nio.charset.StandardCharsets;
 import java.util.concurrent.CompletableFuture;
 
 @Slf4j
@@ -17,8 +20,14 @@ import java.util.concurrent.CompletableFuture;
 @RequiredArgsConstructor
 public class RequestProducer {
 
+    /**
+     * Epoch millis at which a retry record becomes due
+     */
+    public static final String RETRY_DUE_AT_HEADER = "gateway-retry-due-at";
+
     private final KafkaTemplate<String, Object> kafkaTemplate;
     private final KafkaProperties kafkaProperties;
+    private final RetryProperties retryProperties;
 
     /**
      * Send new request to Kafka (after pulling from Oracle)
@@ -41,6 +50,32 @@ public class RequestProducer {
                 });
     }
 
+    /**
+     * Send request to the retry tier topic matching the delay (E4 retry).
+     * The exact due time travels in the RETRY_DUE_AT_HEADER header.
+     */
+    public CompletableFuture<SendResult<String, Object>> sendRetry(RequestMessage message, long delayMs) {
+        String key = message.getCompositeId();
+        String topic = kafkaProperties.getTopics().getRequestRetry(retryProperties.tierFor(delayMs));
+        long dueAt = System.currentTimeMillis() + delayMs;
+        log.debug("Sending retry to Kafka: {} -> {} (delay={}ms)", key, topic, delayMs);
+
+        ProducerRecord<String, Object> record = new ProducerRecord<>(topic, key, message);
+        record.headers().add(RETRY_DUE_AT_HEADER, Long.toString(dueAt).getBytes(StandardCharsets.UTF_8));
+
+        return kafkaTemplate.send(record)
+                .whenComplete((result, ex) -> {
+                    if (ex != null) {
+                        log.error("Failed to send retry {}: {}", key, ex.getMessage());
+                    } else {
+                        log.info("Retry scheduled: {} in {}ms [topic={}, partition={}, offset={}]",
+                                key, delayMs, topic,
+                                result.getRecordMetadata().partition(),
+                                result.getRecordMetadata().offset());
+                    }
+                });
+    }
+
     /**
      * Send response to Kafka (after HTTP call)
      */
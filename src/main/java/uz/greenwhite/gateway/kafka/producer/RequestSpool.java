@@ -0,0 +1,472 @@
+package uz.greenwhite.gateway.kafka.producer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.stereotype.Component;
+import uz.greenwhite.gateway.config.SpoolProperties;
+import uz.greenwhite.gateway.metrics.GatewayMetrics;
+import uz.greenwhite.gateway.model.kafka.RequestMessage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Local append-only spool for requests that could not be produced to request-new.
+ *
+ * Requests are appended to memory-mapped segment files (gateway.spool.directory) at disk
+ * speed, so pulling continues through a broker outage. A replay thread sends them to
+ * Kafka in append order once it is reachable again; while anything is spooled, new
+ * requests are appended behind it instead of being sent directly.
+ *
+ * Record layout: [int length][long appendedAtMillis][length bytes of JSON].
+ * The length is written last, so a record torn by a crash is invisible (length 0).
+ * The replay position is kept in a checkpoint file; fully replayed segments are deleted.
+ * Records sent right before a crash may be replayed twice; the Redis state filters them.
+ */
+@Slf4j
+@Component
+public class RequestSpool {
+
+    private static final int HEADER_BYTES = Integer.BYTES + Long.BYTES;
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final int PREALLOCATE_CHUNK_BYTES = 64 * 1024;
+
+    private final SpoolProperties properties;
+    private final RequestProducer requestProducer;
+    private final GatewayMetrics metrics;
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private final ScheduledExecutorService replayer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "request-spool-replay");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Object lock = new Object();
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private Path directory;
+    private int writePos;
+    private int readPos;
+    private long pendingRecords;
+    private long pendingBytes;
+
+    public RequestSpool(SpoolProperties properties, RequestProducer requestProducer, GatewayMetrics metrics) {
+        this.properties = properties;
+        this.requestProducer = requestProducer;
+        this.metrics = metrics;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        metrics.registerSpoolGauges(this::getPendingRecords, () -> {
+            synchronized (lock) {
+                return pendingBytes;
+            }
+        }, this::oldestAgeSeconds);
+
+        if (!properties.isEnabled()) {
+            return;
+        }
+        recover();
+        replayer.scheduleWithFixedDelay(this::replay, properties.getReplayIntervalMs(),
+                properties.getReplayIntervalMs(), TimeUnit.MILLISECONDS);
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * Whether requests are waiting for replay (new requests must queue behind them)
+     */
+    public boolean hasPending() {
+        return getPendingRecords() > 0;
+    }
+
+    public long getPendingRecords() {
+        synchronized (lock) {
+            return pendingRecords;
+        }
+    }
+
+    /**
+     * Append the request to the spool.
+     *
+     * @return false if the spool is disabled, full or the request could not be written
+     */
+    public boolean append(RequestMessage request) {
+        if (!properties.isEnabled()) {
+            return false;
+        }
+
+        byte[] payload;
+        try {
+            payload = objectMapper.writeValueAsBytes(request);
+        } catch (Exception e) {
+            log.error("E2: Cannot serialize {} for the spool: {}", request.getCompositeId(), e.getMessage());
+            return false;
+        }
+        int recordBytes = HEADER_BYTES + payload.length;
+        if (recordBytes > properties.getSegmentBytes()) {
+            log.error("E2: Request {} too large for the spool ({} bytes)", request.getCompositeId(), recordBytes);
+            return false;
+        }
+
+        synchronized (lock) {
+            if (pendingBytes + recordBytes > properties.getMaxBytes()) {
+                log.warn("E2: Spool full ({} bytes), not spooling {}", pendingBytes, request.getCompositeId());
+                return false;
+            }
+            try {
+                if (writePos + recordBytes > properties.getSegmentBytes()) {
+                    segments.addLast(Segment.open(directory, segments.getLast().id + 1, properties.getSegmentBytes()));
+                    writePos = 0;
+                }
+
+                MappedByteBuffer buffer = segments.getLast().buffer;
+                buffer.putLong(writePos + Integer.BYTES, System.currentTimeMillis());
+                buffer.put(writePos + HEADER_BYTES, payload);
+                // Length last: the record becomes visible only when complete
+                buffer.putInt(writePos, payload.length);
+                if (properties.isForceOnAppend()) {
+                    buffer.force(writePos, recordBytes);
+                }
+
+                writePos += recordBytes;
+                pendingRecords++;
+                pendingBytes += recordBytes;
+            } catch (IOException | RuntimeException e) {
+                log.error("E2: Failed to spool {}: {}", request.getCompositeId(), e.getMessage());
+                return false;
+            }
+        }
+
+        log.debug("E2: Spooled request {}", request.getCompositeId());
+        return true;
+    }
+
+    /**
+     * Send the next spooled requests in order. Stops at the first failed send and
+     * resumes from there on the next round.
+     */
+    private void replay() {
+        try {
+            List<SpooledRecord> records = readNext(properties.getReplayBatchSize());
+            if (records.isEmpty()) {
+                return;
+            }
+
+            List<CompletableFuture<Boolean>> sends = new ArrayList<>(records.size());
+            for (SpooledRecord record : records) {
+                sends.add(send(decode(record.payload())));
+            }
+
+            int sent = 0;
+            for (CompletableFuture<Boolean> send : sends) {
+                if (!send.join()) {
+                    break;
+                }
+                sent++;
+            }
+
+            if (sent > 0) {
+                advance(records.subList(0, sent));
+                log.info("E2: Replayed {} spooled requests, {} left", sent, getPendingRecords());
+            }
+            if (sent < records.size()) {
+                log.warn("E2: Spool replay stopped, Kafka still unavailable ({} pending)", getPendingRecords());
+            }
+
+        } catch (Exception e) {
+            log.error("E2: Spool replay failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private CompletableFuture<Boolean> send(RequestMessage request) {
+        if (request == null) {
+            // Unreadable record: nothing to send, skip it
+            return CompletableFuture.completedFuture(true);
+        }
+        try {
+            return requestProducer.sendRequest(request)
+                    .orTimeout(10, TimeUnit.SECONDS)
+                    .handle((result, e) -> {
+                        if (e != null) {
+                            return false;
+                        }
+                        metrics.getKafkaProduceSuccess().increment();
+                        return true;
+                    });
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(false);
+        }
+    }
+
+    /**
+     * Copy up to max records from the replay position without consuming them
+     */
+    private List<SpooledRecord> readNext(int max) {
+        synchronized (lock) {
+            List<SpooledRecord> records = new ArrayList<>();
+            if (pendingRecords == 0) {
+                return records;
+            }
+
+            List<Segment> ordered = new ArrayList<>(segments);
+            int segmentIndex = 0;
+            int pos = readPos;
+
+            while (records.size() < max && segmentIndex < ordered.size()) {
+                Segment segment = ordered.get(segmentIndex);
+                boolean last = segmentIndex == ordered.size() - 1;
+                int length = recordLength(segment.buffer, pos, properties.getSegmentBytes());
+                if (length <= 0 || (last && pos >= writePos)) {
+                    if (last) {
+                        break;
+                    }
+                    segmentIndex++;
+                    pos = 0;
+                    continue;
+                }
+
+                byte[] payload = new byte[length];
+                segment.buffer.get(pos + HEADER_BYTES, payload);
+                int next = pos + HEADER_BYTES + length;
+                records.add(new SpooledRecord(payload, segment.id, next));
+                pos = next;
+            }
+            return records;
+        }
+    }
+
+    /**
+     * Consume the given records, read last by readNext from the replay position
+     */
+    private void advance(List<SpooledRecord> sent) throws IOException {
+        SpooledRecord last = sent.get(sent.size() - 1);
+        synchronized (lock) {
+            while (segments.getFirst().id < last.segmentId()) {
+                segments.removeFirst().delete();
+            }
+            readPos = last.nextPos();
+            pendingRecords -= sent.size();
+            pendingBytes -= sent.stream().mapToLong(record -> HEADER_BYTES + record.payload().length).sum();
+            writeCheckpoint();
+        }
+    }
+
+    private RequestMessage decode(byte[] payload) {
+        try {
+            return objectMapper.readValue(payload, RequestMessage.class);
+        } catch (Exception e) {
+            log.error("E2: Skipping unreadable spool record: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return record length at pos, 0 if there is no complete record
+     */
+    private static int recordLength(ByteBuffer buffer, int pos, int capacity) {
+        if (pos + HEADER_BYTES > capacity) {
+            return 0;
+        }
+        int length = buffer.getInt(pos);
+        if (length <= 0 || pos + HEADER_BYTES + length > capacity) {
+            return 0;
+        }
+        return length;
+    }
+
+    private double oldestAgeSeconds() {
+        synchronized (lock) {
+            if (pendingRecords == 0) {
+                return 0;
+            }
+            for (Segment segment : segments) {
+                int pos = segment == segments.getFirst() ? readPos : 0;
+                if (recordLength(segment.buffer, pos, properties.getSegmentBytes()) > 0) {
+                    long appendedAt = segment.buffer.getLong(pos + Integer.BYTES);
+                    return Math.max(0, System.currentTimeMillis() - appendedAt) / 1000.0;
+                }
+            }
+            return 0;
+        }
+    }
+
+    // ==================== Recovery ====================
+
+    /**
+     * Reopen the segments, restore the replay position from the checkpoint and
+     * find the write position after the last complete record
+     */
+    private void recover() throws IOException {
+        directory = Path.of(properties.getDirectory());
+        Files.createDirectories(directory);
+
+        long checkpointSegment = -1;
+        Path checkpoint = directory.resolve(CHECKPOINT_FILE);
+        if (Files.exists(checkpoint)) {
+            String[] parts = Files.readString(checkpoint).trim().split(":");
+            checkpointSegment = Long.parseLong(parts[0]);
+            readPos = Integer.parseInt(parts[1]);
+        }
+
+        List<Long> ids;
+        try (Stream<Path> files = Files.list(directory)) {
+            ids = files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        }
+
+        synchronized (lock) {
+            for (long id : ids) {
+                Segment segment = Segment.open(directory, id, properties.getSegmentBytes());
+                if (id < checkpointSegment) {
+                    segment.delete();
+                } else {
+                    segments.addLast(segment);
+                }
+            }
+            if (segments.isEmpty()) {
+                segments.addLast(Segment.open(directory, Math.max(0, checkpointSegment), properties.getSegmentBytes()));
+                readPos = 0;
+            } else if (segments.getFirst().id != checkpointSegment) {
+                readPos = 0;
+            }
+
+            for (Segment segment : segments) {
+                int pos = segment == segments.getFirst() ? readPos : 0;
+                int length;
+                while ((length = recordLength(segment.buffer, pos, properties.getSegmentBytes())) > 0) {
+                    pos += HEADER_BYTES + length;
+                    pendingRecords++;
+                    pendingBytes += HEADER_BYTES + length;
+                }
+                writePos = pos;
+            }
+            writeCheckpoint();
+        }
+
+        if (pendingRecords > 0) {
+            log.warn("E2: Spool recovered {} pending requests ({} bytes) from {}",
+                    pendingRecords, pendingBytes, directory);
+        }
+    }
+
+    /**
+     * Must be called while holding the lock
+     */
+    private void writeCheckpoint() throws IOException {
+        Path temp = directory.resolve(CHECKPOINT_FILE + ".tmp");
+        Files.writeString(temp, segments.getFirst().id + ":" + readPos);
+        Files.move(temp, directory.resolve(CHECKPOINT_FILE),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        replayer.shutdownNow();
+        if (!properties.isEnabled()) {
+            return;
+        }
+        synchronized (lock) {
+            for (Segment segment : segments) {
+                segment.close();
+            }
+            if (pendingRecords > 0) {
+                log.warn("E2: Shutting down with {} spooled requests, replayed on next start", pendingRecords);
+            }
+        }
+    }
+
+    private record SpooledRecord(byte[] payload, long segmentId, int nextPos) {
+    }
+
+    private static final class Segment {
+
+        private final long id;
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+
+        private Segment(long id, Path path, FileChannel channel, MappedByteBuffer buffer) {
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        static Segment open(Path directory, long id, int size) throws IOException {
+            Path path = directory.resolve(String.format("%020d%s", id, SEGMENT_SUFFIX));
+            boolean created = !Files.exists(path);
+            FileChannel channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                preallocate(channel, size);
+                return new Segment(id, path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                if (created) {
+                    Files.deleteIfExists(path);
+                }
+                throw e;
+            }
+        }
+
+        /**
+         * Write the segment's full size up front. A write into the mapping of a sparse
+         * file fails with SIGBUS (InternalError) when the disk is full; here it fails
+         * with an IOException and the caller falls back to retry / DLQ.
+         */
+        private static void preallocate(FileChannel channel, int size) throws IOException {
+            ByteBuffer zeros = ByteBuffer.allocate(PREALLOCATE_CHUNK_BYTES);
+            long pos = channel.size();
+            while (pos < size) {
+                zeros.clear().limit((int) Math.min(zeros.capacity(), size - pos));
+                pos += channel.write(zeros, pos);
+            }
+            channel.force(false);
+        }
+
+        void close() {
+            try {
+                buffer.force();
+                channel.close();
+            } catch (IOException e) {
+                log.warn("E2: Failed to close spool segment {}: {}", path, e.getMessage());
+            }
+        }
+
+        void delete() {
+            close();
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
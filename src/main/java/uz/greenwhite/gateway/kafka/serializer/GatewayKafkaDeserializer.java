@@ -0,0 +1,65 @@
+package uz.greenwhite.gateway.kafka.serializer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+
+import java.util.Map;
+
+/**
+ * Value deserializer of the gateway consumers. Detects the format per record, so
+ * JSON and SMILE messages can be mixed on one topic during a rollout (see WireFormat).
+ * An unknown frame version or type fails with SerializationException (not retried).
+ */
+public class GatewayKafkaDeserializer implements Deserializer<Object> {
+
+    private final JsonDeserializer<Object> jsonDeserializer = new JsonDeserializer<>();
+    private final ObjectMapper smileMapper = WireFormat.smileMapper();
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        jsonDeserializer.configure(configs, isKey);
+    }
+
+    @Override
+    public Object deserialize(String topic, byte[] data) {
+        return deserialize(topic, null, data);
+    }
+
+    @Override
+    public Object deserialize(String topic, Headers headers, byte[] data) {
+        if (data == null || data.length == 0) {
+            return null;
+        }
+        if (!WireFormat.isFrame(data[0])) {
+            // JSON from a producer on the JSON format (or an older version)
+            return jsonDeserializer.deserialize(topic, headers, data);
+        }
+        if (data[0] != WireFormat.VERSION_1) {
+            throw new SerializationException("Unknown gateway frame version " + data[0] + " on topic " + topic
+                    + " (written by a newer version?)");
+        }
+        if (data.length < 2) {
+            throw new SerializationException("Truncated gateway frame on topic " + topic);
+        }
+
+        Class<?> type = WireFormat.typeFor(data[1]);
+        if (type == null) {
+            throw new SerializationException("Unknown gateway frame type " + data[1] + " on topic " + topic
+                    + " (written by a newer version?)");
+        }
+        try {
+            return smileMapper.readValue(data, 2, data.length - 2, type);
+        } catch (Exception e) {
+            throw new SerializationException("Can't deserialize " + type.getSimpleName()
+                    + " from topic " + topic, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        jsonDeserializer.close();
+    }
+}
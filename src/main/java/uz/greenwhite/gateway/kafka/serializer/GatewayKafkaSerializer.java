@@ -0,0 +1,62 @@
+package uz.greenwhite.gateway.kafka.serializer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Serializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Map;
+
+/**
+ * Value serializer of the gateway producer, format chosen by gateway.wire-format
+ * (see WireFormat). Types without a frame type code are always written as JSON.
+ */
+public class GatewayKafkaSerializer implements Serializer<Object> {
+
+    private final JsonSerializer<Object> jsonSerializer = new JsonSerializer<>();
+    private final ObjectMapper smileMapper = WireFormat.smileMapper();
+    private WireFormat format = WireFormat.JSON;
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        jsonSerializer.configure(configs, isKey);
+        Object configured = configs.get(WireFormat.CONFIG);
+        if (configured != null) {
+            format = WireFormat.valueOf(configured.toString().trim().toUpperCase());
+        }
+    }
+
+    @Override
+    public byte[] serialize(String topic, Object data) {
+        return serialize(topic, null, data);
+    }
+
+    @Override
+    public byte[] serialize(String topic, Headers headers, Object data) {
+        if (data == null) {
+            return null;
+        }
+        byte type = WireFormat.typeOf(data.getClass());
+        if (format == WireFormat.JSON || type == 0) {
+            return jsonSerializer.serialize(topic, headers, data);
+        }
+
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+            out.write(WireFormat.VERSION_1);
+            out.write(type);
+            smileMapper.writeValue(out, data);
+            return out.toByteArray();
+        } catch (Exception e) {
+            throw new SerializationException("Can't serialize " + data.getClass().getSimpleName()
+                    + " for topic " + topic, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        jsonSerializer.close();
+    }
+}
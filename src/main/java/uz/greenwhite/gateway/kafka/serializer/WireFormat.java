@@ -0,0 +1,73 @@
+package uz.greenwhite.gateway.kafka.serializer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.fasterxml.jackson.dataformat.smile.SmileParser;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import uz.greenwhite.gateway.model.kafka.DlqMessage;
+import uz.greenwhite.gateway.model.kafka.RequestMessage;
+import uz.greenwhite.gateway.model.kafka.ResponseMessage;
+
+import java.util.List;
+
+/**
+ * Value formats of the gateway topics.
+ *
+ * JSON:  Spring JsonSerializer payload with __TypeId__ header (original format).
+ * SMILE: binary frame [version][type][Smile payload], no type header.
+ *
+ * Compatibility rules:
+ * - GatewayKafkaDeserializer reads both formats, whatever the reader's own setting,
+ *   so producers can switch only after every consumer runs a version that has this class.
+ * - Frame versions are 1..8, bytes no JSON document starts with ('{', whitespace, ...).
+ * - Fields may be added (unknown fields are ignored on read) but not renamed or retyped
+ *   within one frame version; incompatible changes take a new version byte, and readers
+ *   must learn the new version before producers write it.
+ */
+public enum WireFormat {
+    JSON,
+    SMILE;
+
+    /**
+     * Producer config key (spring.kafka.producer.properties) selecting the format
+     */
+    public static final String CONFIG = "gateway.wire-format";
+
+    static final byte VERSION_1 = 1;
+
+    /**
+     * Highest first byte treated as a frame version (9 is TAB, JSON whitespace)
+     */
+    private static final byte MAX_VERSION = 8;
+
+    /**
+     * Type byte of the SMILE frame = index in this list + 1. Append only.
+     */
+    static final List<Class<?>> TYPES = List.of(RequestMessage.class, ResponseMessage.class, DlqMessage.class);
+
+    static ObjectMapper smileMapper() {
+        SmileFactory factory = SmileFactory.builder()
+                // Raw bytes (opaque bodies) as-is instead of 7-bit encoded. Jackson refuses
+                // raw binary without the 4-byte Smile header that flags it, so it is written;
+                // readers accept payloads with and without it
+                .enable(SmileGenerator.Feature.WRITE_HEADER)
+                .disable(SmileGenerator.Feature.ENCODE_BINARY_AS_7BIT)
+                .disable(SmileParser.Feature.REQUIRE_HEADER)
+                .build();
+        return Jackson2ObjectMapperBuilder.smile().factory(factory).build();
+    }
+
+    static boolean isFrame(byte first) {
+        return first >= VERSION_1 && first <= MAX_VERSION;
+    }
+
+    static byte typeOf(Class<?> type) {
+        int index = TYPES.indexOf(type);
+        return (byte) (index + 1);
+    }
+
+    static Class<?> typeFor(byte type) {
+        return type >= 1 && type <= TYPES.size() ? TYPES.get(type - 1) : null;
+    }
+}
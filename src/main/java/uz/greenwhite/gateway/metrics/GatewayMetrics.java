@@ -1,12 +1,19 @@
 package uz.greenwhite.gateway.metrics;
 
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
 import io.micrometer.core.instrument.Timer;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+import java.util.function.Supplier;
+
 /**
  * Centralized metrics for error tracking and bottleneck detection
  * across all pipeline stages (E1 → E5).
@@ -31,12 +38,15 @@ public class GatewayMetrics {
     private final Counter oraclePullSuccess;
     private final Counter oraclePullError;
     private final Counter oraclePullEmpty;
+    private final Timer oracleIngestLatency;
+    private final Counter ingestPushReceived;
 
     // ==================== E2: Kafka Produce ====================
     private final Timer kafkaProduceTimer;
     private final Counter kafkaProduceSuccess;
     private final Counter kafkaProduceError;
     private final Counter kafkaProduceRetry;
+    private final Counter claimCheckOffload;
 
     // ==================== E3: Consumer Process ====================
     private final Counter consumerReceived;
@@ -57,6 +67,7 @@ public class GatewayMetrics {
     private final Counter oracleSaveSuccess;
     private final Counter oracleSaveError;
     private final Counter oracleSaveRetry;
+    private final DistributionSummary oracleSaveBatchSize;
 
     // ==================== DLQ ====================
     private final Counter dlqSent;
@@ -91,6 +102,16 @@ public class GatewayMetrics {
                 .tag("stage", "oracle_pull")
                 .register(registry);
 
+        this.oracleIngestLatency = Timer.builder("gateway.oracle.ingest.latency")
+                .description("Time from request creation in the source until it is in Kafka")
+                .tag("stage", "oracle_pull")
+                .register(registry);
+
+        this.ingestPushReceived = Counter.builder("gateway.ingest.push.total")
+                .description("Requests pushed by the source to the ingest endpoint")
+                .tag("stage", "oracle_pull")
+                .register(registry);
+
         // ==================== E2: Kafka Produce ====================
 
         this.kafkaProduceTimer = Timer.builder("gateway.kafka.produce.duration")
@@ -115,6 +136,11 @@ public class GatewayMetrics {
                 .tag("stage", "kafka_produce")
                 .register(registry);
 
+        this.claimCheckOffload = Counter.builder("gateway.claimcheck.offload")
+                .description("Bodies moved to the blob store instead of Kafka")
+                .tag("stage", "kafka_produce")
+                .register(registry);
+
         // ==================== E3: Consumer Process ====================
 
         this.consumerReceived = Counter.builder("gateway.consumer.received")
@@ -175,6 +201,13 @@ public class GatewayMetrics {
                 .tag("stage", "http_request")
                 .register(registry);
 
+        // Connection pools (HttpClientConfig): reactor-netty records them in the global registry
+        // as reactor.netty.connection.provider.{active,idle,pending,total,max}.connections and
+        // ...pending.connections.time, tagged by remote.address. Make sure they reach this one.
+        if (!Metrics.globalRegistry.getRegistries().contains(registry)) {
+            Metrics.addRegistry(registry);
+        }
+
         // ==================== E5: Oracle Save ====================
 
         this.oracleSaveTimer = Timer.builder("gateway.oracle.save.duration")
@@ -199,6 +232,11 @@ public class GatewayMetrics {
                 .tag("stage", "oracle_save")
                 .register(registry);
 
+        this.oracleSaveBatchSize = DistributionSummary.builder("gateway.oracle.save.batch.size")
+                .description("Responses saved per Oracle request")
+                .tag("stage", "oracle_save")
+                .register(registry);
+
         // ==================== DLQ ====================
 
         this.dlqSent = Counter.builder("gateway.dlq.sent")
@@ -235,4 +273,115 @@ public class GatewayMetrics {
     public void recordHttpTimeout() {
         httpTimeout.increment();
     }
-}
\ No newline at end of file
+
+    /**
+     * Record a request rejected by the adaptive concurrency limit of its host
+     */
+    public void recordHostLimitRejected(String host) {
+        Counter.builder("gateway.http.host.limit.rejected")
+                .description("Requests rejected by the per-host concurrency limit")
+                .tag("stage", "http_request")
+                .tag("host", host)
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * Record a request held back by the host's rate limit
+     *
+     * @param result delayed (waited for a token) | rejected (answered with a local 429)
+     */
+    public void recordRateLimited(String host, String result) {
+        Counter.builder("gateway.http.ratelimit.throttled")
+                .description("Requests delayed or rejected by the per-host rate limit")
+                .tag("stage", "http_request")
+                .tag("host", host)
+                .tag("result", result)
+                .register(registry)
+                .increment();
+    }
+
+    // ==================== Gauges ====================
+    // State gauges of components that depend on GatewayMetrics; each component
+    // registers its suppliers once, at startup.
+
+    /**
+     * E1: effective delay before the next pull cycle (RequestPuller)
+     */
+    public void registerPullIntervalGauge(Supplier<Number> intervalMs) {
+        gauge("gateway.oracle.pull.interval", "Effective delay before the next pull cycle (ms)",
+                "oracle_pull", intervalMs);
+    }
+
+    /**
+     * E1: size of the next pull (PullBatchSizer)
+     */
+    public void registerPullBatchSizeGauge(Supplier<Number> batchSize) {
+        gauge("gateway.oracle.pull.batch.size", "Requests asked for by the next pull",
+                "oracle_pull", batchSize);
+    }
+
+    /**
+     * E1: pull shards or leadership held by this instance (PullCoordinator)
+     */
+    public void registerPullShardsOwnedGauge(Supplier<Number> ownedShards) {
+        gauge("gateway.oracle.pull.shards.owned", "Pull shards (or leadership) currently held by this instance",
+                "oracle_pull", ownedShards);
+    }
+
+    /**
+     * E2: local spool backlog (RequestSpool)
+     */
+    public void registerSpoolGauges(Supplier<Number> records, Supplier<Number> bytes, Supplier<Number> ageSeconds) {
+        gauge("gateway.spool.size", "Requests in the local spool waiting for Kafka", "kafka_produce", records);
+        gauge("gateway.spool.bytes", "Bytes in the local spool waiting for Kafka", "kafka_produce", bytes);
+        gauge("gateway.spool.age", "Age of the oldest spooled request (seconds)", "kafka_produce", ageSeconds);
+    }
+
+    /**
+     * E5: saves waiting for a delayed retry (SaveRetryScheduler)
+     */
+    public void registerSaveRetryQueueGauge(Supplier<Number> waitingRetries) {
+        gauge("gateway.oracle.save.retry.queue", "E5 saves waiting for a delayed retry",
+                "oracle_save", waitingRetries);
+    }
+
+    /**
+     * E4: endpoint profiles cached (EndpointProfileRegistry)
+     */
+    public void registerEndpointProfilesGauge(Supplier<Number> profiles) {
+        gauge("gateway.http.endpoint.profiles", "Endpoint profiles (external base URLs) currently cached",
+                "http", profiles);
+    }
+
+    /**
+     * E4: adaptive concurrency limit of one external host (EndpointProfileRegistry).
+     * The host's gauges are returned so they can be removed when the host is evicted.
+     */
+    public List<Meter> registerHostLimitGauges(String host, Supplier<Number> limit, Supplier<Number> inFlight) {
+        return List.of(
+                hostGauge("gateway.http.host.limit", "Adaptive concurrency limit of the external host",
+                        host, limit),
+                hostGauge("gateway.http.host.inflight", "Requests in flight to the external host",
+                        host, inFlight));
+    }
+
+    public void removeMeters(List<Meter> meters) {
+        meters.forEach(registry::remove);
+    }
+
+    private void gauge(String name, String description, String stage, Supplier<Number> value) {
+        Gauge.builder(name, value)
+                .description(description)
+                .tag("stage", stage)
+                .register(registry);
+    }
+
+    private Gauge hostGauge(String name, String description, String host, Supplier<Number> value) {
+        return Gauge.builder(name, value)
+                .description(description)
+                .tag("stage", "http_request")
+                .tag("host", host)
+                .register(registry);
+    }
+}
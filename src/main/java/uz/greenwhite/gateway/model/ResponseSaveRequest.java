@@ -1,5 +1,6 @@
 package uz.greenwhite.gateway.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -38,5 +39,12 @@ public class ResponseSaveRequest {
 
         @JsonProperty("body")
         private Object body;
+
+        /**
+         * "base64" when a binary body (opaque body mode) is sent base64-encoded, null for text
+         */
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        @JsonProperty("body_encoding")
+        private String bodyEncoding;
     }
 }
\ No newline at end of file
@@ -12,7 +12,7 @@ import java.time.LocalDateTime;
 import java.util.Map;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class RequestMessage {
@@ -42,6 +42,12 @@ public class RequestMessage {
 
     private String body;
 
+    /**
+     * Claim-check reference of the body when it was offloaded to the blob store
+     */
+    @JsonProperty("body_ref")
+    private String bodyRef;
+
     @JsonProperty("oauth2_provider")
     private String oauth2Provider;
 
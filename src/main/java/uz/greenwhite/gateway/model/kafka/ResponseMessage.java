@@ -23,11 +23,15 @@ public class ResponseMessage {
     private int httpStatus;
     private String contentType;
     private String body;
+    private byte[] bodyBytes;    // opaque body mode: raw bytes instead of body
+    private boolean rawBody;     // body travels as bytes (bodyBytes or bodyRef), decoded at the sink
+    private String bodyRef;      // claim-check reference when the body is in the blob store
 
     // Error (if failed)
     private String errorMessage;
     private String errorSource;  // HTTP, CALLBACK, SYSTEM
     private String errorCode;
+    private Long retryAfterMs;   // upstream Retry-After (ms), null if absent
 
     // Timestamps
     private LocalDateTime processedAt;
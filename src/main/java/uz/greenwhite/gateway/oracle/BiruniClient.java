@@ -1,31 +1,49 @@
 package uz.greenwhite.gateway.oracle;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestClient;
 import uz.greenwhite.gateway.config.GatewayProperties;
 import uz.greenwhite.gateway.model.ResponseSaveRequest;
 import uz.greenwhite.gateway.model.kafka.RequestMessage;
+import uz.greenwhite.gateway.source.PullRequest;
 import uz.greenwhite.gateway.source.RequestSourceClient;
 import uz.greenwhite.gateway.source.ResponseSinkClient;
 import uz.greenwhite.gateway.util.AuthUtil;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 @Slf4j
 @Component
+@ConditionalOnProperty(name = "gateway.source.type", havingValue = "HTTP", matchIfMissing = true)
 public class BiruniClient implements RequestSourceClient, ResponseSinkClient {
 
     private final RestClient restClient;
     private final GatewayProperties properties;
 
+    /**
+     * Same settings as the RestClient JSON converter, for the streaming pull
+     */
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
     public BiruniClient(GatewayProperties properties) {
         this.properties = properties;
 
@@ -79,6 +97,83 @@ public class BiruniClient implements RequestSourceClient, ResponseSinkClient {
         }
     }
 
+    /**
+     * Streaming pull: the JSON array is read incrementally and every request is
+     * handed to the consumer as soon as its object is parsed, so memory does not
+     * grow with the pull size. The pull size goes as batch_size, the cursor (if any)
+     * as cursor, the long poll wait (if any) as wait_ms and the shard (if sharded
+     * and sharding-supported) as shard / shard_count query parameter.
+     *
+     * @return number of requests pulled
+     */
+    @Override
+    public int streamRequests(PullRequest pullRequest, Consumer<RequestMessage> consumer) {
+        boolean sharded = pullRequest.isSharded();
+        if (sharded && !supportsSharding()) {
+            throw new UnsupportedOperationException(
+                    "Sharded pull needs gateway.source.sharding-supported=true");
+        }
+        try {
+            log.debug("Streaming requests from: {}{} [batchSize={}, cursor={}, shard={}/{}]", properties.getBaseUrl(),
+                    properties.getRequestPullUri(), pullRequest.batchSize(), pullRequest.cursor(),
+                    pullRequest.shard(), pullRequest.shardCount());
+
+            Integer count = restClient.get()
+                    .uri(builder -> builder.path(properties.getRequestPullUri())
+                            .queryParam("batch_size", pullRequest.batchSize())
+                            .queryParamIfPresent("cursor", Optional.ofNullable(pullRequest.cursor()))
+                            .queryParamIfPresent("wait_ms", Optional.of(pullRequest.waitMs()).filter(ms -> ms > 0))
+                            .queryParamIfPresent("shard", Optional.of(pullRequest.shard()).filter(s -> sharded))
+                            .queryParamIfPresent("shard_count", Optional.of(pullRequest.shardCount()).filter(n -> sharded))
+                            .build())
+                    .header(HttpHeaders.AUTHORIZATION,
+                            AuthUtil.generateBasicAuth(properties.getUsername(), properties.getPassword()))
+                    .exchange((req, resp) -> {
+                        if (!resp.getStatusCode().is2xxSuccessful()) {
+                            throw new IllegalStateException("Pull returned HTTP " + resp.getStatusCode().value());
+                        }
+                        return readRequests(resp.getBody(), consumer);
+                    });
+
+            if (count != null && count > 0) {
+                log.info("Pulled {} requests from data source", count);
+            }
+
+            return count != null ? count : 0;
+
+        } catch (Exception e) {
+            log.error("Error pulling requests from data source: {}", e.getMessage(), e);
+            throw new RuntimeException("Request pull failed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Declared by configuration: the server-side contract is not discoverable over HTTP
+     */
+    @Override
+    public boolean supportsSharding() {
+        return properties.isShardingSupported();
+    }
+
+    private int readRequests(InputStream body, Consumer<RequestMessage> consumer) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            JsonToken token = parser.nextToken();
+            if (token == null || token == JsonToken.VALUE_NULL) {
+                return 0;
+            }
+            if (token != JsonToken.START_ARRAY) {
+                throw new IllegalStateException("Pull response must be a JSON array, got " + token);
+            }
+
+            int count = 0;
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                consumer.accept(objectMapper.readValue(parser, RequestMessage.class));
+                count++;
+            }
+            return count;
+        }
+    }
+
     // ==================== ResponseSinkClient ====================
 
     /**
@@ -93,17 +188,7 @@ public class BiruniClient implements RequestSourceClient, ResponseSinkClient {
         try {
             log.debug("Saving response for: {}:{}", request.getCompanyId(), request.getRequestId());
 
-            var response = restClient.post()
-                    .uri(properties.getResponseSaveUri())
-                    .header(HttpHeaders.AUTHORIZATION,
-                            AuthUtil.generateBasicAuth(properties.getUsername(), properties.getPassword()))
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .body(List.of(request))
-                    .exchange((req, resp) -> {
-                        int status = resp.getStatusCode().value();
-                        log.debug("Save response status: {}", status);
-                        return status >= 200 && status < 300;
-                    });
+            var response = isSaved(postResponses(List.of(request)));
 
             if (response) {
                 log.info("Response saved successfully: {}:{}", request.getCompanyId(), request.getRequestId());
@@ -116,4 +201,68 @@ public class BiruniClient implements RequestSourceClient, ResponseSinkClient {
             return false;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Save many responses with one HTTP POST (the save URI already accepts a JSON array).
+     * If the data source rejects an item of the batch (4xx), it is split in halves and
+     * retried to isolate the failing items. If the data source fails (5xx) or the call
+     * itself fails (connection, timeout), every item is reported as failed without
+     * splitting — SaveRetryScheduler retries them later.
+     *
+     * @return per-item result, same order as requests
+     */
+    @Override
+    public List<Boolean> saveResponses(List<ResponseSaveRequest> requests) {
+        if (requests.isEmpty()) {
+            return List.of();
+        }
+        if (requests.size() == 1) {
+            return List.of(saveResponse(requests.get(0)));
+        }
+
+        int status;
+        try {
+            status = postResponses(requests);
+        } catch (Exception e) {
+            log.error("Error saving {} responses to data source: {}", requests.size(), e.getMessage(), e);
+            return Collections.nCopies(requests.size(), false);
+        }
+
+        if (isSaved(status)) {
+            log.info("Saved {} responses in one request", requests.size());
+            return Collections.nCopies(requests.size(), true);
+        }
+        if (status < 400 || status >= 500) {
+            log.error("Data source failed to save {} responses: HTTP {}", requests.size(), status);
+            return Collections.nCopies(requests.size(), false);
+        }
+
+        // An item was rejected — bisect to find the failing items
+        log.warn("Batch of {} responses rejected (HTTP {}), splitting", requests.size(), status);
+        int middle = requests.size() / 2;
+        List<Boolean> results = new ArrayList<>(saveResponses(requests.subList(0, middle)));
+        results.addAll(saveResponses(requests.subList(middle, requests.size())));
+        return results;
+    }
+
+    /**
+     * @return HTTP status of the save call
+     */
+    private int postResponses(List<ResponseSaveRequest> requests) {
+        return restClient.post()
+                .uri(properties.getResponseSaveUri())
+                .header(HttpHeaders.AUTHORIZATION,
+                        AuthUtil.generateBasicAuth(properties.getUsername(), properties.getPassword()))
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(requests)
+                .exchange((req, resp) -> {
+                    int status = resp.getStatusCode().value();
+                    log.debug("Save response status: {} ({} items)", status, requests.size());
+                    return status;
+                });
+    }
+
+    private static boolean isSaved(int status) {
+        return status >= 200 && status < 300;
+    }
+}
@@ -0,0 +1,339 @@
+package uz.greenwhite.gateway.oracle;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.stereotype.Component;
+import uz.greenwhite.gateway.config.GatewayProperties;
+import uz.greenwhite.gateway.model.ResponseSaveRequest;
+import uz.greenwhite.gateway.model.kafka.RequestMessage;
+import uz.greenwhite.gateway.source.PullRequest;
+import uz.greenwhite.gateway.source.RequestSourceClient;
+import uz.greenwhite.gateway.source.ResponseSinkClient;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Data source access over JDBC (gateway.source.type=JDBC), without the HTTP hop
+ * and JSON marshalling of BiruniClient.
+ *
+ * Pull: new rows are selected FOR UPDATE SKIP LOCKED in company_id, request_id order,
+ * so concurrent pulls (other instances, other shards) never claim the same row. At most
+ * batch_size rows are read (setMaxRows, fetched fetch-size rows per round trip), marked
+ * 'P' with claimed_at with one batch update and committed. The claimed requests are
+ * handed over only after the commit. The cursor and long poll wait are not needed and ignored.
+ *
+ * A claim is a lease: a 'P' row not completed within claim-lease-ms (the instance
+ * stopped before Kafka took it, or the publisher sent it to the DLQ) is claimed again
+ * by a later pull. Duplicates of a request still in flight are filtered by the Redis state.
+ *
+ * callback_procedure is run by the source behind the HTTP save URI; direct saves cannot
+ * run it, so rows that carry one are completed with 'E' at claim time and not handed over.
+ *
+ * Save: responses are written with one JDBC batch update per call.
+ *
+ * The SQL is plain (MOD, FOR UPDATE SKIP LOCKED) and runs on Oracle, PostgreSQL
+ * and H2, so an embedded database can stand in for the source.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "gateway.source.type", havingValue = "JDBC")
+public class JdbcSourceClient implements RequestSourceClient, ResponseSinkClient {
+
+    private static final String STATUS_NEW = "N";
+    private static final String STATUS_CLAIMED = "P";
+    private static final String STATUS_COMPLETED = "C";
+    private static final String STATUS_ERROR = "E";
+
+    private static final String CALLBACK_NOT_SUPPORTED =
+            "callback_procedure is not supported with gateway.source.type=JDBC";
+
+    private static final String COLUMNS = "company_id, request_id, filial_id, endpoint_id, base_url, uri, params, " +
+            "method, headers, body, oauth2_provider, callback_procedure, project_code, source_table, source_id, created_at";
+
+    private final DataSource dataSource;
+    private final GatewayProperties.Jdbc properties;
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private final String selectSql;
+    private final String selectShardSql;
+    private final String claimSql;
+    private final String saveSql;
+
+    public JdbcSourceClient(DataSource dataSource, GatewayProperties gatewayProperties) {
+        this.dataSource = dataSource;
+        this.properties = gatewayProperties.getJdbc();
+
+        String table = properties.getRequestTable();
+        String select = "SELECT " + COLUMNS + ", status FROM " + table +
+                " WHERE (status = '" + STATUS_NEW + "' OR (status = '" + STATUS_CLAIMED + "' AND claimed_at < ?))";
+        String lock = " ORDER BY company_id, request_id FOR UPDATE SKIP LOCKED";
+        this.selectSql = select + lock;
+        this.selectShardSql = select + " AND MOD(company_id, ?) = ?" + lock;
+        this.claimSql = "UPDATE " + table + " SET status = '" + STATUS_CLAIMED + "', claimed_at = ?" +
+                " WHERE company_id = ? AND request_id = ?";
+        this.saveSql = "UPDATE " + table + " SET status = ?, response_status = ?, response_content_type = ?," +
+                " response_body = ?, error_message = ?, completed_at = CURRENT_TIMESTAMP" +
+                " WHERE company_id = ? AND request_id = ?";
+    }
+
+    // ==================== RequestSourceClient ====================
+
+    @Override
+    public List<RequestMessage> pullRequests() {
+        List<RequestMessage> requests = new ArrayList<>();
+        streamRequests(new PullRequest(properties.getFetchSize(), null, 0, 0, 1), requests::add);
+        return requests;
+    }
+
+    /**
+     * Claim up to batch_size new (or lease-expired) rows of the pull's shard and hand them to the consumer.
+     *
+     * @return number of requests claimed
+     */
+    @Override
+    public int streamRequests(PullRequest pullRequest, Consumer<RequestMessage> consumer) {
+        List<RequestMessage> claimed;
+        try {
+            claimed = claim(pullRequest);
+        } catch (Exception e) {
+            log.error("Error pulling requests from database: {}", e.getMessage(), e);
+            throw new RuntimeException("Request pull failed: " + e.getMessage(), e);
+        }
+
+        if (!claimed.isEmpty()) {
+            log.info("Pulled {} requests from database", claimed.size());
+        }
+        claimed.forEach(consumer);
+        return claimed.size();
+    }
+
+    /**
+     * The claim query filters by MOD(company_id, shard_count) = shard
+     */
+    @Override
+    public boolean supportsSharding() {
+        return true;
+    }
+
+    private List<RequestMessage> claim(PullRequest pullRequest) throws SQLException {
+        long now = System.currentTimeMillis();
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                List<RequestMessage> requests = new ArrayList<>();
+                List<RequestMessage> refused = new ArrayList<>();
+                for (RequestMessage request : select(connection, pullRequest, now)) {
+                    (request.getCallbackProcedure() != null ? refused : requests).add(request);
+                }
+                if (!requests.isEmpty()) {
+                    markClaimed(connection, requests, now);
+                }
+                if (!refused.isEmpty()) {
+                    refuse(connection, refused);
+                }
+                connection.commit();
+                return requests;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    private List<RequestMessage> select(Connection connection, PullRequest pullRequest, long now)
+            throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                pullRequest.isSharded() ? selectShardSql : selectSql)) {
+            statement.setMaxRows(pullRequest.batchSize());
+            statement.setFetchSize(Math.min(properties.getFetchSize(), pullRequest.batchSize()));
+            statement.setTimestamp(1, new Timestamp(now - properties.getClaimLeaseMs()));
+            if (pullRequest.isSharded()) {
+                statement.setInt(2, pullRequest.shardCount());
+                statement.setInt(3, pullRequest.shard());
+            }
+
+            List<RequestMessage> requests = new ArrayList<>();
+            int reclaimed = 0;
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next() && requests.size() < pullRequest.batchSize()) {
+                    requests.add(toRequest(rs));
+                    if (STATUS_CLAIMED.equals(rs.getString("status"))) {
+                        reclaimed++;
+                    }
+                }
+            }
+            if (reclaimed > 0) {
+                log.warn("Reclaiming {} requests not completed within the {}ms claim lease",
+                        reclaimed, properties.getClaimLeaseMs());
+            }
+            return requests;
+        }
+    }
+
+    private void markClaimed(Connection connection, List<RequestMessage> requests, long now) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(claimSql)) {
+            Timestamp claimedAt = new Timestamp(now);
+            for (RequestMessage request : requests) {
+                statement.setTimestamp(1, claimedAt);
+                statement.setLong(2, request.getCompanyId());
+                statement.setLong(3, request.getRequestId());
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    /**
+     * Complete rows with a callback_procedure as 'E' in the claim transaction
+     */
+    private void refuse(Connection connection, List<RequestMessage> requests) throws SQLException {
+        log.error("Refusing {} requests: {}: {}", requests.size(), CALLBACK_NOT_SUPPORTED, requests.stream().map(RequestMessage::getCompositeId).toList());
+        try (PreparedStatement statement = connection.prepareStatement(saveSql)) {
+            for (RequestMessage request : requests) {
+                bindSave(statement, ResponseSaveRequest.builder()
+                        .companyId(request.getCompanyId())
+                        .requestId(request.getRequestId())
+                        .errorMessage(CALLBACK_NOT_SUPPORTED)
+                        .build());
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    private RequestMessage toRequest(ResultSet rs) throws SQLException {
+        Timestamp createdAt = rs.getTimestamp("created_at");
+        return RequestMessage.builder()
+                .companyId(rs.getLong("company_id"))
+                .requestId(rs.getLong("request_id"))
+                .filialId(getLong(rs, "filial_id"))
+                .endpointId(getLong(rs, "endpoint_id"))
+                .baseUrl(rs.getString("base_url"))
+                .uri(rs.getString("uri"))
+                .params(rs.getString("params"))
+                .method(rs.getString("method"))
+                .headers(parseHeaders(rs.getString("headers")))
+                .body(rs.getString("body"))
+                .oauth2Provider(rs.getString("oauth2_provider"))
+                .callbackProcedure(rs.getString("callback_procedure"))
+                .projectCode(rs.getString("project_code"))
+                .sourceTable(rs.getString("source_table"))
+                .sourceId(getLong(rs, "source_id"))
+                .createdAt(createdAt != null ? createdAt.toLocalDateTime() : null)
+                .build();
+    }
+
+    private static Long getLong(ResultSet rs, String column) throws SQLException {
+        long value = rs.getLong(column);
+        return rs.wasNull() ? null : value;
+    }
+
+    /**
+     * Headers are stored as a JSON object string, same as in the HTTP pull
+     */
+    private Map<String, String> parseHeaders(String headers) {
+        if (headers == null || headers.isBlank()) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(headers, new TypeReference<>() {});
+        } catch (Exception e) {
+            log.error("Error deserializing headers map: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    // ==================== ResponseSinkClient ====================
+
+    @Override
+    public boolean saveResponse(ResponseSaveRequest request) {
+        return saveResponses(List.of(request)).get(0);
+    }
+
+    /**
+     * Save many responses with one JDBC batch update.
+     * A row that was not updated (unknown request) is reported as failed;
+     * if the batch itself fails, every item is reported as failed.
+     *
+     * @return per-item result, same order as requests
+     */
+    @Override
+    public List<Boolean> saveResponses(List<ResponseSaveRequest> requests) {
+        if (requests.isEmpty()) {
+            return List.of();
+        }
+
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(saveSql)) {
+
+            for (ResponseSaveRequest request : requests) {
+                bindSave(statement, request);
+                statement.addBatch();
+            }
+            int[] counts = statement.executeBatch();
+
+            List<Boolean> results = new ArrayList<>(requests.size());
+            for (int i = 0; i < requests.size(); i++) {
+                boolean saved = i < counts.length
+                        && (counts[i] > 0 || counts[i] == Statement.SUCCESS_NO_INFO);
+                if (!saved) {
+                    log.warn("Response not saved, request not found: {}:{}",
+                            requests.get(i).getCompanyId(), requests.get(i).getRequestId());
+                }
+                results.add(saved);
+            }
+            log.debug("Saved batch of {} responses", requests.size());
+            return results;
+
+        } catch (Exception e) {
+            log.error("Error saving {} responses to database: {}", requests.size(), e.getMessage(), e);
+            return requests.stream().map(request -> false).toList();
+        }
+    }
+
+    private void bindSave(PreparedStatement statement, ResponseSaveRequest request) throws SQLException {
+        ResponseSaveRequest.ResponseData response = request.getResponse();
+
+        statement.setString(1, request.getErrorMessage() == null ? STATUS_COMPLETED : STATUS_ERROR);
+        if (response != null) {
+            statement.setInt(2, response.getStatus());
+            statement.setString(3, response.getContentType());
+            statement.setString(4, bodyText(response.getBody()));
+        } else {
+            statement.setNull(2, Types.INTEGER);
+            statement.setNull(3, Types.VARCHAR);
+            statement.setNull(4, Types.CLOB);
+        }
+        statement.setString(5, request.getErrorMessage());
+        statement.setLong(6, request.getCompanyId());
+        statement.setLong(7, request.getRequestId());
+    }
+
+    private String bodyText(Object body) throws SQLException {
+        if (body == null || body instanceof String) {
+            return (String) body;
+        }
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new SQLException("Response body is not serializable: " + e.getMessage(), e);
+        }
+    }
+}
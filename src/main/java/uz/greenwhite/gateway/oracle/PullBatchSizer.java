@@ -0,0 +1,104 @@
+package uz.greenwhite.gateway.oracle;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import uz.greenwhite.gateway.concurrency.ConcurrencyMonitorService;
+import uz.greenwhite.gateway.concurrency.MonitoredExecutor;
+import uz.greenwhite.gateway.config.KafkaProperties;
+import uz.greenwhite.gateway.config.PollingProperties;
+import uz.greenwhite.gateway.kafka.producer.RequestBatchPublisher;
+import uz.greenwhite.gateway.metrics.GatewayMetrics;
+
+/**
+ * Pull size for RequestPuller.
+ *
+ * With gateway.polling.adaptive.enabled the size follows downstream capacity:
+ * halved when the pipeline is saturated (request-new lag, average produce latency,
+ * or a queue on httpRequestExecutor), doubled while pulls come back full, up to
+ * the configured bounds. Otherwise it is always gateway.polling.batch-size.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "gateway.polling.enabled", havingValue = "true")
+public class PullBatchSizer {
+
+    private final PollingProperties properties;
+    private final KafkaProperties kafkaProperties;
+    private final ConcurrencyMonitorService monitorService;
+    private final MonitoredExecutor httpExecutor;
+    private final RequestBatchPublisher batchPublisher;
+
+    private volatile int batchSize;
+
+    public PullBatchSizer(
+            PollingProperties properties,
+            KafkaProperties kafkaProperties,
+            ConcurrencyMonitorService monitorService,
+            @Qualifier("httpRequestExecutor") MonitoredExecutor httpExecutor,
+            RequestBatchPublisher batchPublisher,
+            GatewayMetrics metrics) {
+        this.properties = properties;
+        this.kafkaProperties = kafkaProperties;
+        this.monitorService = monitorService;
+        this.httpExecutor = httpExecutor;
+        this.batchPublisher = batchPublisher;
+
+        PollingProperties.Adaptive adaptive = properties.getAdaptive();
+        this.batchSize = adaptive.isEnabled()
+                ? Math.clamp(properties.getBatchSize(), adaptive.getMinBatchSize(), adaptive.getMaxBatchSize())
+                : properties.getBatchSize();
+
+        metrics.registerPullBatchSizeGauge(() -> batchSize);
+    }
+
+    /**
+     * Size of the next pull
+     */
+    public int current() {
+        return batchSize;
+    }
+
+    /**
+     * Adjust the size after a pull returned the given number of requests
+     */
+    public synchronized void onPulled(int pulled) {
+        PollingProperties.Adaptive adaptive = properties.getAdaptive();
+        if (!adaptive.isEnabled()) {
+            return;
+        }
+
+        int previous = batchSize;
+        String reason = saturationReason(adaptive);
+
+        if (reason != null) {
+            batchSize = Math.max(adaptive.getMinBatchSize(), previous / 2);
+        } else if (pulled >= previous) {
+            batchSize = (int) Math.min(adaptive.getMaxBatchSize(), previous * 2L);
+        }
+
+        if (batchSize != previous) {
+            log.debug("E1: Pull batch size {} -> {} ({})", previous, batchSize,
+                    reason != null ? reason : "pull was full");
+        }
+    }
+
+    /**
+     * @return why the pipeline is saturated, null if it is not
+     */
+    private String saturationReason(PollingProperties.Adaptive adaptive) {
+        long lag = monitorService.getLastKnownLag(kafkaProperties.getTopics().getRequestNew());
+        if (lag > adaptive.getMaxLag()) {
+            return "request lag " + lag;
+        }
+        double produceLatencyMs = batchPublisher.getProduceLatencyMs();
+        if (produceLatencyMs > adaptive.getMaxProduceMs()) {
+            return String.format("produce latency %.0fms", produceLatencyMs);
+        }
+        if (httpExecutor.getQueueSize() > 0) {
+            return "http executor queue " + httpExecutor.getQueueSize();
+        }
+        return null;
+    }
+}
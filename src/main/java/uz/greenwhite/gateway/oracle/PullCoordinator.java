@@ -0,0 +1,247 @@
+package uz.greenwhite.gateway.oracle;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import uz.greenwhite.gateway.config.PollingProperties;
+import uz.greenwhite.gateway.metrics.GatewayMetrics;
+
+import java.net.InetAddress;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides which pulls this instance runs when several gateway instances share one source.
+ *
+ * NONE:    every instance pulls everything.
+ * LEADER:  one lease key in Redis; only its holder pulls.
+ * SHARDED: requests are split into shards (company_id % shards), each shard is a lease.
+ *          Every instance keeps about shards / liveInstances of them, so adding an
+ *          instance adds pull capacity instead of duplicate pulls.
+ *
+ * Leases are renewed on a dedicated heartbeat thread (a long pull does not delay it).
+ * An instance that dies loses its leases after lease-ms; a graceful shutdown releases
+ * them at once. Ownership is also dropped locally when renewal has not succeeded for
+ * lease-ms, so two instances never pull the same shard on a healthy clock.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "gateway.polling.enabled", havingValue = "true")
+public class PullCoordinator {
+
+    private static final String LEADER_KEY = "gateway:pull:leader";
+    private static final String SHARD_PREFIX = "gateway:pull:shard:";
+    private static final String MEMBERS_KEY = "gateway:pull:members";
+
+    /**
+     * Take the lease or extend it if already ours.
+     *
+     * KEYS[1] = lease key
+     * ARGV    = owner, leaseMs
+     */
+    private static final RedisScript<Long> ACQUIRE = new DefaultRedisScript<>("""
+            local owner = redis.call('GET', KEYS[1])
+            if owner == ARGV[1] then
+                redis.call('PEXPIRE', KEYS[1], ARGV[2])
+                return 1
+            end
+            if not owner then
+                redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[2])
+                return 1
+            end
+            return 0
+            """, Long.class);
+
+    /**
+     * Delete the lease only if it is ours.
+     *
+     * KEYS[1] = lease key
+     * ARGV    = owner
+     */
+    private static final RedisScript<Long> RELEASE = new DefaultRedisScript<>("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+                return redis.call('DEL', KEYS[1])
+            end
+            return 0
+            """, Long.class);
+
+    /**
+     * Register this instance as alive and count live instances.
+     *
+     * KEYS[1] = members sorted set (score = expiry time)
+     * ARGV    = owner, now, expiresAt
+     */
+    private static final RedisScript<Long> HEARTBEAT = new DefaultRedisScript<>("""
+            redis.call('ZREMRANGEBYSCORE', KEYS[1], '-inf', ARGV[2])
+            redis.call('ZADD', KEYS[1], ARGV[3], ARGV[1])
+            redis.call('PEXPIRE', KEYS[1], ARGV[3] - ARGV[2])
+            return redis.call('ZCARD', KEYS[1])
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final PollingProperties.Coordination properties;
+    private final GatewayMetrics metrics;
+    private final String instanceId;
+
+    private final ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "pull-lease-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Shards (LEADER: shard 0 = leadership) held by this instance, valid until leaseValidUntil
+     */
+    private volatile Set<Integer> owned = Set.of();
+    private volatile long leaseValidUntil;
+
+    public PullCoordinator(StringRedisTemplate redisTemplate, PollingProperties pollingProperties,
+                           GatewayMetrics metrics) {
+        this.redisTemplate = redisTemplate;
+        this.properties = pollingProperties.getCoordination();
+        this.metrics = metrics;
+        this.instanceId = hostName() + ":" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    @PostConstruct
+    public void start() {
+        metrics.registerPullShardsOwnedGauge(() -> ownedShards().size());
+
+        if (properties.getMode() == PollingProperties.Mode.NONE) {
+            return;
+        }
+        log.info("E1: Pull coordination {} as {} [shards={}, lease={}ms]",
+                properties.getMode(), instanceId, shardCount(), properties.getLeaseMs());
+        heartbeat.scheduleWithFixedDelay(this::renew, 0, properties.getHeartbeatMs(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Number of shards every pull is split into (1 = not sharded)
+     */
+    public int shardCount() {
+        return properties.getMode() == PollingProperties.Mode.SHARDED ? properties.getShards() : 1;
+    }
+
+    /**
+     * Shards this instance should pull now, in ascending order. Empty if it holds none.
+     */
+    public List<Integer> ownedShards() {
+        if (properties.getMode() == PollingProperties.Mode.NONE) {
+            return List.of(0);
+        }
+        if (System.currentTimeMillis() >= leaseValidUntil) {
+            return List.of();
+        }
+        return List.copyOf(owned);
+    }
+
+    /**
+     * Whether the shard is still held (checked between pulls of one cycle)
+     */
+    public boolean owns(int shard) {
+        return ownedShards().contains(shard);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeat.shutdownNow();
+        if (properties.getMode() == PollingProperties.Mode.NONE) {
+            return;
+        }
+
+        Set<Integer> released = owned;
+        owned = Set.of();
+        try {
+            for (int shard : released) {
+                redisTemplate.execute(RELEASE, List.of(leaseKey(shard)), instanceId);
+            }
+            redisTemplate.opsForZSet().remove(MEMBERS_KEY, instanceId);
+            log.info("E1: Released pull leases {} on shutdown", released);
+        } catch (Exception e) {
+            log.warn("E1: Failed to release pull leases on shutdown, they expire in {}ms: {}",
+                    properties.getLeaseMs(), e.getMessage());
+        }
+    }
+
+    /**
+     * Heartbeat: renew held leases, give up the surplus, take free shards up to the fair share
+     */
+    private void renew() {
+        long started = System.currentTimeMillis();
+        try {
+            Set<Integer> held = properties.getMode() == PollingProperties.Mode.LEADER
+                    ? renewLeader()
+                    : renewShards(started);
+
+            if (!held.equals(owned)) {
+                log.info("E1: Pull leases changed {} -> {}", owned, held);
+            }
+            owned = held;
+            // A lease taken or extended at 'started' is valid for leaseMs from then
+            leaseValidUntil = started + properties.getLeaseMs();
+
+        } catch (Exception e) {
+            log.error("E1: Pull lease heartbeat failed, holding {} until lease expiry: {}",
+                    owned, e.getMessage());
+        }
+    }
+
+    private Set<Integer> renewLeader() {
+        return acquire(0) ? Set.of(0) : Set.of();
+    }
+
+    private Set<Integer> renewShards(long now) {
+        int shards = properties.getShards();
+        Long members = redisTemplate.execute(HEARTBEAT, List.of(MEMBERS_KEY),
+                instanceId, String.valueOf(now), String.valueOf(now + properties.getLeaseMs()));
+        int fairShare = (int) Math.ceil((double) shards / Math.max(1, members != null ? members : 1));
+
+        Set<Integer> held = new TreeSet<>();
+        for (int shard : owned) {
+            if (held.size() < fairShare && acquire(shard)) {
+                held.add(shard);
+            } else {
+                // Over the fair share after an instance joined: hand the shard over
+                redisTemplate.execute(RELEASE, List.of(leaseKey(shard)), instanceId);
+            }
+        }
+
+        // Start at an instance-specific offset so instances do not race for the same free shards
+        int offset = Math.floorMod(instanceId.hashCode(), shards);
+        for (int i = 0; i < shards && held.size() < fairShare; i++) {
+            int shard = (offset + i) % shards;
+            if (!held.contains(shard) && acquire(shard)) {
+                held.add(shard);
+            }
+        }
+        return held;
+    }
+
+    private boolean acquire(int shard) {
+        Long result = redisTemplate.execute(ACQUIRE, List.of(leaseKey(shard)),
+                instanceId, String.valueOf(properties.getLeaseMs()));
+        return result != null && result == 1;
+    }
+
+    private String leaseKey(int shard) {
+        return properties.getMode() == PollingProperties.Mode.LEADER ? LEADER_KEY : SHARD_PREFIX + shard;
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            return "gateway";
+        }
+    }
+}
@@ -1,174 +1,199 @@
 package uz.greenwhite.gateway.oracle;
 
 import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
 import org.springframework.stereotype.Component;
-import uz.greenwhite.gateway.config.KafkaProperties;
+import uz.greenwhite.gateway.config.GatewayProperties;
+import uz.greenwhite.gateway.config.PollingProperties;
 import uz.greenwhite.gateway.config.RetryProperties;
-import uz.greenwhite.gateway.kafka.producer.RequestProducer;
+import uz.greenwhite.gateway.kafka.producer.RequestBatchPublisher;
 import uz.greenwhite.gateway.metrics.GatewayMetrics;
-import uz.greenwhite.gateway.model.kafka.DlqMessage;
-import uz.greenwhite.gateway.model.kafka.RequestMessage;
+import uz.greenwhite.gateway.source.PullRequest;
 import uz.greenwhite.gateway.source.RequestSourceClient;
-import uz.greenwhite.gateway.validation.RequestValidator;
 
-import java.util.ArrayList;
+import java.time.Instant;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Component
 @RequiredArgsConstructor
 @ConditionalOnProperty(name = "gateway.polling.enabled", havingValue = "true")
-public class RequestPuller {
+public class RequestPuller implements SchedulingConfigurer {
 
-    private final RequestProducer requestProducer;
+    private final RequestBatchPublisher batchPublisher;
     private final RetryProperties retryProperties;
     private final GatewayMetrics metrics;
-    private final KafkaProperties kafkaProperties;
-    private final RequestValidator requestValidator;
     private final RequestSourceClient requestSourceClient;
+    private final PollingProperties pollingProperties;
+    private final PullBatchSizer batchSizer;
+    private final GatewayProperties gatewayProperties;
+    private final PullCoordinator pullCoordinator;
 
-    @Scheduled(fixedDelayString = "${gateway.polling.interval-ms:5000}")
-    public void pullRequests() {
-        try {
-            List<RequestMessage> requests;
+    /**
+     * Completion (acks, retries, DLQ) of the previous pulled batch. The next pull
+     * streams while it finishes; at most one batch is finishing at a time.
+     */
+    private CompletableFuture<Void> inFlightBatch = CompletableFuture.completedFuture(null);
 
-            do {
-                // ===== E1: Oracle Pull with Timer =====
-                Timer.Sample pullSample = Timer.start(metrics.getRegistry());
+    /**
+     * Consecutive pull cycles that found nothing (idle backoff)
+     */
+    private int emptyCycles;
 
-                try {
-                    requests = requestSourceClient.pullRequests();
-                } catch (Exception e) {
-                    pullSample.stop(metrics.getOraclePullTimer());
-                    metrics.getOraclePullError().increment();
-                    log.error("E1: Oracle pull failed: {}", e.getMessage(), e);
-                    return;
-                }
+    /**
+     * Delay before the next pull cycle
+     */
+    private volatile long nextIntervalMs;
 
-                pullSample.stop(metrics.getOraclePullTimer());
+    @PostConstruct
+    public void init() {
+        if (pollingProperties.getLongPollMs() >= gatewayProperties.getConnectionTimeout() * 1000L) {
+            throw new IllegalArgumentException(
+                    "gateway.polling.long-poll-ms must be below gateway.source.connection-timeout");
+        }
+        if (pullCoordinator.shardCount() > 1 && !requestSourceClient.supportsSharding()) {
+            throw new IllegalArgumentException("gateway.polling.coordination.mode=SHARDED needs a source that "
+                    + "filters by shard (type=JDBC, or type=HTTP with gateway.source.sharding-supported=true)");
+        }
 
-                if (requests.isEmpty()) {
-                    metrics.getOraclePullEmpty().increment();
-                } else {
-                    metrics.getOraclePullSuccess().increment(requests.size());
-                    processRequests(requests);
-                }
+        nextIntervalMs = pollingProperties.getIntervalMs();
+        metrics.registerPullIntervalGauge(() -> nextIntervalMs);
+    }
+
+    /**
+     * Fixed delay of interval-ms between cycles, or with idle-backoff the delay
+     * computed by the last cycle
+     */
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        taskRegistrar.addTriggerTask(this::pullRequests, context -> {
+            Instant lastCompletion = context.lastCompletion();
+            return lastCompletion == null
+                    ? Instant.now().plusMillis(nextIntervalMs)
+                    : lastCompletion.plusMillis(nextIntervalMs);
+        });
+    }
 
-            } while (!requests.isEmpty());
+    public void pullRequests() {
+        List<Integer> shards = pullCoordinator.ownedShards();
+        if (shards.isEmpty()) {
+            // Another instance holds the leader lease / all shards
+            log.debug("E1: No pull lease held, skipping cycle");
+            return;
+        }
+
+        int cyclePulled = 0;
+
+        try {
+            for (int shard : shards) {
+                cyclePulled += pullShard(shard);
+            }
 
         } catch (Exception e) {
             metrics.getOraclePullError().increment();
             log.error("E1: Error while pulling requests from Oracle: {}", e.getMessage(), e);
+
+        } finally {
+            emptyCycles = cyclePulled > 0 ? 0 : emptyCycles + 1;
+            nextIntervalMs = pollingProperties.nextIntervalMs(emptyCycles);
         }
     }
 
     /**
-     * E1: Process all requests - continue even if some fail
+     * Pull one shard until it is drained or its lease is lost
+     *
+     * @return number of requests pulled
      */
-    private void processRequests(List<RequestMessage> requests) {
-        List<String> successList = new ArrayList<>();
-        List<String> failedList = new ArrayList<>();
-
-        for (RequestMessage request : requests) {
-            String compositeId = request.getCompositeId();
+    private int pullShard(int shard) {
+        boolean drainFull = pollingProperties.getIdleBackoff().isEnabled();
+        int shardPulled = 0;
+        int pulled;
+        boolean more;
+        String cursor = null;
+
+        do {
+            // ===== E1: Oracle Pull with Timer =====
+            Timer.Sample pullSample = Timer.start(metrics.getRegistry());
+            RequestBatchPublisher.Batch batch = batchPublisher.newBatch();
+            PullRequest pullRequest = new PullRequest(batchSizer.current(), cursor,
+                    pollingProperties.getLongPollMs(), shard, pullCoordinator.shardCount());
 
             try {
-                // Validate before sending to Kafka
-                List<String> validationErrors = requestValidator.validate(request);
-                if (!validationErrors.isEmpty()) {
-                    String errorMsg = "Validation failed: " + String.join("; ", validationErrors);
-                    log.error("Request validation failed: {} - {}", compositeId, errorMsg);
-                    sendToDlq(request, errorMsg);
-                    failedList.add(compositeId);
-                    continue;
-                }
-
-                sendToKafkaWithRetry(request);
-                successList.add(compositeId);
+                // Each request is validated and sent as soon as it is read
+                pulled = requestSourceClient.streamRequests(pullRequest, batch::accept);
             } catch (Exception e) {
-                failedList.add(compositeId);
-                log.error("Failed to process request: {} - {}", compositeId, e.getMessage());
-                sendToDlq(request, e.getMessage());
+                pullSample.stop(metrics.getOraclePullTimer());
+                metrics.getOraclePullError().increment();
+                log.error("E1: Oracle pull failed after {} requests: {}", batch.getTotal(), e.getMessage(), e);
+                // Requests read before the failure are already being sent
+                finish(batch);
+                return shardPulled + batch.getTotal();
             }
-        }
-
-        logProcessingSummary(requests.size(), successList.size(), failedList);
-    }
 
-    /**
-     * E2: Send to Kafka with retry (max 3 attempts, 3s interval)
-     */
-    private void sendToKafkaWithRetry(RequestMessage request) throws Exception {
-        String compositeId = request.getCompositeId();
-        Exception lastException = null;
-
-        for (int attempt = 1; attempt <= retryProperties.getMaxAttempts(); attempt++) {
-            try {
-                log.debug("Sending request to Kafka: {} (attempt {}/{})",
-                        compositeId, attempt, retryProperties.getMaxAttempts());
+            pullSample.stop(metrics.getOraclePullTimer());
+            batchSizer.onPulled(pulled);
+            if (pollingProperties.isCursorEnabled() && batch.getLastCompositeId() != null) {
+                cursor = batch.getLastCompositeId();
+            }
 
-                // ===== E2: Kafka Produce with Timer =====
-                Timer.Sample kafkaSample = Timer.start(metrics.getRegistry());
+            if (pulled == 0) {
+                metrics.getOraclePullEmpty().increment();
+            } else {
+                metrics.getOraclePullSuccess().increment(pulled);
+                finish(batch);
+            }
+            shardPulled += pulled;
 
-                requestProducer.sendRequest(request).get(10, TimeUnit.SECONDS);
+            // Idle backoff: re-poll at once only while pulls come back full,
+            // a partial pull means the source is drained
+            more = drainFull ? pulled >= pullRequest.batchSize() : pulled > 0;
 
-                kafkaSample.stop(metrics.getKafkaProduceTimer());
-                metrics.getKafkaProduceSuccess().increment();
+        } while (more && pullCoordinator.owns(shard));
 
-                log.debug("Request sent to Kafka successfully: {}", compositeId);
-                return;
+        return shardPulled;
+    }
 
-            } catch (Exception e) {
-                lastException = e;
-
-                // ===== Retry metric =====
-                if (attempt < retryProperties.getMaxAttempts()) {
-                    metrics.getKafkaProduceRetry().increment();
-                    log.warn("E2: Kafka send failed for {}: attempt {}/{} - {}",
-                            compositeId, attempt, retryProperties.getMaxAttempts(), e.getMessage());
-
-                    try {
-                        Thread.sleep(retryProperties.getIntervalMs());
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
-                        throw new RuntimeException("Interrupted during retry wait", ie);
-                    }
-                }
-            }
+    /**
+     * E2: Await the batch's sends in the background, retry the failed subset,
+     * DLQ what still fails. Waits for the previous batch first.
+     */
+    private void finish(RequestBatchPublisher.Batch batch) {
+        if (batch.getTotal() == 0) {
+            return;
         }
 
-        throw new RuntimeException("Failed to send to Kafka after " +
-                retryProperties.getMaxAttempts() + " attempts", lastException);
+        awaitInFlightBatch();
+
+        inFlightBatch = batch.complete()
+                .<Void>thenApply(result -> null)
+                .exceptionally(e -> {
+                    log.error("E2: Unexpected error publishing batch of {} requests: {}",
+                            batch.getTotal(), e.getMessage(), e);
+                    return null;
+                });
     }
 
-    /**
-     * Send failed request to DLQ for analysis
-     */
-    private void sendToDlq(RequestMessage request, String errorMessage) {
+    private void awaitInFlightBatch() {
         try {
-            DlqMessage dlqMessage = DlqMessage.from(
-                    request, errorMessage, "KAFKA", 0,
-                    retryProperties.getMaxAttempts(),
-                    kafkaProperties.getTopics().getRequestNew()  // ← dynamic topic
-            );
-            requestProducer.sendToDlq(dlqMessage);
-            metrics.getDlqSent().increment();
-            log.info("Request sent to DLQ: {}", request.getCompositeId());
+            inFlightBatch.get(retryProperties.getMaxAttempts() * (retryProperties.getMaxIntervalMs() + 10_000),
+                    TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         } catch (Exception e) {
-            log.error("Failed to send to DLQ: {} - {}", request.getCompositeId(), e.getMessage());
+            log.warn("E2: Previous batch did not finish publishing: {}", e.getMessage());
         }
     }
 
-    private void logProcessingSummary(int total, int success, List<String> failed) {
-        if (failed.isEmpty()) {
-            log.info("Processed all {} requests successfully", total);
-        } else {
-            log.warn("Processed {}/{} requests. Failed: {}", success, total, failed);
-        }
+    @PreDestroy
+    public void shutdown() {
+        awaitInFlightBatch();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,18 @@
+package uz.greenwhite.gateway.source;
+
+/**
+ * Parameters of one pull.
+ *
+ * @param batchSize  maximum number of requests to return
+ * @param cursor     continue after this compositeId, null to start from the beginning
+ * @param waitMs     long poll: the source may hold the pull up to this long until work arrives, 0 = return at once
+ * @param shard      only requests with company_id % shardCount == shard
+ * @param shardCount number of shards, 1 = no sharding
+ */
+public record PullRequest(int batchSize, String cursor, long waitMs, int shard, int shardCount) {
+
+    public boolean isSharded() {
+        return shardCount > 1;
+    }
+
+}
@@ -3,6 +3,7 @@ package uz.greenwhite.gateway.source;
 import uz.greenwhite.gateway.model.kafka.RequestMessage;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Interface for pulling requests from any data source.
@@ -18,4 +19,33 @@ public interface RequestSourceClient {
      * @return list of request messages ready for processing
      */
     List<RequestMessage> pullRequests();
-}
\ No newline at end of file
+
+    /**
+     * Pull pending requests and hand each one to the consumer as soon as it is read,
+     * so the whole batch never has to be held in memory.
+     * Default implementation pulls the list and iterates it; batch size, cursor and wait
+     * are ignored. pullRequests() claims what it returns, so a sharded pull is refused
+     * rather than filtered: rows of other shards would be claimed and then dropped.
+     *
+     * @param pullRequest batch size, cursor and shard of this pull
+     * @param consumer    receives requests in source order
+     * @return number of requests pulled
+     * @throws UnsupportedOperationException if the pull is sharded and the source does not support sharding
+     */
+    default int streamRequests(PullRequest pullRequest, Consumer<RequestMessage> consumer) {
+        if (pullRequest.isSharded()) {
+            throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support sharded pulls");
+        }
+        List<RequestMessage> requests = pullRequests();
+        requests.forEach(consumer);
+        return requests.size();
+    }
+
+    /**
+     * Whether streamRequests returns only the rows of the pulled shard
+     * (company_id % shard_count = shard). Required by coordination mode SHARDED.
+     */
+    default boolean supportsSharding() {
+        return false;
+    }
+}
@@ -0,0 +1,154 @@
+package uz.greenwhite.gateway.source;
+
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import uz.greenwhite.gateway.concurrency.MonitoredExecutor;
+import uz.greenwhite.gateway.config.GatewayProperties;
+import uz.greenwhite.gateway.metrics.GatewayMetrics;
+import uz.greenwhite.gateway.model.ResponseSaveRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects E5 saves into size- and time-bounded batches.
+ *
+ * A batch is flushed when it reaches maxSize responses or when its oldest
+ * response has waited maxWaitMs, whichever comes first. The flush runs on the
+ * save executor and calls ResponseSinkClient.saveResponses once per batch.
+ * Every submitted response gets its own result future.
+ */
+@Slf4j
+@Component
+public class ResponseSaveBatcher {
+
+    private final ResponseSinkClient responseSinkClient;
+    private final MonitoredExecutor saveExecutor;
+    private final GatewayMetrics metrics;
+    private final int maxSize;
+    private final long maxWaitMs;
+
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "save-batch-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Object lock = new Object();
+    private List<PendingSave> buffer = new ArrayList<>();
+    private ScheduledFuture<?> flushTask;
+
+    public ResponseSaveBatcher(
+            ResponseSinkClient responseSinkClient,
+            @Qualifier("httpRequestExecutor") MonitoredExecutor saveExecutor,
+            GatewayMetrics metrics,
+            GatewayProperties properties) {
+        this.responseSinkClient = responseSinkClient;
+        this.saveExecutor = saveExecutor;
+        this.metrics = metrics;
+        this.maxSize = Math.max(1, properties.getSaveBatch().getMaxSize());
+        this.maxWaitMs = Math.max(1, properties.getSaveBatch().getMaxWaitMs());
+    }
+
+    /**
+     * Add a response to the current batch.
+     *
+     * @return completes with true if the response was saved, false otherwise
+     */
+    public CompletableFuture<Boolean> submit(ResponseSaveRequest request) {
+        PendingSave pending = new PendingSave(request, new CompletableFuture<>());
+        List<PendingSave> full = null;
+
+        synchronized (lock) {
+            buffer.add(pending);
+            if (buffer.size() >= maxSize) {
+                full = drain();
+            } else if (buffer.size() == 1) {
+                flushTask = timer.schedule(this::flushDue, maxWaitMs, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        if (full != null) {
+            dispatch(full);
+        }
+        return pending.result();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+        List<PendingSave> rest;
+        synchronized (lock) {
+            rest = drain();
+        }
+        if (!rest.isEmpty()) {
+            log.info("Flushing {} buffered responses on shutdown", rest.size());
+            save(rest);
+        }
+    }
+
+    private void flushDue() {
+        List<PendingSave> batch;
+        synchronized (lock) {
+            if (buffer.isEmpty()) {
+                return;
+            }
+            batch = drain();
+        }
+        dispatch(batch);
+    }
+
+    /**
+     * Must be called while holding the lock
+     */
+    private List<PendingSave> drain() {
+        List<PendingSave> batch = buffer;
+        buffer = new ArrayList<>();
+        if (flushTask != null) {
+            flushTask.cancel(false);
+            flushTask = null;
+        }
+        return batch;
+    }
+
+    private void dispatch(List<PendingSave> batch) {
+        try {
+            saveExecutor.execute(() -> save(batch));
+        } catch (Exception e) {
+            log.error("E5: Failed to dispatch batch of {} responses: {}", batch.size(), e.getMessage());
+            batch.forEach(pending -> pending.result().complete(false));
+        }
+    }
+
+    private void save(List<PendingSave> batch) {
+        Timer.Sample sample = Timer.start(metrics.getRegistry());
+        metrics.getOracleSaveBatchSize().record(batch.size());
+
+        try {
+            List<Boolean> results = responseSinkClient.saveResponses(
+                    batch.stream().map(PendingSave::request).toList());
+
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).result().complete(i < results.size() && Boolean.TRUE.equals(results.get(i)));
+            }
+
+        } catch (Exception e) {
+            log.error("E5: Batch save of {} responses failed: {}", batch.size(), e.getMessage(), e);
+            batch.forEach(pending -> pending.result().complete(false));
+
+        } finally {
+            sample.stop(metrics.getOracleSaveTimer());
+        }
+    }
+
+    private record PendingSave(ResponseSaveRequest request, CompletableFuture<Boolean> result) {
+    }
+}
@@ -2,6 +2,18 @@ package uz.greenwhite.gateway.source;
 
 import uz.greenwhite.gateway.model.ResponseSaveRequest;
 
+import java.util.List;
+
 public interface ResponseSinkClient {
     boolean saveResponse(ResponseSaveRequest request);
-}
\ No newline at end of file
+
+    /**
+     * Save many responses at once.
+     * Default implementation saves them one by one.
+     *
+     * @return per-item result, same order as requests
+     */
+    default List<Boolean> saveResponses(List<ResponseSaveRequest> requests) {
+        return requests.stream().map(this::saveResponse).toList();
+    }
+}
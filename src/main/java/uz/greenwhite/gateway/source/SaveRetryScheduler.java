@@ -0,0 +1,97 @@
+package uz.greenwhite.gateway.source;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import uz.greenwhite.gateway.concurrency.KeyOrderedExecutor;
+import uz.greenwhite.gateway.concurrency.MonitoredExecutor;
+import uz.greenwhite.gateway.config.RetryProperties;
+import uz.greenwhite.gateway.metrics.GatewayMetrics;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * E5 save with delayed retries that never sleep on a thread.
+ *
+ * A failed attempt is re-run after an increasing delay (intervalMs × multiplier^n,
+ * capped at maxIntervalMs) via a delayed executor, so the Kafka listener thread is
+ * free right after submitting. Saves for the same compositeId run strictly one after
+ * another, including their retries (KeyOrderedExecutor).
+ */
+@Slf4j
+@Component
+public class SaveRetryScheduler {
+
+    private final RetryProperties retryProperties;
+    private final MonitoredExecutor saveExecutor;
+    private final GatewayMetrics metrics;
+
+    private final KeyOrderedExecutor saveOrder = new KeyOrderedExecutor();
+    private final AtomicInteger waitingRetries = new AtomicInteger();
+
+    public SaveRetryScheduler(
+            RetryProperties retryProperties,
+            @Qualifier("httpRequestExecutor") MonitoredExecutor saveExecutor,
+            GatewayMetrics metrics) {
+        this.retryProperties = retryProperties;
+        this.saveExecutor = saveExecutor;
+        this.metrics = metrics;
+
+        metrics.registerSaveRetryQueueGauge(waitingRetries::get);
+    }
+
+    /**
+     * Run the save with retries, after all earlier saves of the same compositeId.
+     *
+     * @param attempt one save attempt; completes with true when saved
+     * @return completes with true if any attempt succeeded, false when attempts are exhausted
+     */
+    public CompletableFuture<Boolean> submit(String compositeId, Supplier<CompletableFuture<Boolean>> attempt) {
+        return saveOrder.submit(compositeId, () -> run(compositeId, attempt, 1))
+                .handle((saved, e) -> e == null && Boolean.TRUE.equals(saved));
+    }
+
+    /**
+     * Saves currently waiting for their retry delay
+     */
+    public int getWaitingRetries() {
+        return waitingRetries.get();
+    }
+
+    private CompletableFuture<Boolean> run(String compositeId, Supplier<CompletableFuture<Boolean>> attempt,
+                                           int attemptNo) {
+        return start(attempt)
+                .exceptionally(e -> {
+                    log.warn("E5: Save failed for {}: attempt {}/{} - {}",
+                            compositeId, attemptNo, retryProperties.getMaxAttempts(), e.getMessage());
+                    return false;
+                })
+                .thenCompose(saved -> {
+                    if (saved || attemptNo >= retryProperties.getMaxAttempts()) {
+                        return CompletableFuture.completedFuture(saved);
+                    }
+
+                    long delayMs = retryProperties.backoffMs(attemptNo);
+                    log.warn("E5: Save returned false for {}: attempt {}/{}, retrying in {}ms",
+                            compositeId, attemptNo, retryProperties.getMaxAttempts(), delayMs);
+                    metrics.getOracleSaveRetry().increment();
+
+                    waitingRetries.incrementAndGet();
+                    Executor delayed = CompletableFuture.delayedExecutor(delayMs, TimeUnit.MILLISECONDS, saveExecutor);
+                    return CompletableFuture.runAsync(waitingRetries::decrementAndGet, delayed)
+                            .thenCompose(v -> run(compositeId, attempt, attemptNo + 1));
+                });
+    }
+
+    private CompletableFuture<Boolean> start(Supplier<CompletableFuture<Boolean>> attempt) {
+        try {
+            return attempt.get();
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
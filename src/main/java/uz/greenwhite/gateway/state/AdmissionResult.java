@@ -0,0 +1,22 @@
+package uz.greenwhite.gateway.state;
+
+/**
+ * Outcome of RequestStateService.admit — idempotency check and lock in one call
+ */
+public enum AdmissionResult {
+
+    /**
+     * Lock taken, PROCESSING state created — the request must be processed
+     */
+    ADMITTED,
+
+    /**
+     * State is already COMPLETED or FAILED — skip
+     */
+    ALREADY_COMPLETED,
+
+    /**
+     * Another consumer/instance holds the lock — skip
+     */
+    LOCKED
+}
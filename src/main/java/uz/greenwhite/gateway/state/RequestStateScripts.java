@@ -0,0 +1,160 @@
+package uz.greenwhite.gateway.state;
+
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.List;
+
+/**
+ * Lua scripts behind RequestStateService.
+ *
+ * State is a Redis hash (one field per RequestState property), so every
+ * transition runs server-side in one atomic round trip — no GET + SET of the
+ * whole object and no lost updates between concurrent writers.
+ *
+ * Scripts that return state reply with a flat array:
+ *   { result, field1, value1, field2, value2, ... }
+ * where result is OK / CONFLICT / LOCKED / MISSING.
+ *
+ * Scripts that read state take the legacy key (request:state:{compositeId}, a JSON
+ * value written before the hash layout) as their last KEYS entry and convert it
+ * into the hash on first access, so states written by an older version survive
+ * a rolling deploy. Legacy keys expire with the state TTL; the conversion can go
+ * once a state TTL has passed after the upgrade.
+ */
+final class RequestStateScripts {
+
+    private RequestStateScripts() {
+    }
+
+    /**
+     * Lua prologue: move the legacy JSON state (KEYS[#KEYS]) into the hash (KEYS[1])
+     * if the hash does not exist yet. The remaining TTL is kept.
+     */
+    private static final String MIGRATE_LEGACY = """
+            local function migrateLegacy(key, legacy)
+                if redis.call('EXISTS', key) == 1 then
+                    return
+                end
+                local json = redis.call('GET', legacy)
+                if not json then
+                    return
+                end
+                local ok, old = pcall(cjson.decode, json)
+                if ok and type(old) == 'table' and old['status'] then
+                    local fields = {}
+                    for _, name in ipairs({ 'compositeId', 'status', 'attemptCount', 'lastError',
+                            'errorSource', 'kafkaOffset', 'kafkaPartition', 'createdAt', 'updatedAt' }) do
+                        local value = old[name]
+                        if value ~= nil and value ~= cjson.null then
+                            table.insert(fields, name)
+                            table.insert(fields, tostring(value))
+                        end
+                    end
+                    redis.call('HSET', key, unpack(fields))
+                    local ttl = redis.call('PTTL', legacy)
+                    if ttl > 0 then
+                        redis.call('PEXPIRE', key, ttl)
+                    end
+                end
+                redis.call('DEL', legacy)
+            end
+            migrateLegacy(KEYS[1], KEYS[#KEYS])
+            """;
+
+    /**
+     * Current state (after legacy conversion).
+     *
+     * KEYS[1] = state key, KEYS[2] = legacy key
+     */
+    @SuppressWarnings("rawtypes")
+    static final RedisScript<List> GET = new DefaultRedisScript<>(MIGRATE_LEGACY + """
+            local reply = redis.call('HGETALL', KEYS[1])
+            table.insert(reply, 1, 'OK')
+            return reply
+            """, List.class);
+
+    /**
+     * Idempotency check + lock + initial state in one call (consumer hot path).
+     * Replies COMPLETED if the state is already terminal, LOCKED if the lock is taken,
+     * ADMITTED otherwise. Short reply — the state itself is not needed here.
+     *
+     * KEYS[1] = state key, KEYS[2] = lock key, KEYS[3] = legacy key
+     * ARGV    = status, now, ttlSeconds, compositeId, lockTtlSeconds
+     */
+    static final RedisScript<String> ADMIT = new DefaultRedisScript<>(MIGRATE_LEGACY + """
+            local key = KEYS[1]
+            local current = redis.call('HGET', key, 'status')
+            if current == 'COMPLETED' or current == 'FAILED' then
+                return 'COMPLETED'
+            end
+            if not redis.call('SET', KEYS[2], ARGV[2], 'NX', 'EX', ARGV[5]) then
+                return 'LOCKED'
+            end
+            if not current then
+                redis.call('HSET', key, 'compositeId', ARGV[4],
+                    'attemptCount', 0, 'createdAt', ARGV[2])
+            end
+            redis.call('HSET', key, 'status', ARGV[1], 'updatedAt', ARGV[2])
+            redis.call('EXPIRE', key, ARGV[3])
+            return 'ADMITTED'
+            """, String.class);
+
+    /**
+     * Change status if the current status is one of the expected ones.
+     *
+     * KEYS[1] = state key, KEYS[2] = legacy key
+     * ARGV    = newStatus, now, ttlSeconds, lastError, errorSource, expected1, expected2, ...
+     *           (empty lastError/errorSource = leave unchanged, no expected = any status)
+     */
+    @SuppressWarnings("rawtypes")
+    static final RedisScript<List> TRANSITION = new DefaultRedisScript<>(MIGRATE_LEGACY + """
+            local key = KEYS[1]
+            local current = redis.call('HGET', key, 'status')
+            if not current then
+                return { 'MISSING' }
+            end
+            if #ARGV > 5 then
+                local matched = false
+                for i = 6, #ARGV do
+                    if ARGV[i] == current then
+                        matched = true
+                        break
+                    end
+                end
+                if not matched then
+                    local reply = redis.call('HGETALL', key)
+                    table.insert(reply, 1, 'CONFLICT')
+                    return reply
+                end
+            end
+            redis.call('HSET', key, 'status', ARGV[1], 'updatedAt', ARGV[2])
+            if ARGV[4] ~= '' then
+                redis.call('HSET', key, 'lastError', ARGV[4])
+            end
+            if ARGV[5] ~= '' then
+                redis.call('HSET', key, 'errorSource', ARGV[5])
+            end
+            redis.call('EXPIRE', key, ARGV[3])
+            local reply = redis.call('HGETALL', key)
+            table.insert(reply, 1, 'OK')
+            return reply
+            """, List.class);
+
+    /**
+     * Increment attemptCount and return the new value, -1 if the state does not exist.
+     *
+     * KEYS[1] = state key, KEYS[2] = legacy key
+     * ARGV    = now, ttlSeconds
+     */
+    static final RedisScript<Long> INCREMENT_ATTEMPT = new DefaultRedisScript<>(MIGRATE_LEGACY + """
+            local key = KEYS[1]
+            if redis.call('EXISTS', key) == 0 then
+                return -1
+            end
+            local count = redis.call('HINCRBY', key, 'attemptCount', 1)
+            redis.call('HSET', key, 'updatedAt', ARGV[1])
+            redis.call('EXPIRE', key, ARGV[2])
+            return count
+            """, Long.class);
+}
@@ -2,198 +2,373 @@ package uz.greenwhite.gateway.state;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
 import uz.greenwhite.gateway.config.RedisProperties;
 import uz.greenwhite.gateway.model.RequestState;
 import uz.greenwhite.gateway.model.enums.ErrorSource;
 import uz.greenwhite.gateway.model.enums.RequestStatus;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
+/**
+ * Request state and idempotency lock in Redis.
+ *
+ * State is stored as a hash under request:hstate:{compositeId}; every transition
+ * is a Lua script (see RequestStateScripts), i.e. one atomic round trip.
+ * JSON states under the old request:state: prefix are converted on first access.
+ */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class RequestStateService {
 
-    private final RedisTemplate<String, Object> redisTemplate;
+    private final StringRedisTemplate redisTemplate;
+    private final ReactiveStringRedisTemplate reactiveRedisTemplate;
     private final RedisProperties redisProperties;
 
-    private static final String STATE_PREFIX = "request:state:";
+    private static final String STATE_PREFIX = "request:hstate:";
+    private static final String LEGACY_STATE_PREFIX = "request:state:";
     private static final String LOCK_PREFIX = "request:lock:";
 
-    // ==================== STATE OPERATIONS ====================
-
-    /**
-     * Save request state to Redis
-     */
-    public void saveState(RequestState state) {
-        String key = STATE_PREFIX + state.getCompositeId();
-        state.setUpdatedAt(LocalDateTime.now());
+    private static final String RESULT_OK = "OK";
+    private static final String RESULT_LOCKED = "LOCKED";
+    private static final String RESULT_MISSING = "MISSING";
 
-        redisTemplate.opsForValue().set(key, state,
-                redisProperties.getStateTtlHours(), TimeUnit.HOURS);
-        log.debug("State saved: {} -> {} (TTL: {}h)", key, state.getStatus(),
-                redisProperties.getStateTtlHours());
-    }
+    // ==================== STATE OPERATIONS ====================
 
     /**
      * Get request state from Redis
      */
     public Optional<RequestState> getState(String compositeId) {
-        String key = STATE_PREFIX + compositeId;
-        Object value = redisTemplate.opsForValue().get(key);
-
-        if (value instanceof RequestState state) {
-            return Optional.of(state);
-        }
-        return Optional.empty();
+        return parseState(execute(RequestStateScripts.GET, stateKeys(compositeId)));
     }
 
     /**
-     * Create initial state for new request
+     * Update status unconditionally
+     *
+     * @return new state, empty if the state does not exist
      */
-    public RequestState createInitialState(String compositeId) {
-        RequestState state = RequestState.builder()
-                .compositeId(compositeId)
-                .status(RequestStatus.PROCESSING)
-                .attemptCount(0)
-                .createdAt(LocalDateTime.now())
-                .updatedAt(LocalDateTime.now())
-                .build();
-
-        saveState(state);
-        return state;
+    public Optional<RequestState> updateStatus(String compositeId, RequestStatus status) {
+        List<String> reply = execute(RequestStateScripts.TRANSITION, stateKeys(compositeId),
+                transitionArgs(status, null, null));
+        StateTransition result = toTransition(compositeId, status, reply);
+        if (result.applied()) {
+            log.info("Status updated: {} -> {}", compositeId, status);
+        }
+        return Optional.ofNullable(result.state());
     }
 
     /**
-     * Update status
+     * Unconditional status update for many requests in one pipelined round trip
+     * (batch listeners). Missing states are skipped by the script.
      */
-    public void updateStatus(String compositeId, RequestStatus status) {
-        getState(compositeId).ifPresent(state -> {
-            state.setStatus(status);
-            state.setUpdatedAt(LocalDateTime.now());
-            saveState(state);
-            log.info("Status updated: {} -> {}", compositeId, status);
+    public void updateStatusAll(Map<String, RequestStatus> statuses) {
+        List<List<String>> calls = new ArrayList<>();
+        statuses.forEach((compositeId, status) -> {
+            List<String> keysAndArgs = new ArrayList<>(stateKeys(compositeId));
+            keysAndArgs.addAll(List.of(transitionArgs(status, null, null)));
+            calls.add(keysAndArgs);
         });
+
+        executePipelined(RequestStateScripts.TRANSITION, ReturnType.MULTI, 2, calls);
+        log.info("Status updated for {} requests (pipelined)", statuses.size());
     }
 
+    // ==================== LOCK OPERATIONS ====================
+
     /**
-     * Mark as failed
+     * Idempotency check + lock acquisition + initial PROCESSING state, one round trip.
      */
-    public void markFailed(String compositeId, String error, ErrorSource source) {
-        getState(compositeId).ifPresent(state -> {
-            state.setStatus(RequestStatus.FAILED);
-            state.setLastError(error);
-            state.setErrorSource(source);
-            state.setUpdatedAt(LocalDateTime.now());
-            saveState(state);
-            log.warn("Request marked as failed: {} - {}", compositeId, error);
-        });
+    public AdmissionResult admit(String compositeId) {
+        String reply = redisTemplate.execute(RequestStateScripts.ADMIT, lockKeys(compositeId),
+                (Object[]) admitArgs(compositeId));
+        return toAdmission(compositeId, reply);
     }
 
     /**
-     * Increment attempt count.
-     * If Redis is unavailable or state not found, returns Integer.MAX_VALUE
-     * to prevent infinite retry loops.
+     * Admit a whole poll of records in one pipelined round trip.
+     * A compositeId repeated in the same poll is admitted once; the repeats get LOCKED.
+     *
+     * @return admission result per compositeId, in input order
      */
-    public int incrementAttempt(String compositeId) {
-        try {
-            Optional<RequestState> stateOpt = getState(compositeId);
-            if (stateOpt.isPresent()) {
-                RequestState state = stateOpt.get();
-                state.setAttemptCount(state.getAttemptCount() + 1);
-                state.setUpdatedAt(LocalDateTime.now());
-                saveState(state);
-                return state.getAttemptCount();
-            }
+    public List<AdmissionResult> admitAll(List<String> compositeIds) {
+        List<List<String>> calls = new ArrayList<>();
+        for (String compositeId : compositeIds) {
+            List<String> keysAndArgs = new ArrayList<>(lockKeys(compositeId));
+            keysAndArgs.addAll(List.of(admitArgs(compositeId)));
+            calls.add(keysAndArgs);
+        }
 
-            log.warn("State not found for incrementAttempt: {}. " +
-                    "Returning MAX_VALUE to prevent infinite retry.", compositeId);
-            return Integer.MAX_VALUE;
+        List<Object> replies = executePipelined(RequestStateScripts.ADMIT, ReturnType.VALUE, 3, calls);
 
-        } catch (Exception e) {
-            log.error("Redis error during incrementAttempt for {}: {}. " +
-                    "Returning MAX_VALUE to prevent infinite retry.", compositeId, e.getMessage());
-            return Integer.MAX_VALUE;
+        List<AdmissionResult> results = new ArrayList<>(compositeIds.size());
+        for (int i = 0; i < compositeIds.size(); i++) {
+            Object reply = replies.get(i);
+            results.add(toAdmission(compositeIds.get(i), reply != null ? reply.toString() : null));
         }
+        return results;
     }
 
     /**
-     * Check if request is already completed
+     * Release lock
      */
-    public boolean isCompleted(String compositeId) {
-        return getState(compositeId)
-                .map(state -> state.getStatus() == RequestStatus.COMPLETED ||
-                        state.getStatus() == RequestStatus.FAILED)
-                .orElse(false);
+    public void releaseLock(String compositeId) {
+        String key = LOCK_PREFIX + compositeId;
+        redisTemplate.delete(key);
+        log.debug("Lock released: {}", compositeId);
     }
 
     /**
-     * Delete state
+     * Release the locks of many requests in one DEL (batch listeners)
      */
-    public void deleteState(String compositeId) {
-        String key = STATE_PREFIX + compositeId;
-        redisTemplate.delete(key);
-        log.debug("State deleted: {}", compositeId);
+    public void releaseLocks(List<String> compositeIds) {
+        if (compositeIds.isEmpty()) {
+            return;
+        }
+        redisTemplate.delete(compositeIds.stream().map(id -> LOCK_PREFIX + id).toList());
+        log.debug("Locks released: {}", compositeIds.size());
     }
 
-    // ==================== LOCK OPERATIONS ====================
+    // ==================== REACTIVE OPERATIONS ====================
+    // Non-blocking operations of the E4 pipeline (RequestConsumer composes them
+    // in every mode). Same keys and scripts as the blocking methods above.
+
+    public Mono<AdmissionResult> admitReactive(String compositeId) {
+        return reactiveRedisTemplate.execute(RequestStateScripts.ADMIT, lockKeys(compositeId),
+                        List.of(admitArgs(compositeId)))
+                .next()
+                .map(reply -> toAdmission(compositeId, reply));
+    }
+
+    public Mono<StateTransition> transitionReactive(String compositeId, RequestStatus status,
+                                                    RequestStatus... expected) {
+        return executeReactive(RequestStateScripts.TRANSITION, stateKeys(compositeId),
+                transitionArgs(status, null, null, expected))
+                .map(reply -> toTransition(compositeId, status, reply));
+    }
+
+    public Mono<RequestState> markFailedReactive(String compositeId, String error, ErrorSource source) {
+        return executeReactive(RequestStateScripts.TRANSITION, stateKeys(compositeId),
+                transitionArgs(RequestStatus.FAILED, error, source))
+                .map(reply -> toTransition(compositeId, RequestStatus.FAILED, reply))
+                .doOnNext(result -> {
+                    if (result.applied()) {
+                        log.warn("Request marked as failed: {} - {}", compositeId, error);
+                    }
+                })
+                .flatMap(result -> Mono.justOrEmpty(result.state()));
+    }
 
     /**
-     * Try to acquire lock (for idempotency)
+     * Increment attempt count.
+     * If Redis is unavailable or state not found, emits Integer.MAX_VALUE
+     * to prevent infinite retry loops.
      */
-    public boolean tryLock(String compositeId) {
-        String key = LOCK_PREFIX + compositeId;
-        Boolean acquired = redisTemplate.opsForValue()
-                .setIfAbsent(key, LocalDateTime.now().toString(),
-                        redisProperties.getLockTtlSeconds(), TimeUnit.SECONDS);
+    public Mono<Integer> incrementAttemptReactive(String compositeId) {
+        return reactiveRedisTemplate.execute(RequestStateScripts.INCREMENT_ATTEMPT,
+                        stateKeys(compositeId), List.of(now(), stateTtlSeconds()))
+                .next()
+                .map(count -> toAttemptCount(compositeId, count))
+                .defaultIfEmpty(Integer.MAX_VALUE)
+                .onErrorResume(e -> {
+                    log.error("Redis error during incrementAttempt for {}: {}. " +
+                            "Returning MAX_VALUE to prevent infinite retry.", compositeId, e.getMessage());
+                    return Mono.just(Integer.MAX_VALUE);
+                });
+    }
 
-        if (Boolean.TRUE.equals(acquired)) {
-            log.debug("Lock acquired: {}", compositeId);
-            return true;
-        }
-        log.debug("Lock already exists: {}", compositeId);
-        return false;
+    public Mono<Void> releaseLockReactive(String compositeId) {
+        return reactiveRedisTemplate.delete(LOCK_PREFIX + compositeId)
+                .doOnSuccess(n -> log.debug("Lock released: {}", compositeId))
+                .then();
+    }
+
+    // ==================== SCRIPT HELPERS ====================
+
+    @SuppressWarnings("rawtypes")
+    private List<String> execute(RedisScript<List> script,
+                                 List<String> keys, String... args) {
+        return flatten(redisTemplate.execute(script, keys, (Object[]) args));
     }
 
     /**
-     * Release lock
+     * The reactive driver emits a multi-bulk reply element by element,
+     * so the reply is collected back into one list.
      */
-    public void releaseLock(String compositeId) {
-        String key = LOCK_PREFIX + compositeId;
-        redisTemplate.delete(key);
-        log.debug("Lock released: {}", compositeId);
+    @SuppressWarnings("rawtypes")
+    private Mono<List<String>> executeReactive(RedisScript<List> script,
+                                               List<String> keys, String... args) {
+        return reactiveRedisTemplate.execute(script, keys, List.of(args))
+                .collectList()
+                .map(this::flatten);
     }
 
     /**
-     * Check if lock exists
+     * Run the same script many times in one pipeline.
+     *
+     * @param calls keys followed by args for each call
+     * @return script replies in call order
      */
-    public boolean isLocked(String compositeId) {
-        String key = LOCK_PREFIX + compositeId;
-        return Boolean.TRUE.equals(redisTemplate.hasKey(key));
+    private List<Object> executePipelined(RedisScript<?> script, ReturnType returnType, int numKeys,
+                                          List<List<String>> calls) {
+        if (calls.isEmpty()) {
+            return List.of();
+        }
+
+        RedisSerializer<String> serializer = redisTemplate.getStringSerializer();
+        byte[] scriptBytes = serializer.serialize(script.getScriptAsString());
+        String sha = script.getSha1();
+
+        List<Object> replies = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            // Loading first makes EVALSHA below safe even right after a Redis restart
+            connection.scriptingCommands().scriptLoad(scriptBytes);
+            for (List<String> keysAndArgs : calls) {
+                connection.scriptingCommands().evalSha(sha, returnType, numKeys,
+                        keysAndArgs.stream().map(serializer::serialize).toArray(byte[][]::new));
+            }
+            return null;
+        });
+
+        // replies[0] is the SCRIPT LOAD result
+        return replies.subList(1, replies.size());
+    }
+
+    private List<String> flatten(List<?> raw) {
+        List<String> result = new ArrayList<>();
+        if (raw == null) {
+            return result;
+        }
+        for (Object item : raw) {
+            if (item instanceof List<?> nested) {
+                result.addAll(flatten(nested));
+            } else {
+                result.add(String.valueOf(item));
+            }
+        }
+        return result;
+    }
+
+    private List<String> stateKeys(String compositeId) {
+        return List.of(STATE_PREFIX + compositeId, LEGACY_STATE_PREFIX + compositeId);
+    }
+
+    private List<String> lockKeys(String compositeId) {
+        return List.of(STATE_PREFIX + compositeId, LOCK_PREFIX + compositeId, LEGACY_STATE_PREFIX + compositeId);
+    }
+
+    private String[] admitArgs(String compositeId) {
+        return new String[]{
+                RequestStatus.PROCESSING.name(), now(), stateTtlSeconds(), compositeId,
+                String.valueOf(redisProperties.getLockTtlSeconds())
+        };
+    }
+
+    private String[] transitionArgs(RequestStatus status, String error, ErrorSource source,
+                                    RequestStatus... expected) {
+        List<String> args = new ArrayList<>();
+        args.add(status.name());
+        args.add(now());
+        args.add(stateTtlSeconds());
+        args.add(error != null ? error : "");
+        args.add(source != null ? source.name() : "");
+        for (RequestStatus s : expected) {
+            args.add(s.name());
+        }
+        return args.toArray(String[]::new);
+    }
+
+    private StateTransition toTransition(String compositeId, RequestStatus status, List<String> reply) {
+        if (reply.isEmpty() || RESULT_MISSING.equals(reply.get(0))) {
+            log.warn("State not found for transition to {}: {}", status, compositeId);
+            return StateTransition.MISSING;
+        }
+
+        RequestState state = parseState(reply).orElse(null);
+        boolean applied = RESULT_OK.equals(reply.get(0));
+        if (!applied) {
+            log.warn("Status transition rejected: {} is {}, wanted {}",
+                    compositeId, state != null ? state.getStatus() : null, status);
+        }
+        return new StateTransition(applied, state);
+    }
+
+    private AdmissionResult toAdmission(String compositeId, String reply) {
+        if ("COMPLETED".equals(reply)) {
+            return AdmissionResult.ALREADY_COMPLETED;
+        }
+        if (RESULT_LOCKED.equals(reply)) {
+            log.debug("Lock already exists: {}", compositeId);
+            return AdmissionResult.LOCKED;
+        }
+        if (!AdmissionResult.ADMITTED.name().equals(reply)) {
+            throw new IllegalStateException("Unexpected admit reply for " + compositeId + ": " + reply);
+        }
+        log.debug("Lock acquired: {}", compositeId);
+        return AdmissionResult.ADMITTED;
+    }
+
+    private int toAttemptCount(String compositeId, Long count) {
+        if (count == null || count < 0) {
+            log.warn("State not found for incrementAttempt: {}. " +
+                    "Returning MAX_VALUE to prevent infinite retry.", compositeId);
+            return Integer.MAX_VALUE;
+        }
+        return count.intValue();
     }
 
     /**
-     * Get current attempt count.
-     * If Redis is unavailable or state not found, returns Integer.MAX_VALUE
-     * to prevent infinite retry loops.
+     * Reply format: { result, field1, value1, ... }
      */
-    public int getAttemptCount(String compositeId) {
-        try {
-            return getState(compositeId)
-                    .map(RequestState::getAttemptCount)
-                    .orElseGet(() -> {
-                        log.warn("State not found for getAttemptCount: {}. " +
-                                "Returning MAX_VALUE to prevent infinite retry.", compositeId);
-                        return Integer.MAX_VALUE;
-                    });
-        } catch (Exception e) {
-            log.error("Redis error during getAttemptCount for {}: {}. " +
-                    "Returning MAX_VALUE to prevent infinite retry.", compositeId, e.getMessage());
-            return Integer.MAX_VALUE;
+    private Optional<RequestState> parseState(List<String> reply) {
+        if (reply.size() < 3) {
+            return Optional.empty();
+        }
+
+        Map<String, String> fields = new HashMap<>();
+        for (int i = 1; i + 1 < reply.size(); i += 2) {
+            fields.put(reply.get(i), reply.get(i + 1));
         }
+        return Optional.of(toState(fields));
+    }
+
+    private RequestState toState(Map<String, String> fields) {
+        return RequestState.builder()
+                .compositeId(fields.get("compositeId"))
+                .status(parse(fields.get("status"), RequestStatus::valueOf))
+                .attemptCount(fields.containsKey("attemptCount")
+                        ? Integer.parseInt(fields.get("attemptCount")) : 0)
+                .lastError(fields.get("lastError"))
+                .errorSource(parse(fields.get("errorSource"), ErrorSource::valueOf))
+                .kafkaOffset(parse(fields.get("kafkaOffset"), Long::valueOf))
+                .kafkaPartition(parse(fields.get("kafkaPartition"), Integer::valueOf))
+                .createdAt(parse(fields.get("createdAt"), LocalDateTime::parse))
+                .updatedAt(parse(fields.get("updatedAt"), LocalDateTime::parse))
+                .build();
+    }
+
+    private static <T> T parse(String value, Function<String, T> parser) {
+        return value != null && !value.isEmpty() ? parser.apply(value) : null;
+    }
+
+    private String stateTtlSeconds() {
+        return String.valueOf(TimeUnit.HOURS.toSeconds(redisProperties.getStateTtlHours()));
+    }
+
+    private static String now() {
+        return LocalDateTime.now().toString();
     }
-}
\ No newline at end of file
+}
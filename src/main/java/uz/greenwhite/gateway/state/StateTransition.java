@@ -0,0 +1,19 @@
+package uz.greenwhite.gateway.state;
+
+import uz.greenwhite.gateway.model.RequestState;
+
+/**
+ * Result of a status transition.
+ *
+ * @param applied false if the current status was not one of the expected ones
+ * @param state   state after the call (new state if applied, current state otherwise),
+ *                null if the state does not exist
+ */
+public record StateTransition(boolean applied, RequestState state) {
+
+    static final StateTransition MISSING = new StateTransition(false, null);
+
+    public boolean isMissing() {
+        return state == null;
+    }
+}
@@ -0,0 +1,160 @@
+package uz.greenwhite.gateway.controller;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import uz.greenwhite.gateway.blob.ClaimCheckService;
+import uz.greenwhite.gateway.config.IngestProperties;
+import uz.greenwhite.gateway.config.KafkaProperties;
+import uz.greenwhite.gateway.config.RetryProperties;
+import uz.greenwhite.gateway.kafka.producer.RequestBatchPublisher;
+import uz.greenwhite.gateway.kafka.producer.RequestProducer;
+import uz.greenwhite.gateway.kafka.producer.RequestSpool;
+import uz.greenwhite.gateway.metrics.GatewayMetrics;
+import uz.greenwhite.gateway.model.kafka.RequestMessage;
+import uz.greenwhite.gateway.validation.RequestValidator;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Stand-in pusher: posts request batches to the ingest endpoint the way the source would.
+ * The publish path is the real RequestBatchPublisher; only the Kafka producer is stubbed.
+ */
+class IngestControllerTest {
+
+    private static final String TOKEN = "test-token";
+
+    private RequestProducer requestProducer;
+    private RequestSpool requestSpool;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        requestProducer = mock(RequestProducer.class);
+        when(requestProducer.sendRequest(any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        RetryProperties retryProperties = new RetryProperties();
+        retryProperties.setMaxAttempts(1);
+        retryProperties.init();
+
+        KafkaProperties kafkaProperties = new KafkaProperties();
+        kafkaProperties.getTopics().setRequestNew("gateway.request.new");
+
+        RequestBatchPublisher publisher = new RequestBatchPublisher(requestProducer, retryProperties,
+                new GatewayMetrics(new SimpleMeterRegistry()), kafkaProperties, new RequestValidator(),
+                requestSpool = mock(RequestSpool.class), mock(ClaimCheckService.class));
+
+        IngestProperties ingestProperties = new IngestProperties();
+        ingestProperties.setEnabled(true);
+        ingestProperties.setToken(TOKEN);
+        ingestProperties.setMaxBatchSize(3);
+
+        mockMvc = MockMvcBuilders.standaloneSetup(new IngestController(publisher, ingestProperties,
+                new GatewayMetrics(new SimpleMeterRegistry()))).build();
+    }
+
+    @Test
+    void acceptsBatchWhenEveryRequestIsPublished() throws Exception {
+        push(TOKEN, "[" + request(1) + "," + request(2) + "]")
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("accepted"))
+                .andExpect(jsonPath("$.total").value(2))
+                .andExpect(jsonPath("$.published").value(2));
+
+        verify(requestProducer, times(2)).sendRequest(any(RequestMessage.class));
+    }
+
+    @Test
+    void reportsPartialBatchWithInvalidRequests() throws Exception {
+        push(TOKEN, "[" + request(1) + ",{\"company_id\":100,\"request_id\":2,\"method\":\"GET\"}]")
+                .andExpect(status().isMultiStatus())
+                .andExpect(jsonPath("$.status").value("partial"))
+                .andExpect(jsonPath("$.published").value(1))
+                .andExpect(jsonPath("$.invalid[0]").value("100:2"));
+
+        verify(requestProducer, times(1)).sendRequest(any(RequestMessage.class));
+        verify(requestProducer).sendToDlq(any());
+    }
+
+    @Test
+    void rejectsBatchWhenEveryRequestIsInvalid() throws Exception {
+        push(TOKEN, "[{\"company_id\":100,\"request_id\":1,\"method\":\"FETCH\"}]")
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.status").value("rejected"))
+                .andExpect(jsonPath("$.published").value(0));
+
+        verify(requestProducer, never()).sendRequest(any());
+    }
+
+    @Test
+    void failsBatchWhenKafkaTakesNothing() throws Exception {
+        when(requestProducer.sendRequest(any()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+
+        push(TOKEN, "[" + request(1) + "]")
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.status").value("failed"))
+                .andExpect(jsonPath("$.failed[0]").value("100:1"));
+    }
+
+    @Test
+    void neverSpoolsPushedRequests() throws Exception {
+        when(requestSpool.isEnabled()).thenReturn(true);
+        when(requestSpool.hasPending()).thenReturn(true);
+        when(requestSpool.append(any())).thenReturn(true);
+
+        push(TOKEN, "[" + request(1) + "," + request(2) + "]")
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("accepted"))
+                .andExpect(jsonPath("$.published").value(2));
+
+        when(requestProducer.sendRequest(any()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+
+        push(TOKEN, "[" + request(3) + "]")
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.status").value("failed"))
+                .andExpect(jsonPath("$.published").value(0))
+                .andExpect(jsonPath("$.failed[0]").value("100:3"));
+
+        verify(requestSpool, never()).append(any());
+    }
+
+    @Test
+    void rejectsWrongTokenAndOversizedBatch() throws Exception {
+        push("wrong", "[" + request(1) + "]")
+                .andExpect(status().isUnauthorized());
+
+        push(TOKEN, "[" + request(1) + "," + request(2) + "," + request(3) + "," + request(4) + "]")
+                .andExpect(status().isPayloadTooLarge());
+
+        verify(requestProducer, never()).sendRequest(any());
+    }
+
+    private ResultActions push(String token, String body) throws Exception {
+        return mockMvc.perform(post("/api/ingest/requests")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body));
+    }
+
+    private static String request(long requestId) {
+        return "{\"company_id\":100,\"request_id\":" + requestId
+                + ",\"base_url\":\"https://partner.example\",\"uri\":\"/orders\",\"method\":\"POST\",\"body\":\"{}\"}";
+    }
+}
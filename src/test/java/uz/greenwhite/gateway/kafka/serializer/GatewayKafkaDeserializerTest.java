@@ -0,0 +1,172 @@
+package uz.greenwhite.gateway.kafka.serializer;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import uz.greenwhite.gateway.model.kafka.DlqMessage;
+import uz.greenwhite.gateway.model.kafka.RequestMessage;
+import uz.greenwhite.gateway.model.kafka.ResponseMessage;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * JSON / SMILE round trips and per-record format detection (see WireFormat).
+ */
+class GatewayKafkaDeserializerTest {
+
+    private static final String TOPIC = "gateway.request.new";
+
+    private GatewayKafkaSerializer jsonSerializer;
+    private GatewayKafkaSerializer smileSerializer;
+    private GatewayKafkaDeserializer deserializer;
+
+    @BeforeEach
+    void setUp() {
+        jsonSerializer = serializer(WireFormat.JSON);
+        smileSerializer = serializer(WireFormat.SMILE);
+        deserializer = new GatewayKafkaDeserializer();
+        deserializer.configure(Map.of(JsonDeserializer.TRUSTED_PACKAGES, "uz.greenwhite.gateway.*"), false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jsonSerializer.close();
+        smileSerializer.close();
+        deserializer.close();
+    }
+
+    @Test
+    void roundTripsEveryFramedTypeInBothFormats() {
+        for (Object message : List.of(request(), response(), dlq())) {
+            assertEquals(message, roundTrip(jsonSerializer, message));
+            assertEquals(message, roundTrip(smileSerializer, message));
+        }
+    }
+
+    @Test
+    void smileFrameIsVersionedTypedAndSmallerThanJson() {
+        RecordHeaders jsonHeaders = new RecordHeaders();
+        byte[] json = jsonSerializer.serialize(TOPIC, jsonHeaders, request());
+        RecordHeaders smileHeaders = new RecordHeaders();
+        byte[] smile = smileSerializer.serialize(TOPIC, smileHeaders, request());
+
+        assertEquals(WireFormat.VERSION_1, smile[0]);
+        assertEquals(WireFormat.typeOf(RequestMessage.class), smile[1]);
+        assertEquals(0, smileHeaders.toArray().length);
+        assertTrue(jsonHeaders.toArray().length > 0);
+        assertTrue(smile.length < json.length);
+    }
+
+    @Test
+    void readsJsonAndSmileRecordsMixedOnOneTopic() {
+        RequestMessage first = request();
+        RequestMessage second = request().toBuilder().requestId(2L).build();
+
+        RecordHeaders jsonHeaders = new RecordHeaders();
+        byte[] json = jsonSerializer.serialize(TOPIC, jsonHeaders, first);
+        byte[] smile = smileSerializer.serialize(TOPIC, new RecordHeaders(), second);
+        // Pretty-printed JSON from an older producer starts with whitespace
+        RecordHeaders indentedHeaders = new RecordHeaders();
+        byte[] indented = ("\n\t" + new String(jsonSerializer.serialize(TOPIC, indentedHeaders, first),
+                StandardCharsets.UTF_8)).getBytes(StandardCharsets.UTF_8);
+
+        assertEquals(first, deserializer.deserialize(TOPIC, jsonHeaders, json));
+        assertEquals(second, deserializer.deserialize(TOPIC, new RecordHeaders(), smile));
+        assertEquals(first, deserializer.deserialize(TOPIC, indentedHeaders, indented));
+    }
+
+    @Test
+    void keepsRawBodyBytesInSmile() {
+        ResponseMessage response = response();
+        response.setBody(null);
+        response.setRawBody(true);
+        response.setBodyBytes(new byte[]{0, 1, (byte) 0xFF, 0x7F, (byte) 0x80});
+
+        ResponseMessage read = assertInstanceOf(ResponseMessage.class, roundTrip(smileSerializer, response));
+        assertArrayEquals(response.getBodyBytes(), read.getBodyBytes());
+    }
+
+    @Test
+    void rejectsUnknownOrTruncatedFrames() {
+        byte[] smile = smileSerializer.serialize(TOPIC, new RecordHeaders(), request());
+
+        byte[] newerVersion = smile.clone();
+        newerVersion[0] = 2;
+        byte[] unknownType = smile.clone();
+        unknownType[1] = (byte) (WireFormat.TYPES.size() + 1);
+
+        assertThrows(SerializationException.class, () -> deserializer.deserialize(TOPIC, new RecordHeaders(), newerVersion));
+        assertThrows(SerializationException.class, () -> deserializer.deserialize(TOPIC, new RecordHeaders(), unknownType));
+        assertThrows(SerializationException.class,
+                () -> deserializer.deserialize(TOPIC, new RecordHeaders(), new byte[]{WireFormat.VERSION_1}));
+    }
+
+    private Object roundTrip(GatewayKafkaSerializer serializer, Object message) {
+        RecordHeaders headers = new RecordHeaders();
+        byte[] data = serializer.serialize(TOPIC, headers, message);
+        return deserializer.deserialize(TOPIC, headers, data);
+    }
+
+    private static GatewayKafkaSerializer serializer(WireFormat format) {
+        GatewayKafkaSerializer serializer = new GatewayKafkaSerializer();
+        serializer.configure(Map.of(WireFormat.CONFIG, format.name()), false);
+        return serializer;
+    }
+
+    private static RequestMessage request() {
+        return RequestMessage.builder()
+                .companyId(100L)
+                .requestId(1L)
+                .filialId(7L)
+                .endpointId(12L)
+                .baseUrl("https://partner.example")
+                .uri("/api/v1/orders")
+                .params("page=1&size=20")
+                .method("POST")
+                .headers(Map.of("Content-Type", "application/json", "X-Trace-Id", "a1b2c3d4"))
+                .body("{\"order_id\":12345,\"items\":[{\"sku\":\"A-1\",\"qty\":2},{\"sku\":\"B-7\",\"qty\":1}]}")
+                .callbackProcedure("biruni_orders.save_response")
+                .projectCode("trade")
+                .sourceTable("orders")
+                .sourceId(12345L)
+                .createdAt(LocalDateTime.of(2026, 10, 17, 9, 30, 15))
+                .build();
+    }
+
+    private static ResponseMessage response() {
+        return ResponseMessage.builder()
+                .companyId(100L)
+                .requestId(1L)
+                .httpStatus(200)
+                .contentType("application/json")
+                .body("{\"status\":\"ok\"}")
+                .processedAt(LocalDateTime.of(2026, 10, 17, 9, 30, 16))
+                .build();
+    }
+
+    private static DlqMessage dlq() {
+        return DlqMessage.builder()
+                .companyId(100L)
+                .requestId(1L)
+                .originalTopic(TOPIC)
+                .failureReason("Service Unavailable")
+                .errorSource("HTTP")
+                .httpStatus(503)
+                .attemptCount(3)
+                .url("POST https://partner.example/api/v1/orders")
+                .failedAt(LocalDateTime.of(2026, 10, 17, 9, 31, 0))
+                .build();
+    }
+}
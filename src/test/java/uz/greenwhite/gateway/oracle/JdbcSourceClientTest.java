@@ -0,0 +1,191 @@
+package uz.greenwhite.gateway.oracle;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uz.greenwhite.gateway.config.GatewayProperties;
+import uz.greenwhite.gateway.model.ResponseSaveRequest;
+import uz.greenwhite.gateway.model.kafka.RequestMessage;
+import uz.greenwhite.gateway.source.PullRequest;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * JdbcSourceClient against an embedded H2 standing in for the source table.
+ */
+class JdbcSourceClientTest {
+
+    private static final String TABLE = "gateway_requests";
+
+    private JdbcDataSource dataSource;
+    private JdbcSourceClient client;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=5000");
+
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE " + TABLE + " (" +
+                    "company_id BIGINT NOT NULL, request_id BIGINT NOT NULL, filial_id BIGINT, endpoint_id BIGINT, " +
+                    "base_url VARCHAR(500), uri VARCHAR(500), params VARCHAR(500), method VARCHAR(10), " +
+                    "headers VARCHAR(2000), body CLOB, oauth2_provider VARCHAR(100), callback_procedure VARCHAR(200), " +
+                    "project_code VARCHAR(50), source_table VARCHAR(100), source_id BIGINT, created_at TIMESTAMP, " +
+                    "status CHAR(1) NOT NULL, claimed_at TIMESTAMP, response_status INT, response_content_type VARCHAR(200), " +
+                    "response_body CLOB, error_message VARCHAR(4000), completed_at TIMESTAMP, " +
+                    "PRIMARY KEY (company_id, request_id))");
+        }
+
+        GatewayProperties properties = new GatewayProperties();
+        properties.getJdbc().setRequestTable(TABLE);
+        properties.getJdbc().setFetchSize(2);
+        properties.getJdbc().setClaimLeaseMs(60000);
+        client = new JdbcSourceClient(dataSource, properties);
+    }
+
+    @Test
+    void claimsAtMostBatchSizeAndMarksRowsClaimed() throws SQLException {
+        insert(100, 1);
+        insert(100, 2);
+        insert(100, 3);
+
+        assertEquals(List.of("100:1", "100:2"), pull(new PullRequest(2, null, 0, 0, 1)));
+        assertEquals(List.of("100:3"), pull(new PullRequest(2, null, 0, 0, 1)));
+        assertEquals(List.of(), pull(new PullRequest(2, null, 0, 0, 1)));
+
+        assertEquals("P", status(100, 1));
+        assertEquals("P", status(100, 3));
+    }
+
+    @Test
+    void skipsRowsLockedByAnotherPull() throws SQLException {
+        insert(100, 1);
+        insert(100, 2);
+
+        try (Connection other = dataSource.getConnection()) {
+            other.setAutoCommit(false);
+            try (Statement statement = other.createStatement();
+                 ResultSet rs = statement.executeQuery("SELECT request_id FROM " + TABLE +
+                         " WHERE request_id = 1 FOR UPDATE")) {
+                assertTrue(rs.next());
+            }
+
+            assertEquals(List.of("100:2"), pull(new PullRequest(10, null, 0, 0, 1)));
+            other.rollback();
+        }
+
+        assertEquals(List.of("100:1"), pull(new PullRequest(10, null, 0, 0, 1)));
+    }
+
+    @Test
+    void claimsOnlyRowsOfThePulledShard() throws SQLException {
+        for (long companyId = 1; companyId <= 4; companyId++) {
+            insert(companyId, 1);
+        }
+
+        assertTrue(client.supportsSharding());
+        assertEquals(List.of("1:1", "3:1"), pull(new PullRequest(10, null, 0, 1, 2)));
+        // Rows of the other shard stay new for their owner
+        assertEquals("N", status(2, 1));
+        assertEquals(List.of("2:1", "4:1"), pull(new PullRequest(10, null, 0, 0, 2)));
+    }
+
+    @Test
+    void reclaimsRowsWhoseClaimLeaseExpired() throws SQLException {
+        insert(100, 1);
+        insert(100, 2);
+        assertEquals(List.of("100:1", "100:2"), pull(new PullRequest(10, null, 0, 0, 1)));
+
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("UPDATE " + TABLE + " SET claimed_at = DATEADD('MINUTE', -5, CURRENT_TIMESTAMP)" +
+                    " WHERE request_id = 2");
+        }
+
+        assertEquals(List.of("100:2"), pull(new PullRequest(10, null, 0, 0, 1)));
+        // Claimed again with a fresh lease
+        assertEquals(List.of(), pull(new PullRequest(10, null, 0, 0, 1)));
+        assertEquals("P", status(100, 2));
+    }
+
+    @Test
+    void completesRowsWithCallbackProcedureAsErrorInsteadOfClaiming() throws SQLException {
+        insert(100, 1);
+        insert(100, 2);
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("UPDATE " + TABLE + " SET callback_procedure = 'orders.save_response'" +
+                    " WHERE request_id = 1");
+        }
+
+        assertEquals(List.of("100:2"), pull(new PullRequest(10, null, 0, 0, 1)));
+        assertEquals("E", status(100, 1));
+        assertEquals(List.of(), pull(new PullRequest(10, null, 0, 0, 1)));
+    }
+
+    @Test
+    void savesBatchAndReportsUnknownRowsAsFailed() throws SQLException {
+        insert(100, 1);
+        insert(100, 2);
+
+        List<Boolean> results = client.saveResponses(List.of(
+                ResponseSaveRequest.builder().companyId(100L).requestId(1L)
+                        .response(ResponseSaveRequest.ResponseData.builder()
+                                .status(200).contentType("application/json").body("{\"ok\":true}").build())
+                        .build(),
+                ResponseSaveRequest.builder().companyId(100L).requestId(2L)
+                        .errorMessage("Connection refused").build(),
+                ResponseSaveRequest.builder().companyId(100L).requestId(99L)
+                        .errorMessage("unknown").build()));
+
+        assertEquals(List.of(true, true, false), results);
+        assertEquals("C", status(100, 1));
+        assertEquals("E", status(100, 2));
+    }
+
+    private List<String> pull(PullRequest pullRequest) {
+        List<String> ids = new ArrayList<>();
+        int count = client.streamRequests(pullRequest, request -> ids.add(compositeId(request)));
+        assertEquals(ids.size(), count);
+        return ids;
+    }
+
+    private static String compositeId(RequestMessage request) {
+        return request.getCompanyId() + ":" + request.getRequestId();
+    }
+
+    private void insert(long companyId, long requestId) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("INSERT INTO " + TABLE +
+                     " (company_id, request_id, base_url, uri, method, headers, status, created_at)" +
+                     " VALUES (?, ?, 'https://partner.example', '/orders', 'POST', '{\"X-Trace\":\"1\"}', 'N'," +
+                     " CURRENT_TIMESTAMP)")) {
+            statement.setLong(1, companyId);
+            statement.setLong(2, requestId);
+            statement.executeUpdate();
+        }
+    }
+
+    private String status(long companyId, long requestId) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "SELECT status FROM " + TABLE + " WHERE company_id = ? AND request_id = ?")) {
+            statement.setLong(1, companyId);
+            statement.setLong(2, requestId);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+}
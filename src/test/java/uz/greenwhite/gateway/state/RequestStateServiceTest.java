@@ -0,0 +1,151 @@
+package uz.greenwhite.gateway.state;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+import uz.greenwhite.gateway.config.RedisProperties;
+import uz.greenwhite.gateway.model.RequestState;
+import uz.greenwhite.gateway.model.enums.ErrorSource;
+import uz.greenwhite.gateway.model.enums.RequestStatus;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static uz.greenwhite.gateway.state.AdmissionResult.ADMITTED;
+import static uz.greenwhite.gateway.state.AdmissionResult.ALREADY_COMPLETED;
+import static uz.greenwhite.gateway.state.AdmissionResult.LOCKED;
+
+/**
+ * RequestStateScripts (ADMIT / TRANSITION / INCREMENT_ATTEMPT / GET and the legacy JSON
+ * conversion) against a real Redis. Skipped when Docker is not available.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class RequestStateServiceTest {
+
+    @Container
+    private static final GenericContainer<?> REDIS =
+            new GenericContainer<>(DockerImageName.parse("redis:7-alpine")).withExposedPorts(6379);
+
+    private static LettuceConnectionFactory connectionFactory;
+
+    private StringRedisTemplate redisTemplate;
+    private RequestStateService service;
+
+    @BeforeAll
+    static void connect() {
+        connectionFactory = new LettuceConnectionFactory(REDIS.getHost(), REDIS.getMappedPort(6379));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+    }
+
+    @AfterAll
+    static void disconnect() {
+        connectionFactory.destroy();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+        redisTemplate.execute((RedisCallback<Object>) connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        });
+        service = new RequestStateService(redisTemplate, new ReactiveStringRedisTemplate(connectionFactory),
+                new RedisProperties());
+    }
+
+    @Test
+    void admitsOnceThenLocksThenSkipsTerminalStates() {
+        assertEquals(ADMITTED, service.admit("100:1"));
+        assertEquals(LOCKED, service.admit("100:1"));
+        assertEquals(RequestStatus.PROCESSING, service.getState("100:1").orElseThrow().getStatus());
+
+        service.updateStatus("100:1", RequestStatus.COMPLETED);
+        service.releaseLock("100:1");
+        assertEquals(ALREADY_COMPLETED, service.admit("100:1"));
+
+        assertEquals(ADMITTED, service.admit("100:2"));
+        service.markFailedReactive("100:2", "Bad Request", ErrorSource.HTTP).block();
+        service.releaseLock("100:2");
+        assertEquals(ALREADY_COMPLETED, service.admitReactive("100:2").block());
+    }
+
+    @Test
+    void keepsAttemptCountAcrossRetries() {
+        assertEquals(ADMITTED, service.admit("100:1"));
+        assertEquals(1, service.incrementAttemptReactive("100:1").block());
+        service.releaseLock("100:1");
+
+        // Retry delivery: admitted again, the count goes on
+        assertEquals(ADMITTED, service.admit("100:1"));
+        assertEquals(1, service.getState("100:1").orElseThrow().getAttemptCount());
+        assertEquals(2, service.incrementAttemptReactive("100:1").block());
+
+        assertEquals(Integer.MAX_VALUE, service.incrementAttemptReactive("100:404").block());
+    }
+
+    @Test
+    void transitionsOnlyFromExpectedStatus() {
+        service.admit("100:1");
+
+        StateTransition sent = service.transitionReactive("100:1", RequestStatus.SENT, RequestStatus.PROCESSING)
+                .block();
+        assertTrue(sent.applied());
+        assertEquals(RequestStatus.SENT, sent.state().getStatus());
+
+        StateTransition conflict = service.transitionReactive("100:1", RequestStatus.COMPLETED,
+                RequestStatus.PROCESSING).block();
+        assertFalse(conflict.applied());
+        assertEquals(RequestStatus.SENT, conflict.state().getStatus());
+
+        assertTrue(service.transitionReactive("100:404", RequestStatus.COMPLETED).block().isMissing());
+    }
+
+    @Test
+    void convertsLegacyJsonStateAndKeepsItsRemainingTtl() {
+        redisTemplate.opsForValue().set("request:state:100:1", """
+                {"@class":"uz.greenwhite.gateway.model.RequestState","compositeId":"100:1","status":"SENT",\
+                "attemptCount":2,"lastError":"Read timed out","errorSource":"HTTP",\
+                "createdAt":"2026-10-17T09:30:15","updatedAt":null}""", Duration.ofSeconds(1000));
+
+        RequestState state = service.getState("100:1").orElseThrow();
+        assertEquals(RequestStatus.SENT, state.getStatus());
+        assertEquals(2, state.getAttemptCount());
+        assertEquals("Read timed out", state.getLastError());
+        assertEquals(ErrorSource.HTTP, state.getErrorSource());
+
+        assertFalse(redisTemplate.hasKey("request:state:100:1"));
+        long ttl = redisTemplate.getExpire("request:hstate:100:1", TimeUnit.SECONDS);
+        assertTrue(ttl > 990 && ttl <= 1000, "remaining TTL carried over, was " + ttl);
+
+        // Converted on admission as well: a legacy COMPLETED state is not run again
+        redisTemplate.opsForValue().set("request:state:100:2",
+                "{\"compositeId\":\"100:2\",\"status\":\"COMPLETED\",\"attemptCount\":0}", Duration.ofSeconds(1000));
+        assertEquals(ALREADY_COMPLETED, service.admit("100:2"));
+        assertFalse(redisTemplate.hasKey("request:state:100:2"));
+    }
+
+    @Test
+    void admitsPipelinedPollWithRepeatedKeyOnce() {
+        service.admit("100:9");
+        service.updateStatus("100:9", RequestStatus.COMPLETED);
+        service.releaseLock("100:9");
+
+        assertEquals(List.of(ADMITTED, ADMITTED, LOCKED, ALREADY_COMPLETED),
+                service.admitAll(List.of("100:1", "100:2", "100:1", "100:9")));
+        assertEquals(RequestStatus.PROCESSING, service.getState("100:1").orElseThrow().getStatus());
+    }
+}